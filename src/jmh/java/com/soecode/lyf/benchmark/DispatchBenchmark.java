@@ -0,0 +1,116 @@
+package com.soecode.lyf.benchmark;
+
+import com.soecode.lyf.fastpath.FastRouteTable;
+import com.soecode.lyf.server.EmbeddedServer;
+import com.soecode.lyf.server.ServerSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一接口经 DispatcherServlet 与经 FastPathFilter 的单次请求耗时
+ * <p>
+ * 进程内启动内嵌 Tomcat 和内嵌 H2，通过本机 keep-alive 连接发请求。预约请求很快被限流，
+ * 搜索查内存索引，两个接口都不访问数据库；两种方式响应字节相同，耗时差即为分发开销。
+ * dispatcher 一侧在启动后卸下路由表，所有请求回到 DispatcherServlet：
+ * <pre>
+ *   mvn -Pjmh compile exec:exec -Djmh.includes=DispatchBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    private static final int PORT = 18998;
+
+    @Param({"dispatcher", "fastpath"})
+    public String mode;
+
+    private EmbeddedServer server;
+
+    private URL appointUrl;
+
+    private URL searchUrl;
+
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setup() throws Exception {
+        System.setProperty("jdbc.profile", "embedded");
+        System.setProperty("jdbc.embedded.url", "jdbc:h2:mem:dispatch;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+        System.setProperty("server.port", String.valueOf(PORT));
+        System.setProperty("server.accessLog.enabled", "false");
+        System.setProperty("server.shutdown.drainSeconds", "1");
+        server = new EmbeddedServer(ServerSettings.load());
+        server.start();
+        if (server.getComponents().get(FastRouteTable.class) == null) {
+            throw new IllegalStateException("fastpath.routes is empty");
+        }
+        if ("dispatcher".equals(mode)) {
+            server.getComponents().remove(FastRouteTable.class);
+        }
+        appointUrl = new URL("http://127.0.0.1:" + PORT + "/book/1000/appoint");
+        searchUrl = new URL("http://127.0.0.1:" + PORT + "/book/search?q=Java");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.shutdownGracefully();
+    }
+
+    @Benchmark
+    public int appoint() throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) appointUrl.openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write("studentId=12345678910".getBytes(StandardCharsets.UTF_8));
+        }
+        return drain(conn);
+    }
+
+    @Benchmark
+    public int search() throws IOException {
+        return drain((HttpURLConnection) searchUrl.openConnection());
+    }
+
+    private int drain(HttpURLConnection conn) throws IOException {
+        int status = conn.getResponseCode();
+        int total = 0;
+        // 读完响应体，连接才能回到 keep-alive 缓存
+        try (InputStream in = status >= 400 ? conn.getErrorStream() : conn.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                total += n;
+            }
+        }
+        if (status != 200) {
+            throw new IOException("unexpected status " + status);
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.soecode.lyf.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * 基准测试用的内存结果集，只实现映射用到的 next/getXxx/wasNull
+ */
+final class InMemoryResultSet implements InvocationHandler {
+
+    private final String[] columns;
+
+    private final Object[][] rows;
+
+    private int cursor = -1;
+
+    private boolean wasNull;
+
+    private InMemoryResultSet(String[] columns, Object[][] rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    static ResultSet of(String[] columns, Object[][] rows) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                new InMemoryResultSet(columns, rows));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        switch (name) {
+            case "next":
+                return ++cursor < rows.length;
+            case "wasNull":
+                return wasNull;
+            case "close":
+                return null;
+            default:
+                break;
+        }
+        if (!name.startsWith("get") || args == null || args.length != 1) {
+            throw new UnsupportedOperationException(name);
+        }
+        Object value = rows[cursor][index(args[0])];
+        wasNull = value == null;
+        switch (name) {
+            case "getLong":
+                return value == null ? 0L : ((Number) value).longValue();
+            case "getInt":
+                return value == null ? 0 : ((Number) value).intValue();
+            case "getString":
+                return value == null ? null : value.toString();
+            case "getTimestamp":
+                return value == null ? null : new Timestamp(((Date) value).getTime());
+            default:
+                return value;
+        }
+    }
+
+    private int index(Object column) {
+        if (column instanceof Integer) {
+            return (Integer) column - 1;
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equalsIgnoreCase((String) column)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("no column " + column);
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.soecode.lyf.benchmark;
+
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.dto.Result;
+import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.enums.AppointStateEnum;
+import com.soecode.lyf.fastpath.FastJsonWriter;
+import com.soecode.lyf.record.RecordClient;
+import com.soecode.lyf.record.RecordCodec;
+import com.soecode.lyf.record.RecordReader;
+import com.soecode.lyf.record.RecordWriter;
+import com.soecode.lyf.server.EmbeddedServer;
+import com.soecode.lyf.server.ServerSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预约与详情接口 JSON 与二进制记录（application/x-lyf-record）的对比
+ * <p>
+ * encode/decode 只测编解码本身，appoint/detail 经进程内 Tomcat 走完整请求。
+ * 每次调用的请求与响应字节数在启动时打印一次，耗时看 JMH 结果，分配看 -prof gc：
+ * <pre>
+ *   mvn -Pjmh compile exec:exec -Djmh.includes="RecordFormatBenchmark -prof gc"
+ * </pre>
+ * JSON 一侧只计服务端编码，客户端解析 JSON 的开销取决于所用的库，不在此列。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordFormatBenchmark {
+
+    private static final int PORT = 18997;
+
+    private static final long BOOK_ID = 1000L;
+
+    private static final long STUDENT_ID = 12345678910L;
+
+    private static final byte[] FORM_BODY = ("studentId=" + STUDENT_ID).getBytes(StandardCharsets.UTF_8);
+
+    @Param({"json", "record"})
+    public String format;
+
+    private EmbeddedServer server;
+
+    private RecordClient client;
+
+    private URL appointUrl;
+
+    private URL detailUrl;
+
+    private Result<AppointExecution> success;
+
+    private final StringBuilder json = new StringBuilder(256);
+
+    private final RecordWriter record = new RecordWriter(256);
+
+    private byte[] encodedRecord;
+
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setup() throws Exception {
+        success = new AppointExecution(BOOK_ID, AppointStateEnum.SUCCESS,
+                new Appointment(BOOK_ID, STUDENT_ID, new Date())).asResult();
+        RecordCodec.writeResult(record, success);
+        encodedRecord = record.toByteArray();
+
+        System.setProperty("jdbc.profile", "embedded");
+        System.setProperty("jdbc.embedded.url", "jdbc:h2:mem:record;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+        System.setProperty("server.port", String.valueOf(PORT));
+        System.setProperty("server.accessLog.enabled", "false");
+        System.setProperty("server.shutdown.drainSeconds", "1");
+        server = new EmbeddedServer(ServerSettings.load());
+        server.start();
+        client = new RecordClient("http://127.0.0.1:" + PORT, 5000);
+        appointUrl = new URL("http://127.0.0.1:" + PORT + "/book/" + BOOK_ID + "/appoint");
+        detailUrl = new URL("http://127.0.0.1:" + PORT + "/book/" + BOOK_ID + "/data");
+
+        RecordWriter request = new RecordWriter(16);
+        RecordCodec.writeAppointRequest(request, STUDENT_ID, false);
+        int appointBytes = appoint();
+        int detailBytes = detail();
+        System.out.println(format + ": appoint request " + ("json".equals(format) ? FORM_BODY.length : request.size())
+                + " bytes, response " + appointBytes + " bytes; detail response " + detailBytes
+                + " bytes; encoded success result " + encode() + " bytes");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.shutdownGracefully();
+    }
+
+    /**
+     * 与 FastPathFilter 的两种输出方式相同：JSON 写进 StringBuilder 再转 UTF-8，记录直接写进复用的缓冲
+     */
+    @Benchmark
+    public int encode() {
+        if ("json".equals(format)) {
+            json.setLength(0);
+            FastJsonWriter.write(json, success);
+            return json.toString().getBytes(StandardCharsets.UTF_8).length;
+        }
+        record.reset();
+        RecordCodec.writeResult(record, success);
+        return record.size();
+    }
+
+    @Benchmark
+    public Object decode() {
+        if ("json".equals(format)) {
+            // 没有 JSON 解析库可比，只作为空白对照
+            return success;
+        }
+        return RecordCodec.readResult(new RecordReader(encodedRecord, 0, encodedRecord.length));
+    }
+
+    /**
+     * 同一学号很快被限流，两种格式都返回 RATE_LIMITED，不受库存影响
+     */
+    @Benchmark
+    public int appoint() throws IOException {
+        if ("record".equals(format)) {
+            client.appoint(BOOK_ID, STUDENT_ID, false, null);
+            return client.getLastResponseBytes();
+        }
+        HttpURLConnection conn = (HttpURLConnection) appointUrl.openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(FORM_BODY);
+        }
+        return drain(conn);
+    }
+
+    @Benchmark
+    public int detail() throws IOException {
+        if ("record".equals(format)) {
+            client.detail(BOOK_ID);
+            return client.getLastResponseBytes();
+        }
+        return drain((HttpURLConnection) detailUrl.openConnection());
+    }
+
+    private int drain(HttpURLConnection conn) throws IOException {
+        int status = conn.getResponseCode();
+        int total = 0;
+        try (InputStream in = status >= 400 ? conn.getErrorStream() : conn.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                total += n;
+            }
+        }
+        if (status != 200) {
+            throw new IOException("unexpected status " + status);
+        }
+        return total;
+    }
+
+}
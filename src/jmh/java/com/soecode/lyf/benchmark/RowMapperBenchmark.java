@@ -0,0 +1,98 @@
+package com.soecode.lyf.benchmark;
+
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.mapper.BookRowTypeHandler;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1000 行 queryAll 结果的映射开销：MyBatis 自动映射方式 vs 生成的 BookRowTypeHandler
+ * <p>
+ * 自动映射一侧按 DefaultResultSetHandler 的做法逐行：ObjectFactory 反射建对象、
+ * 建 MetaObject、逐列用 TypeHandler 按列名取值再反射 setter。两侧读同一个内存结果集，不含网络与驱动开销。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowMapperBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private static final String[] COLUMNS = {"bookid", "name", "number"};
+
+    private static final String[] PROPERTIES = {"bookId", "name", "number"};
+
+    private Object[][] rows;
+
+    private Configuration configuration;
+
+    private ObjectFactory objectFactory;
+
+    private TypeHandler<?>[] columnHandlers;
+
+    private BookRowTypeHandler generated;
+
+    @Setup
+    public void setup() {
+        rows = new Object[ROWS][];
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new Object[]{1000L + i, "图书" + i, i % 50};
+        }
+        configuration = new Configuration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        objectFactory = configuration.getObjectFactory();
+        TypeHandlerRegistry registry = configuration.getTypeHandlerRegistry();
+        columnHandlers = new TypeHandler<?>[]{
+                registry.getTypeHandler(long.class), registry.getTypeHandler(String.class), registry.getTypeHandler(int.class)};
+        generated = new BookRowTypeHandler();
+    }
+
+    @Benchmark
+    public List<Book> autoMapping() throws SQLException {
+        ResultSet rs = InMemoryResultSet.of(COLUMNS, rows);
+        List<Book> list = new ArrayList<>(ROWS);
+        while (rs.next()) {
+            Book book = objectFactory.create(Book.class);
+            MetaObject metaObject = configuration.newMetaObject(book);
+            for (int i = 0; i < COLUMNS.length; i++) {
+                Object value = columnHandlers[i].getResult(rs, COLUMNS[i]);
+                metaObject.setValue(PROPERTIES[i], value);
+            }
+            list.add(book);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<Book> generatedHandler() throws SQLException {
+        ResultSet rs = InMemoryResultSet.of(COLUMNS, rows);
+        List<Book> list = new ArrayList<>(ROWS);
+        while (rs.next()) {
+            list.add(generated.getResult(rs, COLUMNS[0]));
+        }
+        return list;
+    }
+
+}
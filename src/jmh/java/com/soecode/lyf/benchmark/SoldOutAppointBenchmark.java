@@ -0,0 +1,106 @@
+package com.soecode.lyf.benchmark;
+
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.dto.Result;
+import com.soecode.lyf.enums.AppointStateEnum;
+import com.soecode.lyf.service.impl.BookServiceImpl;
+import com.soecode.lyf.stock.StockAllocator;
+import com.soecode.lyf.waitlist.WaitlistManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 售罄时预约接口的吞吐：原来的抛异常 + 逐个 new 结果 vs 现在的按状态返回共享结果
+ * <p>
+ * 库存分配器恒返回 false，不含数据库开销。配合 -prof gc 看每次调用的分配字节数：
+ * <pre>
+ *   mvn -Pjmh compile exec:exec -Djmh.includes="SoldOutAppointBenchmark -prof gc"
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SoldOutAppointBenchmark {
+
+    private static final long BOOK_ID = 1000L;
+
+    private static final long STUDENT_ID = 12345678910L;
+
+    private BookServiceImpl bookService;
+
+    private StockAllocator soldOut;
+
+    @Setup
+    public void setup() throws Exception {
+        soldOut = new StockAllocator() {
+            @Override
+            public boolean acquire(long bookId) {
+                return false;
+            }
+
+            @Override
+            public void release(long bookId) {
+            }
+        };
+        bookService = new BookServiceImpl();
+        Field field = BookServiceImpl.class.getDeclaredField("stockAllocator");
+        field.setAccessible(true);
+        field.set(bookService, soldOut);
+        field = BookServiceImpl.class.getDeclaredField("waitlistManager");
+        field.setAccessible(true);
+        field.set(bookService, WaitlistManager.disabled());
+    }
+
+    @Benchmark
+    public Result<AppointExecution> exceptionPath() {
+        AppointExecution execution;
+        try {
+            execution = legacyAppoint(BOOK_ID, STUDENT_ID);
+        } catch (LegacyNoNumberException e) {
+            execution = new AppointExecution(BOOK_ID, AppointStateEnum.NO_NUMBER);
+        }
+        return new Result<>(true, execution);
+    }
+
+    @Benchmark
+    public Result<AppointExecution> outcomePath() {
+        return bookService.appoint(BOOK_ID, STUDENT_ID).asResult();
+    }
+
+    // 改动前 BookServiceImpl.appoint 的售罄分支
+    private AppointExecution legacyAppoint(long bookId, long studentId) {
+        try {
+            if (!soldOut.acquire(bookId)) {
+                throw new LegacyNoNumberException("no number");
+            }
+            return null;
+        } catch (LegacyNoNumberException e1) {
+            throw e1;
+        }
+    }
+
+    private static class LegacyNoNumberException extends RuntimeException {
+
+        LegacyNoNumberException(String message) {
+            super(message);
+        }
+
+    }
+
+}
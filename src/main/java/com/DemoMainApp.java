@@ -1,38 +1,18 @@
 package com;
 
+import com.soecode.lyf.server.EmbeddedServer;
 import org.apache.catalina.LifecycleException;
-import org.apache.catalina.WebResourceRoot;
-import org.apache.catalina.core.StandardContext;
-import org.apache.catalina.startup.Tomcat;
-import org.apache.catalina.webresources.DirResourceSet;
-import org.apache.catalina.webresources.StandardRoot;
 
 import javax.servlet.ServletException;
-import java.io.File;
+import java.io.IOException;
 
 
 public class DemoMainApp {
 
-    public static void main(String[] args) throws ServletException, LifecycleException {
-
-        String webappDirLoc = "src/main/webapp/";
-        File webInfClasses = new File("target/classes");
-
-        Tomcat tomcat = new Tomcat();
-        tomcat.setPort(8999);
-        StandardContext ctx = (StandardContext) tomcat.addWebapp("/", new File(webappDirLoc).getAbsolutePath());
-        ctx.setReloadable(false);
-        WebResourceRoot resources = new StandardRoot(ctx);
-        resources.addPreResources(
-                new DirResourceSet(
-                        resources,
-                        "/WEB-INF/classes",
-                        webInfClasses.getAbsolutePath(),
-                        "/")
-        );
-
-        tomcat.start();
-        tomcat.getServer().await();
+    public static void main(String[] args) throws ServletException, LifecycleException, IOException {
+
+        // 端口、线程池、压缩等见 server.properties
+        EmbeddedServer.main(args);
 
     }
 
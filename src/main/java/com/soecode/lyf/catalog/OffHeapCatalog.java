@@ -0,0 +1,439 @@
+package com.soecode.lyf.catalog;
+
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.event.BookChangeListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 放在内存映射文件里的图书目录，详情与列表直接从这里读，图书数量对堆大小和 GC 几乎没有影响
+ * <p>
+ * 文件前半段是定长 24 字节的记录：bookId、库存、标志位、书名在名字区的偏移和长度，按 bookId 升序追加，
+ * 查找用二分；后半段是追加写的名字区，存 UTF-8 书名，改名时追加新名字，旧的在下次重启时回收。
+ * 文件只是映射的载体，每次启动截断后从 book 表重新加载。
+ * <p>
+ * 写入只有一个线程持有 writeLock；库存和书名位置由分段锁保护，读一条记录只锁它所在的段。
+ * 比已有最大 bookId 小的新书追加在末尾，记在堆上的 overflow 里，列表中排在有序部分之后。
+ * <p>
+ * 定时全量刷新时库存仍在按事件增减，批次查出的库存可能已包含也可能未包含某次增减，
+ * 所以刷新期间收到过库存事件的图书不用查出的库存覆盖；其余图书只记下与目录不一致的，刷新完再统一修正。
+ * 刷新中没有出现的图书标为已删除。
+ */
+public class OffHeapCatalog implements BookChangeListener {
+
+    private static final int RECORD_SIZE = 24;
+
+    private static final int NUMBER_POS = 8;
+
+    private static final int FLAGS_POS = 12;
+
+    private static final int NAME_OFFSET_POS = 16;
+
+    private static final int NAME_LENGTH_POS = 20;
+
+    private static final int FLAG_REMOVED = 1;
+
+    // 本次刷新中出现过
+    private static final int FLAG_SEEN = 2;
+
+    // 书名为null
+    private static final int NULL_NAME = -1;
+
+    private static final int STRIPES = 64;
+
+    private final MappedByteBuffer records;
+
+    private final MappedByteBuffer names;
+
+    private final int maxBooks;
+
+    private final int namesCapacity;
+
+    private final Object writeLock = new Object();
+
+    private final Object[] stripes = new Object[STRIPES];
+
+    // 已发布的记录数，读线程只看这之前的记录
+    private volatile int count;
+
+    // 前 sortedCount 条按 bookId 升序，可二分
+    private volatile int sortedCount;
+
+    private int namesPosition;
+
+    private int removed;
+
+    private final Map<Long, Integer> overflow = new ConcurrentHashMap<>();
+
+    // 刷新期间收到过库存事件的图书，不刷新时为null
+    private volatile Set<Long> touched;
+
+    // 刷新查出的库存与目录不一致的图书，刷新完修正
+    private final Map<Long, Integer> corrections = new HashMap<>();
+
+    private volatile long lastRefreshCorrected;
+
+    private volatile long lastRefreshRemoved;
+
+    private OffHeapCatalog() {
+        this.records = null;
+        this.names = null;
+        this.maxBooks = 0;
+        this.namesCapacity = 0;
+    }
+
+    /**
+     * @param maxBooks   记录区能放的图书数，加载时放不下直接失败
+     * @param namesBytes 名字区大小
+     */
+    public OffHeapCatalog(File file, int maxBooks, long namesBytes) throws IOException {
+        long recordsBytes = (long) maxBooks * RECORD_SIZE;
+        if (maxBooks <= 0 || recordsBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxBooks out of range: " + maxBooks);
+        }
+        if (namesBytes <= 0 || namesBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("namesBytes out of range: " + namesBytes);
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("cannot create catalog dir " + parent);
+        }
+        this.maxBooks = maxBooks;
+        this.namesCapacity = (int) namesBytes;
+        // 映射建立后关闭文件句柄不影响映射区
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.setLength(recordsBytes + namesBytes);
+            FileChannel channel = raf.getChannel();
+            this.records = channel.map(FileChannel.MapMode.READ_WRITE, 0, recordsBytes);
+            this.names = channel.map(FileChannel.MapMode.READ_WRITE, recordsBytes, namesBytes);
+        }
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * 未开启时详情与列表照常查库
+     */
+    public static OffHeapCatalog disabled() {
+        return new OffHeapCatalog();
+    }
+
+    public boolean isEnabled() {
+        return records != null;
+    }
+
+    /**
+     * 全量刷新，同一时间只有一次
+     *
+     * @param source 把全部图书按 bookId 分批交给传入的 consumer，中途抛出异常时不标记删除、不修正库存
+     */
+    public synchronized void refresh(Consumer<Consumer<List<Book>>> source) {
+        if (records == null) {
+            return;
+        }
+        beginRefresh();
+        boolean complete = false;
+        try {
+            source.accept(this::loadBatch);
+            complete = true;
+        } finally {
+            endRefresh(complete);
+        }
+    }
+
+    private void beginRefresh() {
+        touched = ConcurrentHashMap.newKeySet();
+        corrections.clear();
+        synchronized (writeLock) {
+            int end = count;
+            for (int ordinal = 0; ordinal < end; ordinal++) {
+                int pos = ordinal * RECORD_SIZE + FLAGS_POS;
+                synchronized (stripe(ordinal)) {
+                    records.putInt(pos, records.getInt(pos) & ~FLAG_SEEN);
+                }
+            }
+        }
+    }
+
+    /**
+     * 新书追加；已有的覆盖书名，库存不一致时记下待修正
+     */
+    private void loadBatch(List<Book> books) {
+        synchronized (writeLock) {
+            for (Book book : books) {
+                int ordinal = find(book.getBookId());
+                if (ordinal < 0) {
+                    append(book);
+                    continue;
+                }
+                updateName(ordinal, book);
+                int pos = ordinal * RECORD_SIZE;
+                synchronized (stripe(ordinal)) {
+                    int flags = records.getInt(pos + FLAGS_POS);
+                    if ((flags & FLAG_REMOVED) != 0) {
+                        removed--;
+                    }
+                    records.putInt(pos + FLAGS_POS, FLAG_SEEN);
+                    if (records.getInt(pos + NUMBER_POS) != book.getNumber()) {
+                        corrections.put(book.getBookId(), book.getNumber());
+                    }
+                }
+            }
+        }
+    }
+
+    private void endRefresh(boolean complete) {
+        Set<Long> changed = touched;
+        try {
+            if (!complete) {
+                return;
+            }
+            long corrected = 0;
+            long missing = 0;
+            synchronized (writeLock) {
+                for (Map.Entry<Long, Integer> entry : corrections.entrySet()) {
+                    int ordinal = find(entry.getKey());
+                    // 与 stockChanged 在同一把锁下判断，变动要么已记进 changed，要么在修正之后才加上
+                    synchronized (stripe(ordinal)) {
+                        if (changed.contains(entry.getKey())) {
+                            continue;
+                        }
+                        records.putInt(ordinal * RECORD_SIZE + NUMBER_POS, entry.getValue());
+                    }
+                    corrected++;
+                }
+                int end = count;
+                for (int ordinal = 0; ordinal < end; ordinal++) {
+                    int pos = ordinal * RECORD_SIZE + FLAGS_POS;
+                    synchronized (stripe(ordinal)) {
+                        int flags = records.getInt(pos);
+                        if ((flags & (FLAG_SEEN | FLAG_REMOVED)) == 0) {
+                            records.putInt(pos, flags | FLAG_REMOVED);
+                            removed++;
+                            missing++;
+                        }
+                    }
+                }
+            }
+            lastRefreshCorrected = corrected;
+            lastRefreshRemoved = missing;
+        } finally {
+            corrections.clear();
+            touched = null;
+        }
+    }
+
+    private void append(Book book) {
+        int ordinal = count;
+        if (ordinal == maxBooks) {
+            throw new IllegalStateException("catalog full, raise catalog.maxBooks: " + maxBooks);
+        }
+        byte[] name = encode(book.getName());
+        int nameOffset = writeName(name);
+        int pos = ordinal * RECORD_SIZE;
+        records.putLong(pos, book.getBookId());
+        records.putInt(pos + NUMBER_POS, book.getNumber());
+        records.putInt(pos + FLAGS_POS, FLAG_SEEN);
+        records.putInt(pos + NAME_OFFSET_POS, nameOffset);
+        records.putInt(pos + NAME_LENGTH_POS, name == null ? NULL_NAME : name.length);
+        // 先写记录再发布计数，读线程看到计数时记录已完整
+        if (ordinal == sortedCount && (ordinal == 0 || records.getLong(pos - RECORD_SIZE) < book.getBookId())) {
+            sortedCount = ordinal + 1;
+        } else {
+            overflow.put(book.getBookId(), ordinal);
+        }
+        count = ordinal + 1;
+    }
+
+    private void updateName(int ordinal, Book book) {
+        int pos = ordinal * RECORD_SIZE;
+        byte[] name = encode(book.getName());
+        int nameOffset = records.getInt(pos + NAME_OFFSET_POS);
+        int nameLength = records.getInt(pos + NAME_LENGTH_POS);
+        if (sameName(nameOffset, nameLength, name)) {
+            return;
+        }
+        nameOffset = writeName(name);
+        synchronized (stripe(ordinal)) {
+            records.putInt(pos + NAME_OFFSET_POS, nameOffset);
+            records.putInt(pos + NAME_LENGTH_POS, name == null ? NULL_NAME : name.length);
+        }
+    }
+
+    private int writeName(byte[] name) {
+        int offset = namesPosition;
+        if (name == null) {
+            return offset;
+        }
+        if (name.length > namesCapacity - offset) {
+            throw new IllegalStateException("catalog names full, raise catalog.namesMb");
+        }
+        for (int i = 0; i < name.length; i++) {
+            names.put(offset + i, name[i]);
+        }
+        namesPosition = offset + name.length;
+        return offset;
+    }
+
+    private boolean sameName(int offset, int length, byte[] name) {
+        if (name == null || length == NULL_NAME) {
+            return name == null && length == NULL_NAME;
+        }
+        if (name.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (names.get(offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] encode(String name) {
+        return name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String readName(int offset, int length) {
+        if (length == NULL_NAME) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = names.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int find(long bookId) {
+        int low = 0;
+        int high = sortedCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long id = records.getLong(mid * RECORD_SIZE);
+            if (id < bookId) {
+                low = mid + 1;
+            } else if (id > bookId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        if (overflow.isEmpty()) {
+            return -1;
+        }
+        Integer ordinal = overflow.get(bookId);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    private Object stripe(int ordinal) {
+        return stripes[ordinal & (STRIPES - 1)];
+    }
+
+    /**
+     * @return 不在目录中或已删除时返回null
+     */
+    public Book get(long bookId) {
+        if (records == null) {
+            return null;
+        }
+        int ordinal = find(bookId);
+        return ordinal < 0 ? null : read(ordinal);
+    }
+
+    private Book read(int ordinal) {
+        int pos = ordinal * RECORD_SIZE;
+        int number;
+        int nameOffset;
+        int nameLength;
+        synchronized (stripe(ordinal)) {
+            if ((records.getInt(pos + FLAGS_POS) & FLAG_REMOVED) != 0) {
+                return null;
+            }
+            number = records.getInt(pos + NUMBER_POS);
+            nameOffset = records.getInt(pos + NAME_OFFSET_POS);
+            nameLength = records.getInt(pos + NAME_LENGTH_POS);
+        }
+        // 名字区只追加，拿到偏移后读字节不用加锁
+        return new Book(records.getLong(pos), readName(nameOffset, nameLength), number);
+    }
+
+    /**
+     * 按 bookId 升序分页，跳过已删除的图书，与 BookDao.queryAll 一致
+     */
+    public List<Book> list(int offset, int limit) {
+        List<Book> books = new ArrayList<>(Math.min(limit, 1024));
+        if (records == null) {
+            return books;
+        }
+        int skipped = 0;
+        int end = count;
+        for (int ordinal = 0; ordinal < end && books.size() < limit; ordinal++) {
+            Book book = read(ordinal);
+            if (book == null) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            books.add(book);
+        }
+        return books;
+    }
+
+    public int size() {
+        return count - removed;
+    }
+
+    @Override
+    public void stockChanged(long bookId, int delta) {
+        if (records == null) {
+            return;
+        }
+        int ordinal = find(bookId);
+        if (ordinal < 0) {
+            Set<Long> refreshing = touched;
+            if (refreshing != null) {
+                refreshing.add(bookId);
+            }
+            return;
+        }
+        int pos = ordinal * RECORD_SIZE + NUMBER_POS;
+        synchronized (stripe(ordinal)) {
+            Set<Long> refreshing = touched;
+            if (refreshing != null) {
+                refreshing.add(bookId);
+            }
+            records.putInt(pos, records.getInt(pos) + delta);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("books", size());
+        stats.put("capacity", maxBooks);
+        stats.put("namesUsed", namesPosition);
+        stats.put("namesCapacity", namesCapacity);
+        stats.put("unsorted", overflow.size());
+        stats.put("lastRefreshCorrected", lastRefreshCorrected);
+        stats.put("lastRefreshRemoved", lastRefreshRemoved);
+        return stats;
+    }
+
+}
@@ -8,12 +8,26 @@ import com.github.datalking.annotation.PropertySource;
 import com.github.datalking.annotation.Value;
 import com.github.datalking.mapper.MapperFactoryBean;
 import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.soecode.lyf.context.AppComponents;
 import com.soecode.lyf.dao.AppointmentDao;
 import com.soecode.lyf.dao.BookDao;
+import com.soecode.lyf.datasource.ReadOnlyRoutingInterceptor;
+import com.soecode.lyf.datasource.ReadYourWritesPolicy;
+import com.soecode.lyf.datasource.RoutingDataSource;
+import com.soecode.lyf.mapper.RowTypeHandlers;
+import com.soecode.lyf.migration.SchemaMigrator;
+import com.soecode.lyf.resilience.CircuitBreaker;
+import com.soecode.lyf.resilience.DaoGuard;
+import com.soecode.lyf.resilience.ResilienceInterceptor;
+import com.soecode.lyf.trace.TraceInterceptor;
 import org.apache.ibatis.session.SqlSessionFactory;
 
 import javax.sql.DataSource;
 import java.beans.PropertyVetoException;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Properties;
 
 @Configuration
@@ -21,6 +35,33 @@ import java.util.Properties;
 @MapperScan("com.soecode.lyf.dao")
 public class DaoConfig {
 
+    private static final String EMBEDDED_DRIVER = "org.h2.Driver";
+
+    // mysql 或 embedded（H2 内嵌库，不需要 MySQL）
+    @Value("${jdbc.profile}")
+    private String profile;
+
+    @Value("${jdbc.embedded.url}")
+    private String embeddedUrl;
+
+    @Value("${jdbc.embedded.username}")
+    private String embeddedUsername;
+
+    @Value("${jdbc.embedded.password}")
+    private String embeddedPassword;
+
+    // 内嵌库 book 表为空时写入示例图书
+    @Value("${jdbc.embedded.sampleData}")
+    private String embeddedSampleData;
+
+    // 启动时执行 db/migration 下的建表迁移
+    @Value("${jdbc.migration.enabled}")
+    private String migrationEnabled;
+
+    // 已有表结构的旧库对应的版本，为空表示没有基线
+    @Value("${jdbc.migration.baseline}")
+    private String migrationBaseline;
+
     @Value("${jdbc.driver}")
     private String driver;
 
@@ -33,17 +74,116 @@ public class DaoConfig {
     @Value("${jdbc.password}")
     private String password;
 
+    // 从库，url为空时不做读写分离
+    @Value("${jdbc.replica.url}")
+    private String replicaUrl;
+
+    @Value("${jdbc.replica.username}")
+    private String replicaUsername;
+
+    @Value("${jdbc.replica.password}")
+    private String replicaPassword;
+
+    // 从库不可用时是否回退到主库
+    @Value("${jdbc.replica.fallback}")
+    private String replicaFallback;
+
+    // 回退后多久再尝试从库
+    @Value("${jdbc.replica.retryMillis}")
+    private String replicaRetryMillis;
+
+    @Value("${jdbc.replica.stickySeconds}")
+    private String replicaStickySeconds;
+
+    // 单次数据库调用的时限，也用作连接池 checkout 超时和慢调用阈值
+    @Value("${jdbc.resilience.callTimeoutMillis}")
+    private String callTimeoutMillis;
+
+    @Value("${jdbc.resilience.bulkheadWaitMillis}")
+    private String bulkheadWaitMillis;
+
+    @Value("${jdbc.resilience.catalog.maxConcurrent}")
+    private String catalogMaxConcurrent;
+
+    @Value("${jdbc.resilience.appoint.maxConcurrent}")
+    private String appointMaxConcurrent;
+
+    @Value("${jdbc.resilience.breaker.windowSeconds}")
+    private String breakerWindowSeconds;
+
+    @Value("${jdbc.resilience.breaker.minCalls}")
+    private String breakerMinCalls;
+
+    @Value("${jdbc.resilience.breaker.failureRatePercent}")
+    private String breakerFailureRatePercent;
+
+    @Value("${jdbc.resilience.breaker.slowRatePercent}")
+    private String breakerSlowRatePercent;
+
+    @Value("${jdbc.resilience.breaker.openSeconds}")
+    private String breakerOpenSeconds;
+
+    @Value("${jdbc.resilience.breaker.halfOpenCalls}")
+    private String breakerHalfOpenCalls;
+
+    /**
+     * 先在主库上执行建表迁移，再交给 MyBatis，保证其余 Bean 启动时表结构已就绪
+     */
+    @Bean
+    public DataSource dataSource() throws PropertyVetoException, SQLException, IOException {
+        boolean embedded = "embedded".equalsIgnoreCase(Settings.get("jdbc.profile", profile).trim());
+        ComboPooledDataSource primary = embedded
+                ? pooledDataSource(EMBEDDED_DRIVER, Settings.get("jdbc.embedded.url", embeddedUrl),
+                Settings.get("jdbc.embedded.username", embeddedUsername), Settings.get("jdbc.embedded.password", embeddedPassword))
+                : pooledDataSource(Settings.get("jdbc.driver", driver), Settings.get("jdbc.url", url),
+                Settings.get("jdbc.username", username), Settings.get("jdbc.password", password));
+        // 最先登记，最后关闭，归还库存租约等收尾动作仍可用
+        AppComponents.application().onShutdown("primary pool", primary::close);
+
+        if (Boolean.parseBoolean(Settings.get("jdbc.migration.enabled", migrationEnabled).trim())) {
+            String baseline = Settings.get("jdbc.migration.baseline", migrationBaseline);
+            SchemaMigrator migrator = new SchemaMigrator(primary, "db/migration",
+                    baseline == null || baseline.trim().isEmpty() ? 0 : Integer.parseInt(baseline.trim()));
+            migrator.migrate();
+            if (embedded && Boolean.parseBoolean(Settings.get("jdbc.embedded.sampleData", embeddedSampleData).trim())) {
+                migrator.runIfEmpty("book", "db/sample/books.sql");
+            }
+        }
+
+        // 内嵌库只在本进程内，没有从库
+        String replica = embedded ? null : Settings.get("jdbc.replica.url", replicaUrl);
+        if (replica == null || replica.trim().isEmpty()) {
+            return new RoutingDataSource(primary, null, true, 0);
+        }
+        ComboPooledDataSource replicaPool = pooledDataSource(Settings.get("jdbc.driver", driver), replica,
+                replicaUsername, replicaPassword);
+        AppComponents.application().onShutdown("replica pool", replicaPool::close);
+        return new RoutingDataSource(primary, replicaPool,
+                Boolean.parseBoolean(replicaFallback.trim()), Long.parseLong(replicaRetryMillis.trim()));
+    }
+
+    /**
+     * 发布给 ReadYourWritesFilter
+     */
     @Bean
-    public DataSource dataSource() throws PropertyVetoException {
+    public ReadYourWritesPolicy readYourWritesPolicy() {
+        ReadYourWritesPolicy policy = new ReadYourWritesPolicy(
+                Integer.parseInt(Settings.get("jdbc.replica.stickySeconds", replicaStickySeconds).trim()));
+        AppComponents.application().publish(ReadYourWritesPolicy.class, policy);
+        return policy;
+    }
+
+    private ComboPooledDataSource pooledDataSource(String driverClass, String jdbcUrl, String user, String pwd)
+            throws PropertyVetoException {
         ComboPooledDataSource dataSource = new ComboPooledDataSource();
-        dataSource.setDriverClass(driver);
-        dataSource.setJdbcUrl(url);
-        dataSource.setUser(username);
-        dataSource.setPassword(password);
+        dataSource.setDriverClass(driverClass);
+        dataSource.setJdbcUrl(jdbcUrl);
+        dataSource.setUser(user);
+        dataSource.setPassword(pwd);
         dataSource.setMaxPoolSize(30);
         dataSource.setMinPoolSize(10);
         dataSource.setAutoCommitOnClose(false);
-        dataSource.setCheckoutTimeout(10000);
+        dataSource.setCheckoutTimeout(Integer.parseInt(callTimeoutMillis.trim()));
         dataSource.setAcquireRetryAttempts(2);
         return dataSource;
     }
@@ -66,6 +206,64 @@ public class DaoConfig {
         return bean;
     }
 
+    /**
+     * 只读的图书查询走从库
+     */
+    @Bean
+    public ReadOnlyRoutingInterceptor readOnlyRoutingInterceptor(SqlSessionFactory factory) {
+        ReadOnlyRoutingInterceptor interceptor = new ReadOnlyRoutingInterceptor(new HashSet<>(Arrays.asList(
+                BookDao.class.getName() + ".queryById",
+                BookDao.class.getName() + ".queryAll",
+                BookDao.class.getName() + ".queryByIds",
+                AppointmentDao.class.getName() + ".queryByStudent")));
+        factory.getConfiguration().addInterceptor(interceptor);
+        return interceptor;
+    }
+
+    /**
+     * 图书查询与预约读写分两个舱壁，各自熔断；语句超时取单次调用时限
+     */
+    @Bean
+    public ResilienceInterceptor resilienceInterceptor(SqlSessionFactory factory) {
+        long timeout = Long.parseLong(callTimeoutMillis.trim());
+        long wait = Long.parseLong(bulkheadWaitMillis.trim());
+        ResilienceInterceptor interceptor = new ResilienceInterceptor(BookDao.class.getName(),
+                new DaoGuard("catalog", Integer.parseInt(catalogMaxConcurrent.trim()), wait, circuitBreaker(timeout)),
+                new DaoGuard("appoint", Integer.parseInt(appointMaxConcurrent.trim()), wait, circuitBreaker(timeout)));
+        factory.getConfiguration().setDefaultStatementTimeout((int) Math.max((timeout + 999) / 1000, 1));
+        factory.getConfiguration().addInterceptor(interceptor);
+        return interceptor;
+    }
+
+    /**
+     * 语句跟踪，依赖另外两个插件保证最后注册、处于最外层
+     */
+    @Bean
+    public TraceInterceptor traceInterceptor(SqlSessionFactory factory, ReadOnlyRoutingInterceptor readOnlyRoutingInterceptor,
+                                             ResilienceInterceptor resilienceInterceptor) {
+        TraceInterceptor interceptor = new TraceInterceptor();
+        factory.getConfiguration().addInterceptor(interceptor);
+        return interceptor;
+    }
+
+    private CircuitBreaker circuitBreaker(long slowCallMillis) {
+        return new CircuitBreaker(Long.parseLong(breakerWindowSeconds.trim()) * 1000L,
+                Integer.parseInt(breakerMinCalls.trim()),
+                Integer.parseInt(breakerFailureRatePercent.trim()),
+                Integer.parseInt(breakerSlowRatePercent.trim()),
+                slowCallMillis,
+                Long.parseLong(breakerOpenSeconds.trim()) * 1000L,
+                Integer.parseInt(breakerHalfOpenCalls.trim()));
+    }
+
+    /**
+     * 实体结果用生成的行映射器按列标签读取并构造，不走反射自动映射
+     */
+    @Bean
+    public RowTypeHandlers rowTypeHandlers(SqlSessionFactory factory) {
+        return RowTypeHandlers.registerAll(factory.getConfiguration().getTypeHandlerRegistry());
+    }
+
     @Bean
     public MapperFactoryBean<BookDao> bookDaoMapper(SqlSessionFactory factory) {
         MapperFactoryBean<BookDao> bean = new MapperFactoryBean<>(BookDao.class);
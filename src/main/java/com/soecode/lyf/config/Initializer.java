@@ -1,9 +1,18 @@
 package com.soecode.lyf.config;
 
 import com.github.datalking.web.support.AbstractAnnotationConfigDispatcherServletInitializer;
+import com.soecode.lyf.context.AppComponents;
+import com.soecode.lyf.context.ShutdownListener;
+import com.soecode.lyf.datasource.ReadYourWritesFilter;
+import com.soecode.lyf.fastpath.FastPathFilter;
+import com.soecode.lyf.sqlbudget.SqlBudgetFilter;
+import com.soecode.lyf.stream.StockStreamServlet;
+import com.soecode.lyf.trace.TraceFilter;
 
+import javax.servlet.FilterRegistration;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRegistration;
 
 public class Initializer extends AbstractAnnotationConfigDispatcherServletInitializer {
 
@@ -26,5 +35,34 @@ public class Initializer extends AbstractAnnotationConfigDispatcherServletInitia
     public void onStartup(ServletContext servletContext) throws ServletException {
 
         super.onStartup(servletContext);
+
+        // 下面的过滤器和 Servlet 在 init() 里从这里取容器内对象
+        servletContext.setAttribute(AppComponents.ATTRIBUTE, AppComponents.application());
+        // WAR 停止或重新部署、内嵌启动停机时都会调用，关闭后台线程、归还库存租约、关闭连接池
+        servletContext.addListener(new ShutdownListener());
+
+        // 最先注册，跟踪覆盖后面的过滤器和 DispatcherServlet
+        FilterRegistration.Dynamic trace = servletContext.addFilter("traceFilter", new TraceFilter());
+        trace.setAsyncSupported(true);
+        trace.addMappingForUrlPatterns(null, false, "/*");
+
+        // 在快速路径之前，命中快速路径的请求同样统计
+        FilterRegistration.Dynamic sqlBudget = servletContext.addFilter("sqlBudgetFilter", new SqlBudgetFilter());
+        sqlBudget.setAsyncSupported(true);
+        sqlBudget.addMappingForUrlPatterns(null, false, "/*");
+
+        FilterRegistration.Dynamic readYourWrites = servletContext.addFilter("readYourWritesFilter", new ReadYourWritesFilter());
+        // 过滤器链上有异步 Servlet，过滤器也须声明支持异步
+        readYourWrites.setAsyncSupported(true);
+        readYourWrites.addMappingForUrlPatterns(null, false, "/*");
+
+        // 放在最后，命中快速路径的请求不再进入 DispatcherServlet
+        FilterRegistration.Dynamic fastPath = servletContext.addFilter("fastPathFilter", new FastPathFilter());
+        fastPath.setAsyncSupported(true);
+        fastPath.addMappingForUrlPatterns(null, false, "/*");
+
+        ServletRegistration.Dynamic stockStream = servletContext.addServlet("stockStream", new StockStreamServlet());
+        stockStream.setAsyncSupported(true);
+        stockStream.addMapping("/book/stream");
     }
 }
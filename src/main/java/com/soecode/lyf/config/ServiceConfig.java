@@ -3,21 +3,264 @@ package com.soecode.lyf.config;
 import com.github.datalking.annotation.Bean;
 import com.github.datalking.annotation.ComponentScan;
 import com.github.datalking.annotation.Configuration;
+import com.github.datalking.annotation.PropertySource;
+import com.github.datalking.annotation.Value;
 import com.github.datalking.jdbc.datasource.DataSourceTransactionManager;
+import com.soecode.lyf.catalog.OffHeapCatalog;
+import com.soecode.lyf.context.AppComponents;
+import com.soecode.lyf.dao.AppointmentDao;
+import com.soecode.lyf.dao.BookDao;
+import com.soecode.lyf.dao.WaitlistDao;
+import com.soecode.lyf.event.BookChangeEvents;
+import com.soecode.lyf.hold.AppointHoldManager;
+import com.soecode.lyf.journal.AppointJournal;
+import com.soecode.lyf.journal.JournalApplier;
+import com.soecode.lyf.journal.JournalAppointer;
+import com.soecode.lyf.search.BookIndexLoader;
+import com.soecode.lyf.search.BookSearchIndex;
+import com.soecode.lyf.stock.DirectStockAllocator;
+import com.soecode.lyf.stock.LeaseStockAllocator;
+import com.soecode.lyf.stock.StockAllocator;
+import com.soecode.lyf.stream.StockBroadcaster;
+import com.soecode.lyf.waitlist.WaitlistManager;
 
 import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
 
 //import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @Configuration
+@PropertySource(value = "classpath:app.properties")
 @ComponentScan(basePackages = {"com.soecode.lyf.service"})
 //@ComponentScan("com.soecode.lyf.service")
 //@EnableTransactionManagement
 public class ServiceConfig {
 
+    @Value("${appoint.mode}")
+    private String appointMode;
+
+    @Value("${appoint.lease.size}")
+    private String leaseSize;
+
+    @Value("${appoint.lease.seconds}")
+    private String leaseSeconds;
+
+    @Value("${appoint.journal.file}")
+    private String journalFile;
+
+    @Value("${appoint.journal.sizeMb}")
+    private String journalSizeMb;
+
+    @Value("${appoint.journal.flushMillis}")
+    private String journalFlushMillis;
+
+    @Value("${appoint.journal.syncTimeoutMillis}")
+    private String journalSyncTimeoutMillis;
+
+    @Value("${appoint.journal.batchSize}")
+    private String journalBatchSize;
+
+    @Value("${appoint.hold.seconds}")
+    private String holdSeconds;
+
+    @Value("${appoint.hold.tickMillis}")
+    private String holdTickMillis;
+
+    @Value("${appoint.hold.wheelSize}")
+    private String holdWheelSize;
+
+    @Value("${appoint.hold.wheelLevels}")
+    private String holdWheelLevels;
+
+    @Value("${appoint.hold.releaseThreads}")
+    private String holdReleaseThreads;
+
+    @Value("${appoint.hold.rebuildBatch}")
+    private String holdRebuildBatch;
+
+    @Value("${waitlist.enabled}")
+    private String waitlistEnabled;
+
+    @Value("${waitlist.maxPerBook}")
+    private String waitlistMaxPerBook;
+
+    @Value("${waitlist.batchSize}")
+    private String waitlistBatchSize;
+
+    @Value("${waitlist.promoteMillis}")
+    private String waitlistPromoteMillis;
+
+    @Value("${waitlist.sweepSeconds}")
+    private String waitlistSweepSeconds;
+
+    @Value("${waitlist.recoverBatch}")
+    private String waitlistRecoverBatch;
+
+    @Value("${search.loadThreads}")
+    private String searchLoadThreads;
+
+    @Value("${search.refreshSeconds}")
+    private String searchRefreshSeconds;
+
+    @Value("${catalog.enabled}")
+    private String catalogEnabled;
+
+    @Value("${catalog.file}")
+    private String catalogFile;
+
+    @Value("${catalog.maxBooks}")
+    private String catalogMaxBooks;
+
+    @Value("${catalog.namesMb}")
+    private String catalogNamesMb;
+
+    @Value("${catalog.loadThreads}")
+    private String catalogLoadThreads;
+
+    @Value("${catalog.batchIds}")
+    private String catalogBatchIds;
+
+    @Value("${catalog.refreshSeconds}")
+    private String catalogRefreshSeconds;
+
+    @Value("${stream.coalesceMillis}")
+    private String streamCoalesceMillis;
+
+    @Value("${stream.clientBuffer}")
+    private String streamClientBuffer;
+
+    @Value("${stream.maxClients}")
+    private String streamMaxClients;
+
+    @Value("${stream.heartbeatSeconds}")
+    private String streamHeartbeatSeconds;
+
     @Bean
     public DataSourceTransactionManager transactionManager(DataSource dataSource) {
         return new DataSourceTransactionManager(dataSource);
     }
 
+    @Bean
+    public StockAllocator stockAllocator(BookDao bookDao) {
+        String mode = appointMode.trim();
+        if ("lease".equals(mode) || "journal".equals(mode)) {
+            LeaseStockAllocator allocator = new LeaseStockAllocator(bookDao,
+                    Integer.parseInt(leaseSize.trim()), Long.parseLong(leaseSeconds.trim()) * 1000L);
+            // 应用停止时把没发完的租约还给数据库
+            AppComponents.application().onShutdown("stock leases", allocator::close);
+            return allocator;
+        }
+        return new DirectStockAllocator(bookDao);
+    }
+
+    @Bean
+    public JournalAppointer journalAppointer(AppointmentDao appointmentDao, StockAllocator stockAllocator,
+                                             BookChangeEvents bookChangeEvents) throws IOException {
+        if (!"journal".equals(appointMode.trim())) {
+            return JournalAppointer.disabled();
+        }
+        AppointJournal journal = new AppointJournal(new File(journalFile.trim()),
+                Long.parseLong(journalSizeMb.trim()) * 1024 * 1024, Long.parseLong(journalFlushMillis.trim()));
+        // 启动即开始回放未写库的记录
+        JournalApplier applier = new JournalApplier(journal, appointmentDao, stockAllocator, bookChangeEvents,
+                Integer.parseInt(journalBatchSize.trim()));
+        applier.start();
+        JournalAppointer appointer = new JournalAppointer(journal, applier, appointmentDao, stockAllocator,
+                bookChangeEvents, Long.parseLong(journalSyncTimeoutMillis.trim()));
+        AppComponents.application().onShutdown("appoint journal", appointer::close);
+        return appointer;
+    }
+
+    @Bean
+    public AppointHoldManager appointHoldManager(AppointmentDao appointmentDao, StockAllocator stockAllocator,
+                                                 BookChangeEvents bookChangeEvents) {
+        long seconds = Long.parseLong(holdSeconds.trim());
+        if (seconds <= 0) {
+            return AppointHoldManager.disabled();
+        }
+        if ("journal".equals(appointMode.trim())) {
+            // 日志模式异步写库，预约返回时还没有行可供保留
+            throw new IllegalStateException("appoint.hold.seconds requires appoint.mode direct or lease");
+        }
+        AppointHoldManager manager = new AppointHoldManager(appointmentDao, stockAllocator, bookChangeEvents,
+                seconds * 1000L, Long.parseLong(holdTickMillis.trim()), Integer.parseInt(holdWheelSize.trim()),
+                Integer.parseInt(holdWheelLevels.trim()), Integer.parseInt(holdReleaseThreads.trim()));
+        manager.rebuild(Integer.parseInt(holdRebuildBatch.trim()));
+        AppComponents.application().onShutdown("appoint holds", manager::close);
+        return manager;
+    }
+
+    @Bean
+    public BookChangeEvents bookChangeEvents() {
+        return new BookChangeEvents();
+    }
+
+    @Bean
+    public BookSearchIndex bookSearchIndex(BookDao bookDao, StockAllocator stockAllocator, BookChangeEvents bookChangeEvents) {
+        BookSearchIndex index = new BookSearchIndex();
+        // 先挂监听再加载，加载期间的库存变化由下一次刷新修正
+        bookChangeEvents.addListener(index);
+        BookIndexLoader loader = new BookIndexLoader(bookDao, stockAllocator, Integer.parseInt(searchLoadThreads.trim()));
+        loader.load(index);
+        loader.scheduleRefresh(index, Long.parseLong(searchRefreshSeconds.trim()));
+        AppComponents.application().onShutdown("book index refresh", loader::close);
+        return index;
+    }
+
+    @Bean
+    public OffHeapCatalog offHeapCatalog(BookDao bookDao, StockAllocator stockAllocator,
+                                         BookChangeEvents bookChangeEvents) throws IOException {
+        if (!Boolean.parseBoolean(catalogEnabled.trim())) {
+            return OffHeapCatalog.disabled();
+        }
+        OffHeapCatalog catalog = new OffHeapCatalog(new File(catalogFile.trim()),
+                Integer.parseInt(catalogMaxBooks.trim()), Long.parseLong(catalogNamesMb.trim()) * 1024 * 1024);
+        // 与搜索索引一样先挂监听再加载
+        bookChangeEvents.addListener(catalog);
+        BookIndexLoader loader = new BookIndexLoader(bookDao, stockAllocator, Integer.parseInt(catalogLoadThreads.trim()));
+        long batchIds = Long.parseLong(catalogBatchIds.trim());
+        Runnable reload = () -> catalog.refresh(batches -> loader.forEachBatch(batchIds, batches));
+        reload.run();
+        loader.scheduleRefresh("book-catalog-refresh", reload, Long.parseLong(catalogRefreshSeconds.trim()));
+        AppComponents.application().onShutdown("book catalog refresh", loader::close);
+        return catalog;
+    }
+
+    @Bean
+    public StockBroadcaster stockBroadcaster(BookDao bookDao, StockAllocator stockAllocator,
+                                             BookChangeEvents bookChangeEvents) {
+        StockBroadcaster broadcaster = new StockBroadcaster(bookDao, stockAllocator,
+                Long.parseLong(streamCoalesceMillis.trim()),
+                Integer.parseInt(streamClientBuffer.trim()),
+                Integer.parseInt(streamMaxClients.trim()),
+                Long.parseLong(streamHeartbeatSeconds.trim()) * 1000L);
+        bookChangeEvents.addListener(broadcaster);
+        AppComponents.application().publish(StockBroadcaster.class, broadcaster);
+        AppComponents.application().onShutdown("stock broadcaster", broadcaster::close);
+        return broadcaster;
+    }
+
+    @Bean
+    public WaitlistManager waitlistManager(WaitlistDao waitlistDao, AppointmentDao appointmentDao, BookDao bookDao,
+                                           StockAllocator stockAllocator, AppointHoldManager appointHoldManager,
+                                           BookChangeEvents bookChangeEvents, StockBroadcaster stockBroadcaster) {
+        if (!Boolean.parseBoolean(waitlistEnabled.trim())) {
+            return WaitlistManager.disabled();
+        }
+        if ("journal".equals(appointMode.trim())) {
+            // 候补直接写预约表，绕过日志的去重
+            throw new IllegalStateException("waitlist.enabled requires appoint.mode direct or lease");
+        }
+        WaitlistManager manager = new WaitlistManager(waitlistDao, appointmentDao, bookDao, stockAllocator,
+                appointHoldManager, bookChangeEvents, Integer.parseInt(waitlistMaxPerBook.trim()),
+                Integer.parseInt(waitlistBatchSize.trim()));
+        bookChangeEvents.addListener(manager);
+        manager.addListener(stockBroadcaster);
+        manager.start(Integer.parseInt(waitlistRecoverBatch.trim()), Long.parseLong(waitlistPromoteMillis.trim()),
+                Long.parseLong(waitlistSweepSeconds.trim()));
+        AppComponents.application().onShutdown("waitlist", manager::close);
+        return manager;
+    }
+
 }
@@ -0,0 +1,19 @@
+package com.soecode.lyf.config;
+
+/**
+ * 配置项取值，同名系统属性优先于 properties 文件，如压测时 -Djdbc.url= 指向内嵌数据库、-Dsqlbudget.enabled=true
+ */
+final class Settings {
+
+    private Settings() {
+    }
+
+    /**
+     * @param value @Value 注入的值
+     */
+    static String get(String key, String value) {
+        String override = System.getProperty(key);
+        return override != null ? override : value;
+    }
+
+}
@@ -3,12 +3,30 @@ package com.soecode.lyf.config;
 import com.github.datalking.annotation.Bean;
 import com.github.datalking.annotation.ComponentScan;
 import com.github.datalking.annotation.Configuration;
+import com.github.datalking.annotation.Value;
 import com.github.datalking.annotation.web.EnableWebMvc;
 import com.github.datalking.web.config.DefaultServletHandlerConfigurer;
 import com.github.datalking.web.config.WebMvcConfigurerAdapter;
 import com.github.datalking.web.mvc.InternalResourceViewResolver;
 import com.github.datalking.web.mvc.JstlView;
 import com.github.datalking.web.servlet.ViewResolver;
+import com.soecode.lyf.context.AppComponents;
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.dto.Result;
+import com.soecode.lyf.fastpath.FastRouteTable;
+import com.soecode.lyf.hotkey.HotBookTracker;
+import com.soecode.lyf.hotkey.HotKeySketch;
+import com.soecode.lyf.idempotent.IdempotencyStore;
+import com.soecode.lyf.ratelimit.AppointRateLimiter;
+import com.soecode.lyf.ratelimit.TokenBucketLimiter;
+import com.soecode.lyf.sqlbudget.SqlBudget;
+import com.soecode.lyf.sqlbudget.SqlBudgetMonitor;
+import com.soecode.lyf.trace.TraceSampler;
+import com.soecode.lyf.web.BookController;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 @Configuration
 @EnableWebMvc
@@ -16,6 +34,73 @@ import com.github.datalking.web.servlet.ViewResolver;
 //@ComponentScan("com.soecode.lyf.web")
 public class WebConfig extends WebMvcConfigurerAdapter {
 
+    @Value("${appoint.idempotency.capacity}")
+    private String idempotencyCapacity;
+
+    @Value("${appoint.idempotency.ttlSeconds}")
+    private String idempotencyTtlSeconds;
+
+    @Value("${appoint.idempotency.waitMillis}")
+    private String idempotencyWaitMillis;
+
+    @Value("${appoint.ratelimit.student.permitsPerSecond}")
+    private String studentPermitsPerSecond;
+
+    @Value("${appoint.ratelimit.student.burst}")
+    private String studentBurst;
+
+    @Value("${appoint.ratelimit.ip.permitsPerSecond}")
+    private String ipPermitsPerSecond;
+
+    @Value("${appoint.ratelimit.ip.burst}")
+    private String ipBurst;
+
+    @Value("${appoint.ratelimit.maxKeys}")
+    private String rateLimitMaxKeys;
+
+    @Value("${appoint.ratelimit.trustForwardedFor}")
+    private String trustForwardedFor;
+
+    @Value("${hotkey.width}")
+    private String hotKeyWidth;
+
+    @Value("${hotkey.topK}")
+    private String hotKeyTopK;
+
+    @Value("${hotkey.halfLifeSeconds}")
+    private String hotKeyHalfLifeSeconds;
+
+    @Value("${hotkey.appoint.hotThreshold}")
+    private String appointHotThreshold;
+
+    @Value("${hotkey.detail.hotThreshold}")
+    private String detailHotThreshold;
+
+    // 走快速路径的接口，逗号分隔，留空则全部经过 DispatcherServlet
+    @Value("${fastpath.routes}")
+    private String fastPathRoutes;
+
+    @Value("${trace.sampleRate}")
+    private String traceSampleRate;
+
+    @Value("${trace.bufferSize}")
+    private String traceBufferSize;
+
+    @Value("${trace.maxSpans}")
+    private String traceMaxSpans;
+
+    @Value("${trace.forceHeader}")
+    private String traceForceHeader;
+
+    @Value("${sqlbudget.enabled}")
+    private String sqlBudgetEnabled;
+
+    @Value("${sqlbudget.repeatThreshold}")
+    private String sqlBudgetRepeatThreshold;
+
+    @Value("${sqlbudget.budgets}")
+    private String sqlBudgets;
+
     @Override
     public void configureDefaultServletHandling(DefaultServletHandlerConfigurer configurer) {
         configurer.enable();
@@ -30,4 +115,71 @@ public class WebConfig extends WebMvcConfigurerAdapter {
         return viewResolver;
     }
 
+    @Bean
+    public IdempotencyStore<Result<AppointExecution>> appointIdempotencyStore() {
+        return new IdempotencyStore<>(Integer.parseInt(idempotencyCapacity.trim()),
+                Long.parseLong(idempotencyTtlSeconds.trim()) * 1000L, Long.parseLong(idempotencyWaitMillis.trim()));
+    }
+
+    @Bean
+    public AppointRateLimiter appointRateLimiter() {
+        int maxKeys = Integer.parseInt(rateLimitMaxKeys.trim());
+        TokenBucketLimiter studentLimiter = new TokenBucketLimiter(Double.parseDouble(studentPermitsPerSecond.trim()),
+                Integer.parseInt(studentBurst.trim()), maxKeys);
+        TokenBucketLimiter ipLimiter = new TokenBucketLimiter(Double.parseDouble(ipPermitsPerSecond.trim()),
+                Integer.parseInt(ipBurst.trim()), maxKeys);
+        return new AppointRateLimiter(studentLimiter, ipLimiter, Boolean.parseBoolean(trustForwardedFor.trim()));
+    }
+
+    @Bean
+    public HotBookTracker hotBookTracker() {
+        int width = Integer.parseInt(hotKeyWidth.trim());
+        int topK = Integer.parseInt(hotKeyTopK.trim());
+        return new HotBookTracker(
+                new HotKeySketch("appoint", width, topK, Long.parseLong(appointHotThreshold.trim())),
+                new HotKeySketch("detail", width, topK, Long.parseLong(detailHotThreshold.trim())),
+                Integer.parseInt(hotKeyHalfLifeSeconds.trim()));
+    }
+
+    /**
+     * 配置了 fastpath.routes 时发布给 FastPathFilter
+     */
+    @Bean
+    public FastRouteTable fastRouteTable(BookController bookController) {
+        List<String> patterns = new ArrayList<>();
+        for (String pattern : fastPathRoutes.split(",")) {
+            if (!pattern.trim().isEmpty()) {
+                patterns.add(pattern.trim());
+            }
+        }
+        FastRouteTable table = FastRouteTable.compile(Collections.singletonList(bookController), patterns);
+        if (!patterns.isEmpty()) {
+            AppComponents.application().publish(FastRouteTable.class, table);
+        }
+        return table;
+    }
+
+    @Bean
+    public TraceSampler traceSampler() {
+        TraceSampler sampler = new TraceSampler(Double.parseDouble(Settings.get("trace.sampleRate", traceSampleRate).trim()),
+                Integer.parseInt(Settings.get("trace.bufferSize", traceBufferSize).trim()),
+                Integer.parseInt(Settings.get("trace.maxSpans", traceMaxSpans).trim()),
+                Boolean.parseBoolean(Settings.get("trace.forceHeader", traceForceHeader).trim()));
+        AppComponents.application().publish(TraceSampler.class, sampler);
+        return sampler;
+    }
+
+    /**
+     * 压测时用 -Dsqlbudget.enabled=true 单独开启
+     */
+    @Bean
+    public SqlBudgetMonitor sqlBudgetMonitor() {
+        SqlBudgetMonitor monitor = new SqlBudgetMonitor(
+                Boolean.parseBoolean(Settings.get("sqlbudget.enabled", sqlBudgetEnabled).trim()),
+                Integer.parseInt(Settings.get("sqlbudget.repeatThreshold", sqlBudgetRepeatThreshold).trim()),
+                SqlBudget.parse(Settings.get("sqlbudget.budgets", sqlBudgets).trim()));
+        AppComponents.application().publish(SqlBudgetMonitor.class, monitor);
+        return monitor;
+    }
+
 }
@@ -0,0 +1,97 @@
+package com.soecode.lyf.context;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContext;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 容器外的过滤器、Servlet、停机监听器取用容器内对象的唯一入口
+ * <p>
+ * Initializer 把实例放进 ServletContext 属性，各过滤器和 Servlet 在 init() 里用 from() 取出保存，
+ * 请求时按类型 get()；配置类创建对象后 publish() 进来。容器启动前 get() 返回null，调用方按未开启处理。
+ * <p>
+ * 有后台线程或要归还资源的对象用 onShutdown() 登记，应用停止时由 ShutdownListener 按登记的相反顺序关闭，
+ * 依赖的对象先创建，因此后关闭。
+ */
+public final class AppComponents {
+
+    public static final String ATTRIBUTE = AppComponents.class.getName();
+
+    // 配置类由框架无参构造，拿不到 ServletContext，只经这里发布；取用一律走 from()
+    private static final AppComponents APPLICATION = new AppComponents();
+
+    private static final Logger logger = LoggerFactory.getLogger(AppComponents.class);
+
+    private final Map<Class<?>, Object> components = new ConcurrentHashMap<>();
+
+    private final Map<String, Runnable> shutdownActions = new LinkedHashMap<>();
+
+    AppComponents() {
+    }
+
+    public static AppComponents application() {
+        return APPLICATION;
+    }
+
+    /**
+     * @throws IllegalStateException Initializer 没有放入时
+     */
+    public static AppComponents from(ServletContext servletContext) {
+        Object components = servletContext.getAttribute(ATTRIBUTE);
+        if (!(components instanceof AppComponents)) {
+            throw new IllegalStateException(ATTRIBUTE + " not set, see Initializer");
+        }
+        return (AppComponents) components;
+    }
+
+    public <T> void publish(Class<T> type, T component) {
+        components.put(type, component);
+    }
+
+    public void remove(Class<?> type) {
+        components.remove(type);
+    }
+
+    /**
+     * @return 还未发布时返回null
+     */
+    public <T> T get(Class<T> type) {
+        return type.cast(components.get(type));
+    }
+
+    /**
+     * @param name 用于日志，同名的后登记覆盖先登记
+     */
+    public synchronized void onShutdown(String name, Runnable action) {
+        shutdownActions.remove(name);
+        shutdownActions.put(name, action);
+    }
+
+    /**
+     * 按登记的相反顺序执行关闭动作，一个失败不影响其余的；已执行过的不再执行
+     */
+    public void shutdown() {
+        List<Map.Entry<String, Runnable>> actions;
+        synchronized (this) {
+            actions = new ArrayList<>(shutdownActions.entrySet());
+            shutdownActions.clear();
+        }
+        components.clear();
+        for (int i = actions.size() - 1; i >= 0; i--) {
+            Map.Entry<String, Runnable> action = actions.get(i);
+            try {
+                action.getValue().run();
+                logger.info("closed " + action.getKey());
+            } catch (RuntimeException e) {
+                logger.error("close " + action.getKey() + " failed", e);
+            }
+        }
+    }
+
+}
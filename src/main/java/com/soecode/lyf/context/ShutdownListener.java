@@ -0,0 +1,22 @@
+package com.soecode.lyf.context;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * 应用停止时关闭 AppComponents 里登记的对象，如归还库存租约、关闭连接池
+ * <p>
+ * WAR 部署的停止、重新部署和内嵌启动的停机都经过这里；此时 Servlet 和过滤器已销毁，不再有请求进来。
+ */
+public class ShutdownListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        AppComponents.from(event.getServletContext()).shutdown();
+    }
+
+}
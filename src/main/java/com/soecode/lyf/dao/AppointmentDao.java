@@ -1,12 +1,21 @@
 package com.soecode.lyf.dao;
 
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
 
 import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.entity.AppointmentHold;
 import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 查询 Appointment 的 SELECT 须包含与 Appointment 字段同名的列，按列标签映射，见 AppointmentRowTypeHandler
+ */
 public interface AppointmentDao {
 
     /**
@@ -20,6 +29,20 @@ public interface AppointmentDao {
             " VALUES (#{bookId}, #{studentId})")
     int insertAppointment(@Param("bookId") long bookId, @Param("studentId") long studentId);
 
+    /**
+     * 批量插入预约图书记录，已存在的记录忽略
+     *
+     * @param appointments
+     * @return 实际插入的行数
+     */
+    @Insert("<script>" +
+            "INSERT ignore INTO appointment (bookId, studentId, appointTime) VALUES " +
+            "<foreach collection=\"appointments\" item=\"a\" separator=\",\">" +
+            " (#{a.bookId}, #{a.studentId}, #{a.appointTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertAppointments(@Param("appointments") List<Appointment> appointments);
+
     /**
      * 通过主键查询预约图书记录，并且携带图书实体
      *
@@ -37,4 +60,116 @@ public interface AppointmentDao {
     @ResultType(Appointment.class)
     Appointment queryByKeyWithBook(@Param("bookId") long bookId, @Param("studentId") long studentId);
 
+    /**
+     * 通过主键判断预约记录是否存在，不在只读白名单中，始终查主库
+     *
+     * @param bookId
+     * @param studentId
+     * @return 存在时为1，否则为0
+     */
+    @Select("SELECT count(*) FROM appointment " +
+            " WHERE bookId = #{bookId} " +
+            " AND studentId = #{studentId}")
+    int countByKey(@Param("bookId") long bookId, @Param("studentId") long studentId);
+
+    /**
+     * 按学号游标分页查询预约记录，按预约时间、图书ID倒序
+     * <p>
+     * 依赖索引 idx_student_time_book(studentId, appointTime, bookId)，见 db/migration/V2__appointment_student_index.sql
+     *
+     * @param studentId
+     * @param beforeTime   上一页最后一条的预约时间，首页传null
+     * @param beforeBookId 上一页最后一条的图书ID
+     * @param limit        查询条数
+     * @return
+     */
+    @Select("<script>" +
+            "SELECT bookId, studentId, appointTime " +
+            " FROM appointment " +
+            " WHERE studentId = #{studentId} " +
+            "<if test=\"beforeTime != null\">" +
+            " AND (appointTime &lt; #{beforeTime} " +
+            "  OR (appointTime = #{beforeTime} AND bookId &lt; #{beforeBookId}))" +
+            "</if>" +
+            " ORDER BY appointTime DESC, bookId DESC " +
+            " LIMIT #{limit}" +
+            "</script>")
+    @ResultType(Appointment.class)
+    List<Appointment> queryByStudent(@Param("studentId") long studentId, @Param("beforeTime") Date beforeTime,
+                                     @Param("beforeBookId") long beforeBookId, @Param("limit") int limit);
+
+    /**
+     * 插入待确认的预约保留（status=1），已存在的记录忽略
+     * <p>
+     * 依赖 db/migration/V3__appointment_hold.sql 增加的 status、holdUntil 列
+     *
+     * @param bookId
+     * @param studentId
+     * @param holdUntil 保留截止时间
+     * @return 插入的行数
+     */
+    @Insert("INSERT ignore INTO appointment (bookId, studentId, status, holdUntil) " +
+            " VALUES (#{bookId}, #{studentId}, 1, #{holdUntil})")
+    int insertHold(@Param("bookId") long bookId, @Param("studentId") long studentId,
+                   @Param("holdUntil") Date holdUntil);
+
+    /**
+     * 确认保留，转为正式预约
+     *
+     * @param bookId
+     * @param studentId
+     * @return 更新的行数，保留已过期释放或不存在时为0
+     */
+    @Update("UPDATE appointment " +
+            " SET status = 0, holdUntil = NULL " +
+            " WHERE bookId = #{bookId} " +
+            " AND studentId = #{studentId} " +
+            " AND status = 1")
+    int confirmHold(@Param("bookId") long bookId, @Param("studentId") long studentId);
+
+    /**
+     * 删除到期未确认的保留
+     * <p>
+     * 带上原截止时间，多实例各自重建时间轮时，旧定时器不会误删学生之后重新发起的保留
+     *
+     * @param bookId
+     * @param studentId
+     * @param holdUntil 定时器记录的截止时间
+     * @return 删除的行数，已确认或已被其他实例释放时为0
+     */
+    @Delete("DELETE FROM appointment " +
+            " WHERE bookId = #{bookId} " +
+            " AND studentId = #{studentId} " +
+            " AND status = 1 " +
+            " AND holdUntil <= #{holdUntil}")
+    int deleteExpiredHold(@Param("bookId") long bookId, @Param("studentId") long studentId,
+                          @Param("holdUntil") Date holdUntil);
+
+    /**
+     * 按 (holdUntil, bookId, studentId) 游标分页查询待确认的保留，启动时重建时间轮用
+     * <p>
+     * 依赖索引 idx_status_hold(status, holdUntil, bookId, studentId)
+     *
+     * @param afterTime      上一页最后一条的截止时间，首页传null
+     * @param afterBookId    上一页最后一条的图书ID
+     * @param afterStudentId 上一页最后一条的学号
+     * @param limit          查询条数
+     * @return
+     */
+    @Select("<script>" +
+            "SELECT bookId, studentId, holdUntil " +
+            " FROM appointment " +
+            " WHERE status = 1 " +
+            "<if test=\"afterTime != null\">" +
+            " AND (holdUntil &gt; #{afterTime} " +
+            "  OR (holdUntil = #{afterTime} AND (bookId &gt; #{afterBookId} " +
+            "   OR (bookId = #{afterBookId} AND studentId &gt; #{afterStudentId}))))" +
+            "</if>" +
+            " ORDER BY holdUntil, bookId, studentId " +
+            " LIMIT #{limit}" +
+            "</script>")
+    @ResultType(AppointmentHold.class)
+    List<AppointmentHold> queryHolds(@Param("afterTime") Date afterTime, @Param("afterBookId") long afterBookId,
+                                     @Param("afterStudentId") long afterStudentId, @Param("limit") int limit);
+
 }
@@ -6,8 +6,12 @@ import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * 查询 Book 的 SELECT 须包含与 Book 字段同名的列，按列标签映射，见 BookRowTypeHandler
+ */
 public interface BookDao {
 
     /**
@@ -35,6 +39,51 @@ public interface BookDao {
     @ResultType(Book.class)
     List<Book> queryAll(@Param("offset") int offset, @Param("limit") int limit);
 
+    /**
+     * 按ID批量查询图书
+     *
+     * @param ids 不能为空集合
+     * @return
+     */
+    @Select("<script>" +
+            "SELECT bookid, name, number " +
+            " FROM book " +
+            " WHERE bookid IN " +
+            "<foreach collection=\"ids\" item=\"id\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>" +
+            "</script>")
+    @ResultType(Book.class)
+    List<Book> queryByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 最小图书ID
+     *
+     * @return 没有图书时为null
+     */
+    @Select("SELECT MIN(bookid) FROM book")
+    Long minBookId();
+
+    /**
+     * 最大图书ID
+     *
+     * @return 没有图书时为null
+     */
+    @Select("SELECT MAX(bookid) FROM book")
+    Long maxBookId();
+
+    /**
+     * 按ID区间查询图书，用于分段并行加载
+     *
+     * @param fromId 起始ID，包含
+     * @param toId   结束ID，不包含
+     * @return
+     */
+    @Select("SELECT bookid, name, number " +
+            " FROM book " +
+            " WHERE bookid >= #{fromId} AND bookid < #{toId} " +
+            " ORDER BY bookid")
+    @ResultType(Book.class)
+    List<Book> queryByIdRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
     /**
      * 减少馆藏数量
      *
@@ -47,4 +96,29 @@ public interface BookDao {
             " AND number > 0")
     int reduceNumber(long bookId);
 
+    /**
+     * 一次性租用一段库存，库存不足时不扣减
+     *
+     * @param bookId
+     * @param count  租用数量
+     * @return 影响行数，1表示租用成功
+     */
+    @Update("UPDATE book " +
+            " SET number = number - #{count} " +
+            " WHERE bookid = #{bookId} " +
+            " AND number >= #{count}")
+    int leaseNumber(@Param("bookId") long bookId, @Param("count") int count);
+
+    /**
+     * 归还馆藏数量
+     *
+     * @param bookId
+     * @param count  归还数量
+     * @return 影响行数
+     */
+    @Update("UPDATE book " +
+            " SET number = number + #{count} " +
+            " WHERE bookid = #{bookId}")
+    int increaseNumber(@Param("bookId") long bookId, @Param("count") int count);
+
 }
@@ -0,0 +1,62 @@
+package com.soecode.lyf.dao;
+
+import com.soecode.lyf.entity.WaitlistEntry;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 候补队列持久化，表结构见 db/migration/V4__waitlist.sql；内存队列是主数据，表只用于重启恢复
+ */
+public interface WaitlistDao {
+
+    /**
+     * 加入候补，已在队列中的忽略
+     *
+     * @param bookId
+     * @param studentId
+     * @return 插入的行数
+     */
+    @Insert("INSERT ignore INTO waitlist (bookId, studentId) " +
+            " VALUES (#{bookId}, #{studentId})")
+    int insert(@Param("bookId") long bookId, @Param("studentId") long studentId);
+
+    /**
+     * 批量移出候补，如已转为预约
+     *
+     * @param bookId
+     * @param studentIds
+     * @return 删除的行数
+     */
+    @Delete("<script>" +
+            "DELETE FROM waitlist " +
+            " WHERE bookId = #{bookId} " +
+            " AND studentId IN " +
+            "<foreach collection=\"studentIds\" item=\"id\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>" +
+            "</script>")
+    int deleteBatch(@Param("bookId") long bookId, @Param("studentIds") Collection<Long> studentIds);
+
+    /**
+     * 按 (bookId, seq) 游标分页读出候补，启动时恢复内存队列用
+     *
+     * @param afterBookId 上一页最后一条的图书ID，首页传0
+     * @param afterSeq    上一页最后一条的序号，首页传0
+     * @param limit       查询条数
+     * @return
+     */
+    @Select("SELECT bookId, studentId, seq " +
+            " FROM waitlist " +
+            " WHERE bookId > #{afterBookId} " +
+            " OR (bookId = #{afterBookId} AND seq > #{afterSeq}) " +
+            " ORDER BY bookId, seq " +
+            " LIMIT #{limit}")
+    @ResultType(WaitlistEntry.class)
+    List<WaitlistEntry> queryAfter(@Param("afterBookId") long afterBookId, @Param("afterSeq") long afterSeq,
+                                   @Param("limit") int limit);
+
+}
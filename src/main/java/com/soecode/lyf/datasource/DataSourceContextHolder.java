@@ -0,0 +1,62 @@
+package com.soecode.lyf.datasource;
+
+/**
+ * 当前线程的数据源路由上下文
+ * <p>
+ * readOnly：当前语句是否为只读语句，由 {@link ReadOnlyRoutingInterceptor} 设置
+ * forcePrimary：读己之写，当前请求的所有读都走主库
+ * written：当前请求在主库上写入成功过
+ */
+public final class DataSourceContextHolder {
+
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private static final ThreadLocal<Boolean> WRITTEN = new ThreadLocal<>();
+
+    private DataSourceContextHolder() {
+    }
+
+    public static void setReadOnly(boolean readOnly) {
+        if (readOnly) {
+            READ_ONLY.set(Boolean.TRUE);
+        } else {
+            READ_ONLY.remove();
+        }
+    }
+
+    public static boolean isReadOnly() {
+        return READ_ONLY.get() != null;
+    }
+
+    public static void setForcePrimary(boolean forcePrimary) {
+        if (forcePrimary) {
+            FORCE_PRIMARY.set(Boolean.TRUE);
+        } else {
+            FORCE_PRIMARY.remove();
+        }
+    }
+
+    public static boolean isForcePrimary() {
+        return FORCE_PRIMARY.get() != null;
+    }
+
+    public static void markWritten() {
+        WRITTEN.set(Boolean.TRUE);
+    }
+
+    public static boolean isWritten() {
+        return WRITTEN.get() != null;
+    }
+
+    /**
+     * 请求结束时清理，避免线程池复用线程时串请求
+     */
+    public static void clear() {
+        READ_ONLY.remove();
+        FORCE_PRIMARY.remove();
+        WRITTEN.remove();
+    }
+
+}
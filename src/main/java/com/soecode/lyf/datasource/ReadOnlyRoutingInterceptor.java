@@ -0,0 +1,74 @@
+package com.soecode.lyf.datasource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * 按 mapper 方法路由读写
+ * <p>
+ * 白名单中的查询语句标记为只读，由 {@link RoutingDataSource} 发往从库；
+ * 写语句影响行数大于0时标记当前请求已写主库，用于读己之写。
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class ReadOnlyRoutingInterceptor implements Interceptor {
+
+    private final Set<String> readOnlyStatements;
+
+    public ReadOnlyRoutingInterceptor(Set<String> readOnlyStatements) {
+        this.readOnlyStatements = Collections.unmodifiableSet(new HashSet<>(readOnlyStatements));
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+
+        if ("update".equals(invocation.getMethod().getName())) {
+            Object result = invocation.proceed();
+            if (result instanceof Integer && (Integer) result > 0) {
+                DataSourceContextHolder.markWritten();
+            }
+            return result;
+        }
+
+        if (!readOnlyStatements.contains(ms.getId())) {
+            return invocation.proceed();
+        }
+        DataSourceContextHolder.setReadOnly(true);
+        try {
+            return invocation.proceed();
+        } finally {
+            DataSourceContextHolder.setReadOnly(false);
+        }
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.soecode.lyf.datasource;
+
+import com.soecode.lyf.context.AppComponents;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * 读己之写
+ * <p>
+ * 请求中写主库成功后，在响应里种一个短期 cookie；
+ * 带着该 cookie 的后续请求（如预约成功后打开的详情页）在 stickySeconds 内读主库，
+ * 以此容忍从库复制延迟。有效期见 DaoConfig 发布的 ReadYourWritesPolicy，容器启动前直接放行。
+ */
+public class ReadYourWritesFilter implements Filter {
+
+    public static final String COOKIE_NAME = "lyf_rw";
+
+    private AppComponents components;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        components = AppComponents.from(filterConfig.getServletContext());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+        ReadYourWritesPolicy policy = components.get(ReadYourWritesPolicy.class);
+        if (policy == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        DataSourceContextHolder.setForcePrimary(hasStickyCookie(req, policy));
+        try {
+            chain.doFilter(request, new StickyCookieResponse(resp, policy));
+        } finally {
+            DataSourceContextHolder.clear();
+        }
+    }
+
+    private boolean hasStickyCookie(HttpServletRequest req, ReadYourWritesPolicy policy) {
+        Cookie[] cookies = req.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (!COOKIE_NAME.equals(cookie.getName())) {
+                continue;
+            }
+            return policy.isSticky(cookie.getValue(), System.currentTimeMillis());
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * 在响应体开始输出前检查是否写过主库，写过则种 cookie
+     */
+    private static class StickyCookieResponse extends HttpServletResponseWrapper {
+
+        private final ReadYourWritesPolicy policy;
+
+        private boolean checked;
+
+        StickyCookieResponse(HttpServletResponse response, ReadYourWritesPolicy policy) {
+            super(response);
+            this.policy = policy;
+        }
+
+        private void addCookieIfWritten() {
+            if (checked) {
+                return;
+            }
+            checked = true;
+            if (DataSourceContextHolder.isWritten() && !isCommitted()) {
+                Cookie cookie = new Cookie(COOKIE_NAME, String.valueOf(policy.expireAt(System.currentTimeMillis())));
+                cookie.setPath("/");
+                cookie.setMaxAge(policy.getStickySeconds());
+                cookie.setHttpOnly(true);
+                addCookie(cookie);
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addCookieIfWritten();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addCookieIfWritten();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addCookieIfWritten();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addCookieIfWritten();
+            super.sendRedirect(location);
+        }
+
+    }
+
+}
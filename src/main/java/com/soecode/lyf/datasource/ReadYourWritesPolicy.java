@@ -0,0 +1,35 @@
+package com.soecode.lyf.datasource;
+
+/**
+ * 读己之写的 cookie 有效期
+ * <p>
+ * cookie 值为到期时刻（毫秒），由客户端原样带回，只认不晚于当前时刻加 stickySeconds 的值，
+ * 否则改一下 cookie 就能让自己的读请求一直压在主库上。
+ */
+public class ReadYourWritesPolicy {
+
+    private final int stickySeconds;
+
+    public ReadYourWritesPolicy(int stickySeconds) {
+        this.stickySeconds = stickySeconds;
+    }
+
+    public int getStickySeconds() {
+        return stickySeconds;
+    }
+
+    public long expireAt(long now) {
+        return now + stickySeconds * 1000L;
+    }
+
+    public boolean isSticky(String cookieValue, long now) {
+        long expireAt;
+        try {
+            expireAt = Long.parseLong(cookieValue);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return expireAt > now && expireAt <= expireAt(now);
+    }
+
+}
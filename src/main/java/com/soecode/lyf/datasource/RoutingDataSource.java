@@ -0,0 +1,144 @@
+package com.soecode.lyf.datasource;
+
+import com.soecode.lyf.sqlbudget.SqlCounter;
+import com.soecode.lyf.trace.Tracer;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+/**
+ * 读写分离数据源
+ * <p>
+ * 只读语句且未要求读己之写时从从库取连接，其余一律走主库。
+ * 从库取连接失败时，若开启了 fallback，则在 retryMillis 内直接走主库，
+ * 避免每个请求都去等一次从库的超时。
+ * 被跟踪的请求每次取连接记一段 checkout，名字为实际取到连接的库；统计 SQL 预算时每次取连接计一次。
+ */
+public class RoutingDataSource implements DataSource {
+
+    private final org.slf4j.Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final DataSource primary;
+
+    private final DataSource replica;
+
+    private final boolean fallbackToPrimary;
+
+    private final long retryMillis;
+
+    // 从库不可用的截止时间
+    private volatile long replicaDownUntil;
+
+    public RoutingDataSource(DataSource primary, DataSource replica, boolean fallbackToPrimary, long retryMillis) {
+        this.primary = primary;
+        this.replica = replica;
+        this.fallbackToPrimary = fallbackToPrimary;
+        this.retryMillis = retryMillis;
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    private boolean routeToReplica() {
+        return replica != null
+                && DataSourceContextHolder.isReadOnly()
+                && !DataSourceContextHolder.isForcePrimary()
+                && System.currentTimeMillis() >= replicaDownUntil;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = Tracer.start();
+        if (!routeToReplica()) {
+            return checkout(start, primary, "primary");
+        }
+        try {
+            return checkout(start, replica, "replica");
+        } catch (SQLException e) {
+            if (!fallbackToPrimary) {
+                throw e;
+            }
+            replicaDownUntil = System.currentTimeMillis() + retryMillis;
+            logger.warn("replica unavailable, fallback to primary for {} ms: {}", retryMillis, e.getMessage());
+            return checkout(Tracer.start(), primary, "primary");
+        }
+    }
+
+    private static Connection checkout(long start, DataSource dataSource, String name) throws SQLException {
+        SqlCounter.checkout();
+        boolean error = true;
+        try {
+            Connection connection = dataSource.getConnection();
+            error = false;
+            return connection;
+        } finally {
+            Tracer.end(start, Tracer.CHECKOUT, name, error);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!routeToReplica()) {
+            return primary.getConnection(username, password);
+        }
+        try {
+            return replica.getConnection(username, password);
+        } catch (SQLException e) {
+            if (!fallbackToPrimary) {
+                throw e;
+            }
+            replicaDownUntil = System.currentTimeMillis() + retryMillis;
+            return primary.getConnection(username, password);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+}
@@ -1,5 +1,9 @@
 package com.soecode.lyf.dto;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import com.soecode.lyf.entity.Appointment;
 import com.soecode.lyf.enums.AppointStateEnum;
 
@@ -8,6 +12,20 @@ import com.soecode.lyf.enums.AppointStateEnum;
  */
 public class AppointExecution {
 
+	// 每种失败状态的共享结果缓存槽数，按图书ID直接映射，冲突时覆盖
+	private static final int SHARED_SLOTS = 4096;
+
+	private static final Map<AppointStateEnum, AtomicReferenceArray<AppointExecution>> SHARED_FAILURES = new EnumMap<>(
+			AppointStateEnum.class);
+
+	static {
+		for (AppointStateEnum stateEnum : AppointStateEnum.values()) {
+			if (stateEnum.getState() <= 0) {
+				SHARED_FAILURES.put(stateEnum, new AtomicReferenceArray<AppointExecution>(SHARED_SLOTS));
+			}
+		}
+	}
+
 	// 图书ID
 	private long bookId;
 
@@ -38,6 +56,35 @@ public class AppointExecution {
 		this.appointment = appointment;
 	}
 
+	/**
+	 * 失败结果，同一图书同一状态复用同一个不可变实例；售罄时几乎每个请求都走这里，不再逐个分配
+	 * 
+	 * @param bookId
+	 * @param stateEnum 失败状态，即 state 不大于0
+	 * @return
+	 */
+	public static AppointExecution failureOf(long bookId, AppointStateEnum stateEnum) {
+		AtomicReferenceArray<AppointExecution> slots = SHARED_FAILURES.get(stateEnum);
+		if (slots == null) {
+			throw new IllegalArgumentException("not a failure state: " + stateEnum);
+		}
+		int slot = (int) (bookId ^ (bookId >>> 32)) & (SHARED_SLOTS - 1);
+		AppointExecution cached = slots.get(slot);
+		if (cached != null && cached.bookId == bookId) {
+			return cached;
+		}
+		cached = new Shared(bookId, stateEnum);
+		slots.set(slot, cached);
+		return cached;
+	}
+
+	/**
+	 * 包装成接口返回值，共享的失败结果连同外层 Result 一起复用
+	 */
+	public Result<AppointExecution> asResult() {
+		return new Result<AppointExecution>(true, this);
+	}
+
 	public long getBookId() {
 		return bookId;
 	}
@@ -76,4 +123,69 @@ public class AppointExecution {
 				+ appointment + "]";
 	}
 
+	/**
+	 * 共享的失败结果，不可修改
+	 */
+	private static final class Shared extends AppointExecution {
+
+		private final Result<AppointExecution> result;
+
+		Shared(long bookId, AppointStateEnum stateEnum) {
+			super(bookId, stateEnum);
+			this.result = new SharedResult(this);
+		}
+
+		@Override
+		public Result<AppointExecution> asResult() {
+			return result;
+		}
+
+		@Override
+		public void setBookId(long bookId) {
+			throw new UnsupportedOperationException("shared AppointExecution is immutable");
+		}
+
+		@Override
+		public void setState(int state) {
+			throw new UnsupportedOperationException("shared AppointExecution is immutable");
+		}
+
+		@Override
+		public void setStateInfo(String stateInfo) {
+			throw new UnsupportedOperationException("shared AppointExecution is immutable");
+		}
+
+		@Override
+		public void setAppointment(Appointment appointment) {
+			throw new UnsupportedOperationException("shared AppointExecution is immutable");
+		}
+
+	}
+
+	/**
+	 * 共享失败结果外层的 Result，同样不可修改
+	 */
+	private static final class SharedResult extends Result<AppointExecution> {
+
+		SharedResult(AppointExecution execution) {
+			super(true, execution);
+		}
+
+		@Override
+		public void setSuccess(boolean success) {
+			throw new UnsupportedOperationException("shared Result is immutable");
+		}
+
+		@Override
+		public void setData(AppointExecution data) {
+			throw new UnsupportedOperationException("shared Result is immutable");
+		}
+
+		@Override
+		public void setError(String error) {
+			throw new UnsupportedOperationException("shared Result is immutable");
+		}
+
+	}
+
 }
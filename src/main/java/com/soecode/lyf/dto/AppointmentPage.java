@@ -0,0 +1,73 @@
+package com.soecode.lyf.dto;
+
+import java.util.List;
+
+import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.entity.Book;
+
+/**
+ * 学生预约记录的一页
+ */
+public class AppointmentPage {
+
+	// 学号
+	private long studentId;
+
+	// 按预约时间倒序
+	private List<Appointment> appointments;
+
+	// 本页记录引用到的图书，每本一条
+	private List<Book> books;
+
+	// 下一页游标，没有更多记录时为null
+	private String nextCursor;
+
+	public AppointmentPage() {
+	}
+
+	public AppointmentPage(long studentId, List<Appointment> appointments, List<Book> books, String nextCursor) {
+		this.studentId = studentId;
+		this.appointments = appointments;
+		this.books = books;
+		this.nextCursor = nextCursor;
+	}
+
+	public long getStudentId() {
+		return studentId;
+	}
+
+	public void setStudentId(long studentId) {
+		this.studentId = studentId;
+	}
+
+	public List<Appointment> getAppointments() {
+		return appointments;
+	}
+
+	public void setAppointments(List<Appointment> appointments) {
+		this.appointments = appointments;
+	}
+
+	public List<Book> getBooks() {
+		return books;
+	}
+
+	public void setBooks(List<Book> books) {
+		this.books = books;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "AppointmentPage [studentId=" + studentId + ", appointments=" + appointments + ", books=" + books
+				+ ", nextCursor=" + nextCursor + "]";
+	}
+
+}
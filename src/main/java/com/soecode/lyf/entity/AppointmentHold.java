@@ -0,0 +1,54 @@
+package com.soecode.lyf.entity;
+
+import java.util.Date;
+
+/**
+ * 待确认的预约保留，对应 appointment 表中 status=1 的行
+ */
+public class AppointmentHold {
+
+    private long bookId;// 图书ID
+
+    private long studentId;// 学号
+
+    private Date holdUntil;// 保留截止时间，过期未确认则释放库存
+
+    public AppointmentHold() {
+    }
+
+    public AppointmentHold(long bookId, long studentId, Date holdUntil) {
+        this.bookId = bookId;
+        this.studentId = studentId;
+        this.holdUntil = holdUntil;
+    }
+
+    public long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(long bookId) {
+        this.bookId = bookId;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(long studentId) {
+        this.studentId = studentId;
+    }
+
+    public Date getHoldUntil() {
+        return holdUntil;
+    }
+
+    public void setHoldUntil(Date holdUntil) {
+        this.holdUntil = holdUntil;
+    }
+
+    @Override
+    public String toString() {
+        return "AppointmentHold [bookId=" + bookId + ", studentId=" + studentId + ", holdUntil=" + holdUntil + "]";
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.soecode.lyf.entity;
+
+/**
+ * 候补队列中的一个学生，seq 为入队顺序
+ */
+public class WaitlistEntry {
+
+    private long bookId;// 图书ID
+
+    private long studentId;// 学号
+
+    private long seq;// 入队序号，自增
+
+    public WaitlistEntry() {
+    }
+
+    public WaitlistEntry(long bookId, long studentId, long seq) {
+        this.bookId = bookId;
+        this.studentId = studentId;
+        this.seq = seq;
+    }
+
+    public long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(long bookId) {
+        this.bookId = bookId;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public void setStudentId(long studentId) {
+        this.studentId = studentId;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+
+    @Override
+    public String toString() {
+        return "WaitlistEntry [bookId=" + bookId + ", studentId=" + studentId + ", seq=" + seq + "]";
+    }
+
+}
@@ -5,7 +5,7 @@ package com.soecode.lyf.enums;
  */
 public enum AppointStateEnum {
 
-	SUCCESS(1, "预约成功"), NO_NUMBER(0, "库存不足"), REPEAT_APPOINT(-1, "重复预约"), INNER_ERROR(-2, "系统异常");
+	SUCCESS(1, "预约成功"), HELD(2, "已为你保留，请在时限内确认"), WAITLISTED(3, "已加入候补，有库存时自动为你预约"), NO_NUMBER(0, "库存不足"), REPEAT_APPOINT(-1, "重复预约"), INNER_ERROR(-2, "系统异常"), RATE_LIMITED(-3, "请求过于频繁"), HOLD_EXPIRED(-4, "保留已过期或不存在"), WAITLIST_FULL(-5, "候补人数已满");
 
 	private int state;
 
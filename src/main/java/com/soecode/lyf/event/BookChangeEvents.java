@@ -0,0 +1,36 @@
+package com.soecode.lyf.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 图书变更事件分发，在调用线程上同步通知各监听器，监听器须足够轻量
+ */
+public class BookChangeEvents {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final List<BookChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(BookChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BookChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void stockChanged(long bookId, int delta) {
+        for (BookChangeListener listener : listeners) {
+            try {
+                listener.stockChanged(bookId, delta);
+            } catch (RuntimeException e) {
+                logger.error("book change listener failed", e);
+            }
+        }
+    }
+
+}
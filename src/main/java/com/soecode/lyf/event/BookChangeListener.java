@@ -0,0 +1,18 @@
+package com.soecode.lyf.event;
+
+/**
+ * 图书变更监听
+ * <p>
+ * 应用内只有预约会改动图书，所以只有库存事件；直接在库里增删改的图书由各监听方的定时全量刷新同步。
+ */
+public interface BookChangeListener {
+
+    /**
+     * 库存变化
+     *
+     * @param bookId
+     * @param delta  变化量，扣到库存为-1，归还为正
+     */
+    void stockChanged(long bookId, int delta);
+
+}
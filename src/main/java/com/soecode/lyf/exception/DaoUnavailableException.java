@@ -0,0 +1,32 @@
+package com.soecode.lyf.exception;
+
+/**
+ * 数据库调用被熔断或舱壁拒绝，未真正执行
+ */
+public class DaoUnavailableException extends RuntimeException {
+
+	// 熔断期间每个请求都会抛出，不收集堆栈
+	public DaoUnavailableException(String message) {
+		super(message, null, false, false);
+	}
+
+	/**
+	 * 在异常的 cause 链上找熔断或舱壁拒绝
+	 * <p>
+	 * 舱壁在 MyBatis Executor 插件里抛出，经 DefaultSqlSession 后被包成 PersistenceException，
+	 * 调用 Mapper 的一方直接 catch 本类型捕获不到，须用此方法判断。
+	 * 
+	 * @return 链上没有时返回null
+	 */
+	public static DaoUnavailableException causeOf(Throwable t) {
+		// 限制深度，防止 cause 成环
+		for (int depth = 0; t != null && depth < 16; depth++) {
+			if (t instanceof DaoUnavailableException) {
+				return (DaoUnavailableException) t;
+			}
+			t = t.getCause();
+		}
+		return null;
+	}
+
+}
@@ -1,16 +0,0 @@
-package com.soecode.lyf.exception;
-
-/**
- * 库存不足异常
- */
-public class NoNumberException extends RuntimeException {
-
-	public NoNumberException(String message) {
-		super(message);
-	}
-
-	public NoNumberException(String message, Throwable cause) {
-		super(message, cause);
-	}
-
-}
@@ -1,16 +0,0 @@
-package com.soecode.lyf.exception;
-
-/**
- * 重复预约异常
- */
-public class RepeatAppointException extends RuntimeException {
-
-	public RepeatAppointException(String message) {
-		super(message);
-	}
-
-	public RepeatAppointException(String message, Throwable cause) {
-		super(message, cause);
-	}
-
-}
@@ -0,0 +1,12 @@
+package com.soecode.lyf.exception;
+
+/**
+ * 一次调用执行的语句数或取连接次数超出预算，或出现了 N+1 查询
+ */
+public class SqlBudgetExceededException extends RuntimeException {
+
+	public SqlBudgetExceededException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.soecode.lyf.fastpath;
+
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.dto.Result;
+import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.entity.Book;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 快速路径接口返回值的 JSON 编码，按字段声明顺序手写，不走反射
+ * <p>
+ * 与 DispatcherServlet 的 JSON 输出保持一致：null 字段照常输出，Date 输出毫秒时间戳。
+ * 只支持快速路径上会出现的类型，其余类型抛 IllegalArgumentException。
+ */
+public final class FastJsonWriter {
+
+    private FastJsonWriter() {
+    }
+
+    public static void write(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Result) {
+            writeResult(sb, (Result<?>) value);
+        } else if (value instanceof AppointExecution) {
+            writeExecution(sb, (AppointExecution) value);
+        } else if (value instanceof Book) {
+            writeBook(sb, (Book) value);
+        } else if (value instanceof Appointment) {
+            writeAppointment(sb, (Appointment) value);
+        } else if (value instanceof String) {
+            writeString(sb, (String) value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Date) {
+            sb.append(((Date) value).getTime());
+        } else if (value instanceof Collection) {
+            writeCollection(sb, (Collection<?>) value);
+        } else if (value instanceof Map) {
+            writeMap(sb, (Map<?, ?>) value);
+        } else {
+            throw new IllegalArgumentException("unsupported type for fast path: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeResult(StringBuilder sb, Result<?> result) {
+        sb.append("{\"success\":").append(result.isSuccess()).append(",\"data\":");
+        write(sb, result.getData());
+        sb.append(",\"error\":");
+        write(sb, result.getError());
+        sb.append('}');
+    }
+
+    private static void writeExecution(StringBuilder sb, AppointExecution execution) {
+        sb.append("{\"bookId\":").append(execution.getBookId())
+                .append(",\"state\":").append(execution.getState())
+                .append(",\"stateInfo\":");
+        write(sb, execution.getStateInfo());
+        sb.append(",\"appointment\":");
+        write(sb, execution.getAppointment());
+        sb.append('}');
+    }
+
+    private static void writeAppointment(StringBuilder sb, Appointment appointment) {
+        sb.append("{\"bookId\":").append(appointment.getBookId())
+                .append(",\"studentId\":").append(appointment.getStudentId())
+                .append(",\"appointTime\":");
+        write(sb, appointment.getAppointTime());
+        sb.append('}');
+    }
+
+    private static void writeBook(StringBuilder sb, Book book) {
+        sb.append("{\"bookId\":").append(book.getBookId()).append(",\"name\":");
+        write(sb, book.getName());
+        sb.append(",\"number\":").append(book.getNumber()).append('}');
+    }
+
+    private static void writeCollection(StringBuilder sb, Collection<?> values) {
+        sb.append('[');
+        Iterator<?> it = values.iterator();
+        while (it.hasNext()) {
+            write(sb, it.next());
+            if (it.hasNext()) {
+                sb.append(',');
+            }
+        }
+        sb.append(']');
+    }
+
+    private static void writeMap(StringBuilder sb, Map<?, ?> map) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            writeString(sb, String.valueOf(entry.getKey()));
+            sb.append(':');
+            write(sb, entry.getValue());
+        }
+        sb.append('}');
+    }
+
+    static void writeString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+}
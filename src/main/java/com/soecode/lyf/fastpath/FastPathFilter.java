@@ -0,0 +1,130 @@
+package com.soecode.lyf.fastpath;
+
+import com.soecode.lyf.context.AppComponents;
+import com.soecode.lyf.dto.Result;
+import com.soecode.lyf.record.RecordCodec;
+import com.soecode.lyf.record.RecordWriter;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 命中 FastRouteTable 的请求直接调用控制器方法并写出 JSON，不经过 DispatcherServlet 的
+ * 映射查找、参数解析和返回值转换；未命中或参数无法解析的请求照常往下走。
+ * <p>
+ * 注册在其他过滤器之后，跟踪、读己之写等过滤器对快速路径同样生效。
+ * <p>
+ * Accept 含 application/x-lyf-record 时按 RecordCodec 输出二进制记录；请求体为该类型时从中读出 studentId、waitlist。
+ * 二进制格式只在快速路径上支持，相应接口须配置在 fastpath.routes 里。
+ */
+public class FastPathFilter implements Filter {
+
+    private static final int MAX_CACHED_BUFFER = 16 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private static final ThreadLocal<RecordWriter> RECORD_BUFFER = ThreadLocal.withInitial(() -> new RecordWriter(256));
+
+    private AppComponents components;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        components = AppComponents.from(filterConfig.getServletContext());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        // 由 WebConfig 发布，未配置 fastpath.routes 或容器未启动时所有请求走 DispatcherServlet
+        FastRouteTable table = components.get(FastRouteTable.class);
+        if (table == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest req = (HttpServletRequest) request;
+        String path = req.getRequestURI();
+        String contextPath = req.getContextPath();
+        if (!contextPath.isEmpty()) {
+            path = path.substring(contextPath.length());
+        }
+        String[] pathVariables = new String[table.getMaxVariables()];
+        FastRoute route = table.match(req.getMethod(), path, pathVariables);
+        boolean record = route != null && RecordCodec.isRecord(req.getContentType());
+        if (record) {
+            RecordRequest recordRequest = RecordRequest.read(req);
+            if (recordRequest == null) {
+                ((HttpServletResponse) response).sendError(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            req = recordRequest;
+        }
+        Object[] args = route == null ? null : route.resolve(req, pathVariables);
+        if (args == null) {
+            if (record) {
+                // 请求体已读完，MVC 也只认表单参数，二进制请求只在快速路径上处理
+                ((HttpServletResponse) response).sendError(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+            chain.doFilter(req, response);
+            return;
+        }
+
+        Object result;
+        try {
+            result = route.invoke(args);
+        } catch (IOException | ServletException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServletException(e);
+        }
+        HttpServletResponse resp = (HttpServletResponse) response;
+        // 同一地址按 Accept 返回不同格式，告诉中间缓存区分
+        resp.setHeader("Vary", "Accept");
+        if (RecordCodec.accepts(req.getHeader("Accept")) && RecordCodec.supports(result)) {
+            writeRecord(resp, (Result<?>) result);
+        } else {
+            write(resp, route.getContentType(), result);
+        }
+    }
+
+    private static void writeRecord(HttpServletResponse response, Result<?> result) throws IOException {
+        RecordWriter writer = RECORD_BUFFER.get();
+        writer.reset();
+        RecordCodec.writeResult(writer, result);
+        response.setContentType(RecordCodec.CONTENT_TYPE);
+        response.setContentLength(writer.size());
+        response.getOutputStream().write(writer.buffer(), 0, writer.size());
+        if (writer.capacity() > MAX_CACHED_BUFFER) {
+            RECORD_BUFFER.remove();
+        }
+    }
+
+    private static void write(HttpServletResponse response, String contentType, Object result) throws IOException {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        FastJsonWriter.write(sb, result);
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        if (sb.capacity() > MAX_CACHED_BUFFER) {
+            // 偶尔的大响应不长期占着线程的缓冲
+            BUFFER.remove();
+        }
+        response.setContentType(contentType);
+        response.setContentLength(body.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.soecode.lyf.fastpath;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 预编译的一条路由：控制器实例、处理方法和每个参数的取值方式，启动时确定，请求时不再解析注解
+ */
+public class FastRoute {
+
+    /**
+     * 参数取不到或转换失败，交回 DispatcherServlet 按原来的方式处理
+     */
+    static final Object UNRESOLVED = new Object();
+
+    private final String method;
+
+    private final String pattern;
+
+    private final String contentType;
+
+    private final Object controller;
+
+    private final Method handler;
+
+    private final ArgumentExtractor[] extractors;
+
+    FastRoute(String method, String pattern, String contentType, Object controller, Method handler,
+              ArgumentExtractor[] extractors) {
+        this.method = method;
+        this.pattern = pattern;
+        this.contentType = contentType;
+        this.controller = controller;
+        this.handler = handler;
+        this.extractors = extractors;
+    }
+
+    /**
+     * @return 有参数无法解析时返回null
+     */
+    Object[] resolve(HttpServletRequest request, String[] pathVariables) {
+        Object[] args = new Object[extractors.length];
+        for (int i = 0; i < extractors.length; i++) {
+            Object value = extractors[i].extract(request, pathVariables);
+            if (value == UNRESOLVED) {
+                return null;
+            }
+            args[i] = value;
+        }
+        return args;
+    }
+
+    Object invoke(Object[] args) throws Exception {
+        try {
+            return handler.invoke(controller, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    interface ArgumentExtractor {
+
+        Object extract(HttpServletRequest request, String[] pathVariables);
+
+    }
+
+    static ArgumentExtractor pathVariable(int index, Class<?> type) {
+        return (request, pathVariables) -> convert(pathVariables[index], type);
+    }
+
+    static ArgumentExtractor requestParam(String name, boolean required, Class<?> type) {
+        return (request, pathVariables) -> {
+            String raw = request.getParameter(name);
+            if (raw == null && required) {
+                return UNRESOLVED;
+            }
+            return convert(raw, type);
+        };
+    }
+
+    static ArgumentExtractor servletRequest() {
+        return (request, pathVariables) -> request;
+    }
+
+    static boolean isSupported(Class<?> type) {
+        return type == String.class
+                || type == Long.class || type == long.class
+                || type == Integer.class || type == int.class
+                || type == Boolean.class || type == boolean.class;
+    }
+
+    static Object convert(String raw, Class<?> type) {
+        if (raw == null) {
+            return type.isPrimitive() ? UNRESOLVED : null;
+        }
+        if (type == String.class) {
+            return raw;
+        }
+        try {
+            if (type == Long.class || type == long.class) {
+                return Long.valueOf(raw.trim());
+            }
+            if (type == Integer.class || type == int.class) {
+                return Integer.valueOf(raw.trim());
+            }
+        } catch (NumberFormatException e) {
+            return UNRESOLVED;
+        }
+        String value = raw.trim();
+        if ("true".equalsIgnoreCase(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return Boolean.FALSE;
+        }
+        return UNRESOLVED;
+    }
+
+}
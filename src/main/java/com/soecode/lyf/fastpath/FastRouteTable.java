@@ -0,0 +1,247 @@
+package com.soecode.lyf.fastpath;
+
+import com.github.datalking.annotation.Controller;
+import com.github.datalking.annotation.web.PathVariable;
+import com.github.datalking.annotation.web.RequestMapping;
+import com.github.datalking.annotation.web.RequestParam;
+import com.github.datalking.annotation.web.ResponseBody;
+import com.github.datalking.web.http.RequestMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 热点接口的预编译路由表
+ * <p>
+ * 启动时从控制器的 @RequestMapping 中挑出配置的路径，按路径段建前缀树，每条路由预先确定参数取值方式；
+ * 请求时逐段匹配，字面段优先于 {变量} 段，匹配不上的请求仍由 DispatcherServlet 处理。
+ * 只支持 @ResponseBody 方法，参数限 @PathVariable、@RequestParam（String、Long、Integer、Boolean）和 HttpServletRequest。
+ */
+public class FastRouteTable {
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final Node root = new Node();
+
+    private final List<FastRoute> routes = new ArrayList<>();
+
+    private int maxVariables;
+
+    private FastRouteTable() {
+    }
+
+    /**
+     * @param patterns 要走快速路径的完整路径，如 /book/{bookId}/appoint；找不到或参数不支持时启动失败
+     */
+    public static FastRouteTable compile(Collection<?> controllers, Collection<String> patterns) {
+        FastRouteTable table = new FastRouteTable();
+        Set<String> missing = new LinkedHashSet<>(patterns);
+        for (Object controller : controllers) {
+            Class<?> type = controller.getClass();
+            while (type != null && !type.isAnnotationPresent(Controller.class)) {
+                type = type.getSuperclass();
+            }
+            if (type == null) {
+                throw new IllegalArgumentException("not a controller: " + controller.getClass().getName());
+            }
+            RequestMapping classMapping = type.getAnnotation(RequestMapping.class);
+            String prefix = classMapping == null || classMapping.value().length == 0 ? "" : classMapping.value()[0];
+            for (Method method : type.getDeclaredMethods()) {
+                RequestMapping mapping = method.getAnnotation(RequestMapping.class);
+                if (mapping == null) {
+                    continue;
+                }
+                for (String value : mapping.value()) {
+                    String pattern = prefix + value;
+                    if (!patterns.contains(pattern)) {
+                        continue;
+                    }
+                    table.add(pattern, controller, method, mapping);
+                    missing.remove(pattern);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("fast path routes not found: " + missing);
+        }
+        return table;
+    }
+
+    private void add(String pattern, Object controller, Method method, RequestMapping mapping) {
+        if (!method.isAnnotationPresent(ResponseBody.class)) {
+            throw new IllegalStateException("fast path route must be @ResponseBody: " + method);
+        }
+        if (mapping.method().length == 0) {
+            throw new IllegalStateException("fast path route must declare its request method: " + method);
+        }
+        List<String> variables = new ArrayList<>();
+        Node node = root;
+        for (String segment : segments(pattern)) {
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                variables.add(segment.substring(1, segment.length() - 1));
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                node = node.literal(segment, true);
+            }
+        }
+        maxVariables = Math.max(maxVariables, variables.size());
+
+        Class<?>[] types = method.getParameterTypes();
+        Annotation[][] annotations = method.getParameterAnnotations();
+        FastRoute.ArgumentExtractor[] extractors = new FastRoute.ArgumentExtractor[types.length];
+        for (int i = 0; i < types.length; i++) {
+            extractors[i] = extractor(method, types[i], annotations[i], variables);
+        }
+        method.setAccessible(true);
+        String contentType = mapping.produces().length > 0 ? mapping.produces()[0] : DEFAULT_CONTENT_TYPE;
+        for (RequestMethod requestMethod : mapping.method()) {
+            FastRoute route = new FastRoute(requestMethod.name(), pattern, contentType, controller, method, extractors);
+            node.put(route);
+            routes.add(route);
+        }
+    }
+
+    private static FastRoute.ArgumentExtractor extractor(Method method, Class<?> type, Annotation[] annotations,
+                                                         List<String> variables) {
+        if (type == HttpServletRequest.class) {
+            return FastRoute.servletRequest();
+        }
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof PathVariable && FastRoute.isSupported(type)) {
+                int index = variables.indexOf(((PathVariable) annotation).value());
+                if (index < 0) {
+                    throw new IllegalStateException("unknown path variable " + ((PathVariable) annotation).value() + ": " + method);
+                }
+                return FastRoute.pathVariable(index, type);
+            }
+            if (annotation instanceof RequestParam && FastRoute.isSupported(type)) {
+                RequestParam param = (RequestParam) annotation;
+                return FastRoute.requestParam(param.value(), param.required(), type);
+            }
+        }
+        throw new IllegalStateException("unsupported parameter " + type.getSimpleName() + " for fast path: " + method);
+    }
+
+    private static List<String> segments(String pattern) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : pattern.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * @param pathVariables 长度不小于 getMaxVariables()，按路径中出现的顺序填入变量值
+     * @return 没有匹配的路由时返回null
+     */
+    public FastRoute match(String method, String path, String[] pathVariables) {
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        return match(root, method, path, 1, pathVariables, 0);
+    }
+
+    private static FastRoute match(Node node, String method, String path, int from, String[] pathVariables, int variable) {
+        if (from > path.length()) {
+            return node.get(method);
+        }
+        int end = path.indexOf('/', from);
+        if (end < 0) {
+            end = path.length();
+        }
+        if (end == from) {
+            // 空段，如结尾的 / 或 //
+            return null;
+        }
+        Node literal = node.literal(path, from, end);
+        if (literal != null) {
+            FastRoute route = match(literal, method, path, end + 1, pathVariables, variable);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (node.variable != null) {
+            FastRoute route = match(node.variable, method, path, end + 1, pathVariables, variable + 1);
+            if (route != null) {
+                pathVariables[variable] = path.substring(from, end);
+                return route;
+            }
+        }
+        return null;
+    }
+
+    public int getMaxVariables() {
+        return maxVariables;
+    }
+
+    public List<FastRoute> getRoutes() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    private static final class Node {
+
+        private String[] literalKeys = new String[0];
+
+        private Node[] literalNodes = new Node[0];
+
+        private Node variable;
+
+        private FastRoute[] routes = new FastRoute[0];
+
+        Node literal(String segment, boolean create) {
+            Node node = literal(segment, 0, segment.length());
+            if (node == null && create) {
+                node = new Node();
+                literalKeys = Arrays.copyOf(literalKeys, literalKeys.length + 1);
+                literalNodes = Arrays.copyOf(literalNodes, literalNodes.length + 1);
+                literalKeys[literalKeys.length - 1] = segment;
+                literalNodes[literalNodes.length - 1] = node;
+            }
+            return node;
+        }
+
+        // 子节点很少，逐个比较，不为查找切出子串
+        Node literal(String path, int from, int end) {
+            int length = end - from;
+            for (int i = 0; i < literalKeys.length; i++) {
+                String key = literalKeys[i];
+                if (key.length() == length && path.regionMatches(from, key, 0, length)) {
+                    return literalNodes[i];
+                }
+            }
+            return null;
+        }
+
+        void put(FastRoute route) {
+            if (get(route.getMethod()) != null) {
+                throw new IllegalStateException("duplicate fast path route: " + route.getMethod() + " " + route.getPattern());
+            }
+            routes = Arrays.copyOf(routes, routes.length + 1);
+            routes[routes.length - 1] = route;
+        }
+
+        FastRoute get(String method) {
+            for (FastRoute route : routes) {
+                if (route.getMethod().equals(method)) {
+                    return route;
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.soecode.lyf.fastpath;
+
+import com.soecode.lyf.record.RecordCodec;
+import com.soecode.lyf.record.RecordReader;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 请求体为 application/x-lyf-record 的预约请求，把 studentId、waitlist 当作请求参数交给路由的参数解析
+ * <p>
+ * 四个取参数的方法都覆盖，转给 DispatcherServlet 时与表单请求看到的参数一致。
+ */
+final class RecordRequest extends HttpServletRequestWrapper {
+
+    // studentId 最多10字节，加1个标志字节
+    private static final int MAX_BODY = 11;
+
+    private final String studentId;
+
+    private final String waitlist;
+
+    private RecordRequest(HttpServletRequest request, String studentId, String waitlist) {
+        super(request);
+        this.studentId = studentId;
+        this.waitlist = waitlist;
+    }
+
+    /**
+     * @return 请求体缺失或格式不对时返回null
+     */
+    static RecordRequest read(HttpServletRequest request) throws IOException {
+        int length = request.getContentLength();
+        if (length <= 0 || length > MAX_BODY) {
+            return null;
+        }
+        byte[] body = new byte[length];
+        int read = 0;
+        try (InputStream in = request.getInputStream()) {
+            while (read < length) {
+                int n = in.read(body, read, length - read);
+                if (n < 0) {
+                    return null;
+                }
+                read += n;
+            }
+        }
+        try {
+            RecordReader reader = new RecordReader(body, 0, length);
+            long studentId = RecordCodec.readStudentId(reader);
+            boolean waitlist = RecordCodec.readWaitlist(reader);
+            return new RecordRequest(request, Long.toString(studentId), waitlist ? "true" : null);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getParameter(String name) {
+        if ("studentId".equals(name)) {
+            return studentId;
+        }
+        if ("waitlist".equals(name)) {
+            return waitlist;
+        }
+        return super.getParameter(name);
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        if ("studentId".equals(name) || "waitlist".equals(name)) {
+            String value = getParameter(name);
+            return value == null ? null : new String[]{value};
+        }
+        return super.getParameterValues(name);
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        Map<String, String[]> map = new LinkedHashMap<>(super.getParameterMap());
+        map.put("studentId", new String[]{studentId});
+        if (waitlist == null) {
+            map.remove("waitlist");
+        } else {
+            map.put("waitlist", new String[]{waitlist});
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(getParameterMap().keySet());
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.soecode.lyf.hold;
+
+import com.soecode.lyf.dao.AppointmentDao;
+import com.soecode.lyf.entity.AppointmentHold;
+import com.soecode.lyf.event.BookChangeEvents;
+import com.soecode.lyf.stock.StockAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预约保留：预约时扣库存并写一条 status=1 的保留，限时内确认转为正式预约，否则到期删除保留、归还库存。
+ * <p>
+ * 到期由内存时间轮驱动，不轮询 appointment 表；启动时按截止时间游标分页读出全部保留重建时间轮。
+ * 到期删除带截止时间条件，多实例各自重建、重复触发时只有一个实例删到行并归还库存。
+ * 删除与归还不在一个事务里：删除失败整体重试，删除成功后归还失败只重试归还，库存不会丢也不会多还。
+ * 未开启时 isEnabled() 为false，预约仍是永久的。
+ */
+public class AppointHoldManager {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    // 释放失败（如数据库不可用）后的重试间隔
+    private static final long RETRY_MILLIS = 5000;
+
+    private final AppointmentDao appointmentDao;
+
+    private final StockAllocator stockAllocator;
+
+    private final BookChangeEvents bookChangeEvents;
+
+    private final long holdMillis;
+
+    private final TimingWheel<AppointmentHold> wheel;
+
+    private final ExecutorService releaser;
+
+    private final Map<String, TimingWheel.Timeout<AppointmentHold>> timers = new ConcurrentHashMap<>();
+
+    // 已删除保留、库存还没归还成功的
+    private final Set<AppointmentHold> unreturned = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong held = new AtomicLong();
+
+    private final AtomicLong confirmed = new AtomicLong();
+
+    private final AtomicLong released = new AtomicLong();
+
+    private final AtomicLong releaseErrors = new AtomicLong();
+
+    public AppointHoldManager(AppointmentDao appointmentDao, StockAllocator stockAllocator,
+                              BookChangeEvents bookChangeEvents, long holdMillis, long tickMillis, int wheelSize,
+                              int levels, int releaseThreads) {
+        this.appointmentDao = appointmentDao;
+        this.stockAllocator = stockAllocator;
+        this.bookChangeEvents = bookChangeEvents;
+        this.holdMillis = holdMillis;
+        if (appointmentDao == null) {
+            this.wheel = null;
+            this.releaser = null;
+            return;
+        }
+        AtomicInteger seq = new AtomicInteger();
+        this.releaser = Executors.newFixedThreadPool(Math.max(releaseThreads, 1), r -> {
+            Thread t = new Thread(r, "hold-release-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // 时间轮线程只负责派发，写库在 releaser 上
+        this.wheel = new TimingWheel<>("appoint-hold", tickMillis, wheelSize, levels,
+                hold -> releaser.execute(() -> expire(hold)));
+    }
+
+    public static AppointHoldManager disabled() {
+        return new AppointHoldManager(null, null, null, 0, 0, 0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return wheel != null;
+    }
+
+    /**
+     * 从数据库读出全部未确认的保留放进时间轮，然后开始计时；已过期的在第一个 tick 释放
+     *
+     * @param batchSize 每页条数
+     * @return 重建的保留数
+     */
+    public int rebuild(int batchSize) {
+        long start = System.currentTimeMillis();
+        int count = 0;
+        Date afterTime = null;
+        long afterBookId = 0;
+        long afterStudentId = 0;
+        while (true) {
+            List<AppointmentHold> page = appointmentDao.queryHolds(afterTime, afterBookId, afterStudentId, batchSize);
+            for (AppointmentHold hold : page) {
+                schedule(hold);
+            }
+            count += page.size();
+            if (page.size() < batchSize) {
+                break;
+            }
+            AppointmentHold last = page.get(page.size() - 1);
+            afterTime = last.getHoldUntil();
+            afterBookId = last.getBookId();
+            afterStudentId = last.getStudentId();
+        }
+        wheel.start();
+        logger.info("appoint holds rebuilt, holds=" + count + ", cost=" + (System.currentTimeMillis() - start) + "ms");
+        return count;
+    }
+
+    /**
+     * 写入保留并开始计时，调用前须已扣减库存
+     *
+     * @return 重复预约时返回null
+     */
+    public AppointmentHold hold(long bookId, long studentId) {
+        // DATETIME 不存毫秒，截到整秒，否则到期删除的截止时间条件可能比库里的值小而删不到
+        Date holdUntil = new Date((System.currentTimeMillis() + holdMillis) / 1000 * 1000);
+        if (appointmentDao.insertHold(bookId, studentId, holdUntil) <= 0) {
+            return null;
+        }
+        AppointmentHold hold = new AppointmentHold(bookId, studentId, holdUntil);
+        schedule(hold);
+        held.incrementAndGet();
+        return hold;
+    }
+
+    /**
+     * 确认保留
+     *
+     * @return 保留已过期释放或不存在时返回false
+     */
+    public boolean confirm(long bookId, long studentId) {
+        if (appointmentDao.confirmHold(bookId, studentId) <= 0) {
+            return false;
+        }
+        TimingWheel.Timeout<AppointmentHold> timeout = timers.remove(key(bookId, studentId));
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        confirmed.incrementAndGet();
+        return true;
+    }
+
+    private void schedule(AppointmentHold hold) {
+        TimingWheel.Timeout<AppointmentHold> timeout = wheel.schedule(hold, hold.getHoldUntil().getTime());
+        TimingWheel.Timeout<AppointmentHold> previous = timers.put(key(hold.getBookId(), hold.getStudentId()), timeout);
+        if (previous != null && previous != timeout) {
+            previous.cancel();
+        }
+    }
+
+    private void expire(AppointmentHold hold) {
+        if (!unreturned.contains(hold)) {
+            if (!deleteExpired(hold)) {
+                return;
+            }
+            unreturned.add(hold);
+        }
+        try {
+            stockAllocator.release(hold.getBookId());
+            unreturned.remove(hold);
+            bookChangeEvents.stockChanged(hold.getBookId(), 1);
+            released.incrementAndGet();
+        } catch (RuntimeException e) {
+            releaseErrors.incrementAndGet();
+            logger.warn("return stock of expired hold failed, retry in " + RETRY_MILLIS + "ms: " + hold + ", " + e.getMessage());
+            // 行已删除，学生可能已重新保留，重试不登记到 timers
+            wheel.schedule(hold, System.currentTimeMillis() + RETRY_MILLIS);
+        }
+    }
+
+    /**
+     * @return 删到了行，须归还库存
+     */
+    private boolean deleteExpired(AppointmentHold hold) {
+        String key = key(hold.getBookId(), hold.getStudentId());
+        try {
+            boolean deleted = appointmentDao.deleteExpiredHold(hold.getBookId(), hold.getStudentId(), hold.getHoldUntil()) > 0;
+            removeTimer(key, hold);
+            return deleted;
+        } catch (RuntimeException e) {
+            releaseErrors.incrementAndGet();
+            logger.warn("release hold failed, retry in " + RETRY_MILLIS + "ms: " + hold + ", " + e.getMessage());
+            TimingWheel.Timeout<AppointmentHold> current = timers.get(key);
+            if (current != null && current.getPayload() == hold) {
+                TimingWheel.Timeout<AppointmentHold> retry = wheel.schedule(hold, System.currentTimeMillis() + RETRY_MILLIS);
+                if (!timers.replace(key, current, retry)) {
+                    retry.cancel();
+                }
+            }
+            return false;
+        }
+    }
+
+    private void removeTimer(String key, AppointmentHold hold) {
+        TimingWheel.Timeout<AppointmentHold> timeout = timers.get(key);
+        // 同一学生可能已重新保留，只移除属于本次保留的定时器
+        if (timeout != null && timeout.getPayload() == hold) {
+            timers.remove(key, timeout);
+        }
+    }
+
+    private static String key(long bookId, long studentId) {
+        return bookId + ":" + studentId;
+    }
+
+    public long getHoldMillis() {
+        return holdMillis;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("pending", wheel == null ? 0 : wheel.size());
+        stats.put("held", held.get());
+        stats.put("confirmed", confirmed.get());
+        stats.put("released", released.get());
+        stats.put("releaseErrors", releaseErrors.get());
+        stats.put("unreturned", unreturned.size());
+        return stats;
+    }
+
+    public void close() {
+        if (wheel != null) {
+            wheel.stop();
+            releaser.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,332 @@
+package com.soecode.lyf.hold;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ * <p>
+ * 第0层每格 tickMillis，第 n 层每格是第 n-1 层一整圈。定时器按到期 tick 与当前 tick 的差值放进能容纳它的最低一层，
+ * 低层转完一圈时把高层当前格的定时器重新分配到低层。格子是双向链表，插入、取消都是 O(1)，不随定时器总数增长。
+ * <p>
+ * 由单个 worker 线程推进；其他线程的 schedule/cancel 先进无锁队列，worker 每个 tick 开始时批量处理，
+ * 所以轮子本身不需要加锁。到期回调在 worker 线程上执行，耗时操作应交给别的线程。
+ *
+ * @param <T> 定时器携带的数据
+ */
+public class TimingWheel<T> {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final String name;
+
+    private final long tickMillis;
+
+    private final int bits;
+
+    private final int mask;
+
+    private final Bucket<T>[][] levels;
+
+    private final Consumer<T> onExpire;
+
+    private final Queue<Timeout<T>> pendingAdds = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout<T>> pendingCancels = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final long startMillis;
+
+    // 已处理到的 tick，仅 worker 线程读写
+    private long currentTick;
+
+    private volatile boolean running;
+
+    private Thread worker;
+
+    /**
+     * @param tickMillis 第0层每格的时长，也是到期精度
+     * @param wheelSize  每层格数，取2的幂
+     * @param levelCount 层数，可覆盖的最长时长为 tickMillis * wheelSize^levelCount，更远的放在最高层反复下放
+     * @param onExpire   到期回调
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(String name, long tickMillis, int wheelSize, int levelCount, Consumer<T> onExpire) {
+        if (Integer.bitCount(wheelSize) != 1 || wheelSize < 2) {
+            throw new IllegalArgumentException("wheelSize must be a power of 2: " + wheelSize);
+        }
+        if (tickMillis <= 0 || levelCount <= 0 || levelCount * Integer.numberOfTrailingZeros(wheelSize) > 62) {
+            throw new IllegalArgumentException("bad tickMillis/levelCount: " + tickMillis + "/" + levelCount);
+        }
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.onExpire = onExpire;
+        this.levels = new Bucket[levelCount][wheelSize];
+        for (Bucket<T>[] level : levels) {
+            for (int i = 0; i < wheelSize; i++) {
+                level[i] = new Bucket<>();
+            }
+        }
+        this.startMillis = System.currentTimeMillis();
+    }
+
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, name + "-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+    }
+
+    /**
+     * 添加定时器，已过期的在下一个 tick 回调
+     *
+     * @param deadlineMillis 到期时间，epoch 毫秒
+     */
+    public Timeout<T> schedule(T payload, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(this, payload, deadlineMillis);
+        size.incrementAndGet();
+        pendingAdds.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 等待中的定时器数
+     */
+    public int size() {
+        return size.get();
+    }
+
+    private void run() {
+        while (running) {
+            long targetTick = (System.currentTimeMillis() - startMillis) / tickMillis;
+            if (targetTick <= currentTick) {
+                try {
+                    Thread.sleep(startMillis + (currentTick + 1) * tickMillis - System.currentTimeMillis());
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IllegalArgumentException e) {
+                    // 负数睡眠，时钟已越过下一格
+                }
+                continue;
+            }
+            try {
+                drainCancels();
+                drainAdds();
+                // 线程被耽搁时逐格追上，保证高层定时器按顺序下放
+                while (currentTick < targetTick) {
+                    currentTick++;
+                    if ((currentTick & mask) == 0) {
+                        cascade(1);
+                    }
+                    expire(levels[0][(int) (currentTick & mask)]);
+                }
+            } catch (RuntimeException e) {
+                logger.error("timing wheel " + name + " tick failed", e);
+            }
+        }
+    }
+
+    private void drainAdds() {
+        Timeout<T> timeout;
+        while ((timeout = pendingAdds.poll()) != null) {
+            if (timeout.state.get() == Timeout.PENDING) {
+                // 当前 tick 已处理过，最早放到下一格
+                place(timeout, currentTick + 1);
+            }
+        }
+    }
+
+    private void drainCancels() {
+        Timeout<T> timeout;
+        while ((timeout = pendingCancels.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.unlink(timeout);
+            }
+        }
+    }
+
+    private void place(Timeout<T> timeout, long minTick) {
+        long tick = Math.max((timeout.deadline - startMillis + tickMillis - 1) / tickMillis, minTick);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < levels.length - 1 && delta >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        long maxDelta = (1L << (bits * (level + 1))) - 1;
+        if (delta > maxDelta) {
+            // 超出最高层范围，先放到最高层最远一格，下放时重新计算
+            tick = currentTick + maxDelta;
+        }
+        int index = (int) ((tick >>> (bits * level)) & mask);
+        levels[level][index].append(timeout);
+    }
+
+    /**
+     * 下放第 level 层当前格的定时器；该层也转完一圈时先下放更高一层
+     */
+    private void cascade(int level) {
+        if (level >= levels.length) {
+            return;
+        }
+        int index = (int) ((currentTick >>> (bits * level)) & mask);
+        if (index == 0) {
+            cascade(level + 1);
+        }
+        Bucket<T> bucket = levels[level][index];
+        Timeout<T> timeout = bucket.head;
+        bucket.clear();
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            if (timeout.state.get() == Timeout.PENDING) {
+                // 下放发生在处理当前格之前，恰好在当前 tick 到期的仍能赶上
+                place(timeout, currentTick);
+            }
+            timeout = next;
+        }
+    }
+
+    private void expire(Bucket<T> bucket) {
+        Timeout<T> timeout = bucket.head;
+        bucket.clear();
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            if (timeout.state.compareAndSet(Timeout.PENDING, Timeout.EXPIRED)) {
+                size.decrementAndGet();
+                try {
+                    onExpire.accept(timeout.payload);
+                } catch (RuntimeException e) {
+                    logger.error("timing wheel " + name + " expire callback failed", e);
+                }
+            }
+            timeout = next;
+        }
+    }
+
+    private static final class Bucket<T> {
+
+        Timeout<T> head;
+
+        Timeout<T> tail;
+
+        void append(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void unlink(Timeout<T> timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+
+    }
+
+    /**
+     * 定时器句柄
+     */
+    public static final class Timeout<T> {
+
+        static final int PENDING = 0;
+
+        static final int CANCELLED = 1;
+
+        static final int EXPIRED = 2;
+
+        private final TimingWheel<T> wheel;
+
+        private final T payload;
+
+        private final long deadline;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // 以下仅 worker 线程读写
+        private Timeout<T> prev;
+
+        private Timeout<T> next;
+
+        private Bucket<T> bucket;
+
+        Timeout(TimingWheel<T> wheel, T payload, long deadline) {
+            this.wheel = wheel;
+            this.payload = payload;
+            this.deadline = deadline;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * 取消定时器
+         *
+         * @return 已到期或已取消时返回false
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.size.decrementAndGet();
+            wheel.pendingCancels.add(this);
+            return true;
+        }
+
+    }
+
+}
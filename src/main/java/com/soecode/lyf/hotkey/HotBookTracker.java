@@ -0,0 +1,85 @@
+package com.soecode.lyf.hotkey;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按图书统计预约与详情请求的热点
+ * <p>
+ * 每秒 tick 一次，热点变化最迟一秒内通知到监听方；每 halfLifeSeconds 计数衰减一半。
+ */
+public class HotBookTracker {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final HotKeySketch appoint;
+
+    private final HotKeySketch detail;
+
+    private final int ticksPerDecay;
+
+    private final ScheduledExecutorService scheduler;
+
+    private long ticks;
+
+    public HotBookTracker(HotKeySketch appoint, HotKeySketch detail, int halfLifeSeconds) {
+        this.appoint = appoint;
+        this.detail = detail;
+        this.ticksPerDecay = Math.max(halfLifeSeconds, 1);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hot-book-tracker");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private void tick() {
+        try {
+            boolean decay = ++ticks % ticksPerDecay == 0;
+            appoint.tick(decay);
+            detail.tick(decay);
+        } catch (Exception e) {
+            logger.error("hot book tick failed", e);
+        }
+    }
+
+    public void recordAppoint(long bookId) {
+        appoint.record(bookId);
+    }
+
+    public void recordDetail(long bookId) {
+        detail.record(bookId);
+    }
+
+    public HotKeySketch getAppoint() {
+        return appoint;
+    }
+
+    public HotKeySketch getDetail() {
+        return detail;
+    }
+
+    public void addListener(HotKeyListener listener) {
+        appoint.addListener(listener);
+        detail.addListener(listener);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put(appoint.getName(), appoint.getTop());
+        stats.put(detail.getName(), detail.getTop());
+        return stats;
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+}
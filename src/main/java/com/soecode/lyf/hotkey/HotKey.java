@@ -0,0 +1,30 @@
+package com.soecode.lyf.hotkey;
+
+/**
+ * 一个热点键及其衰减计数估计
+ */
+public class HotKey {
+
+    private final long key;
+
+    private final long count;
+
+    public HotKey(long key, long count) {
+        this.key = key;
+        this.count = count;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "HotKey [key=" + key + ", count=" + count + "]";
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.soecode.lyf.hotkey;
+
+import java.util.Set;
+
+/**
+ * 热点变化回调，在统计线程上执行，须足够轻量
+ */
+public interface HotKeyListener {
+
+    /**
+     * @param sketch 统计名称，如 appoint、detail
+     * @param heated 新变热的键
+     * @param cooled 不再热的键
+     */
+    void hotKeysChanged(String sketch, Set<Long> heated, Set<Long> cooled);
+
+}
@@ -0,0 +1,188 @@
+package com.soecode.lyf.hotkey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点键统计：Count-Min Sketch 加 Top-K 候选集
+ * <p>
+ * 计数器是固定大小的 AtomicLongArray，记录一次只是 DEPTH 次原子自增，不加锁；
+ * 计数估计达到当前 Top-K 门槛的键才进入候选集，候选集大小有上限。
+ * 每个半衰期所有计数减半，计数近似于最近几个半衰期内的请求量，旧热点会自然冷却。
+ * 排序、淘汰候选、通知监听都在 tick() 中完成，不在请求线程上。
+ */
+public class HotKeySketch {
+
+    private static final int DEPTH = 4;
+
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final String name;
+
+    private final int width;
+
+    private final int mask;
+
+    private final AtomicLongArray counters;
+
+    private final int topK;
+
+    private final int maxCandidates;
+
+    // 衰减计数达到该值的键视为热点
+    private final long hotThreshold;
+
+    private final ConcurrentHashMap<Long, Candidate> candidates = new ConcurrentHashMap<>();
+
+    private final List<HotKeyListener> listeners = new CopyOnWriteArrayList<>();
+
+    // 进入候选集所需的最小估计值，即上次 tick 时第 K 名的计数
+    private volatile long admission = 1;
+
+    private volatile List<HotKey> top = Collections.emptyList();
+
+    private volatile Set<Long> hot = Collections.emptySet();
+
+    /**
+     * @param width 每行计数器个数，取2的幂
+     */
+    public HotKeySketch(String name, int width, int topK, long hotThreshold) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width must be a power of two: " + width);
+        }
+        this.name = name;
+        this.width = width;
+        this.mask = width - 1;
+        this.counters = new AtomicLongArray(DEPTH * width);
+        this.topK = topK;
+        this.maxCandidates = topK * 4;
+        this.hotThreshold = hotThreshold;
+    }
+
+    public void record(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            long value = counters.incrementAndGet(row * width + index(key, row));
+            if (value < estimate) {
+                estimate = value;
+            }
+        }
+        if (estimate < admission) {
+            return;
+        }
+        Candidate candidate = candidates.get(key);
+        if (candidate == null) {
+            if (candidates.size() >= maxCandidates) {
+                return;
+            }
+            candidate = candidates.computeIfAbsent(key, Candidate::new);
+        }
+        candidate.estimate = estimate;
+    }
+
+    public long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(row * width + index(key, row)));
+        }
+        return estimate;
+    }
+
+    private int index(long key, int row) {
+        long h = (key ^ SEEDS[row]) * 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    public boolean isHot(long key) {
+        return hot.contains(key);
+    }
+
+    public List<HotKey> getTop() {
+        return top;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void addListener(HotKeyListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 重排候选集、更新热点并通知监听
+     *
+     * @param decay 是否先把所有计数减半
+     */
+    void tick(boolean decay) {
+        if (decay) {
+            for (int i = 0; i < counters.length(); i++) {
+                long value;
+                do {
+                    value = counters.get(i);
+                } while (value != 0 && !counters.compareAndSet(i, value, value >>> 1));
+            }
+        }
+
+        List<Candidate> ranked = new ArrayList<>(candidates.values());
+        for (Candidate candidate : ranked) {
+            candidate.estimate = estimate(candidate.key);
+        }
+        ranked.sort((a, b) -> Long.compare(b.estimate, a.estimate));
+        for (int i = 0; i < ranked.size(); i++) {
+            Candidate candidate = ranked.get(i);
+            if (i >= maxCandidates / 2 || candidate.estimate == 0) {
+                candidates.remove(candidate.key, candidate);
+            }
+        }
+
+        List<HotKey> newTop = new ArrayList<>(Math.min(topK, ranked.size()));
+        Set<Long> newHot = new HashSet<>();
+        for (int i = 0; i < ranked.size() && i < topK; i++) {
+            Candidate candidate = ranked.get(i);
+            if (candidate.estimate == 0) {
+                break;
+            }
+            newTop.add(new HotKey(candidate.key, candidate.estimate));
+            if (candidate.estimate >= hotThreshold) {
+                newHot.add(candidate.key);
+            }
+        }
+        top = Collections.unmodifiableList(newTop);
+        admission = newTop.size() < topK ? 1 : Math.max(newTop.get(topK - 1).getCount(), 1);
+
+        Set<Long> previous = hot;
+        hot = Collections.unmodifiableSet(newHot);
+        if (!newHot.equals(previous) && !listeners.isEmpty()) {
+            Set<Long> heated = new HashSet<>(newHot);
+            heated.removeAll(previous);
+            Set<Long> cooled = new HashSet<>(previous);
+            cooled.removeAll(newHot);
+            for (HotKeyListener listener : listeners) {
+                listener.hotKeysChanged(name, heated, cooled);
+            }
+        }
+    }
+
+    private static final class Candidate {
+
+        final long key;
+
+        volatile long estimate;
+
+        Candidate(long key) {
+            this.key = key;
+        }
+
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.soecode.lyf.idempotent;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 幂等键结果缓存
+ * <p>
+ * 已完成的结果按 LRU 保存，超过容量淘汰最久未访问的，超过 ttl 视为过期；
+ * 同一个键的并发请求只执行一次，其余请求等待并共享第一次的结果。
+ */
+public class IdempotencyStore<V> {
+
+    private final int capacity;
+
+    private final long ttlMillis;
+
+    private final long waitMillis;
+
+    private final Map<String, Completed<V>> completed;
+
+    private final Map<String, CompletableFuture<V>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity   最多保存的结果数
+     * @param ttlMillis  结果保存时长
+     * @param waitMillis 重复请求等待首个请求完成的最长时间
+     */
+    public IdempotencyStore(int capacity, long ttlMillis, long waitMillis) {
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.waitMillis = waitMillis;
+        this.completed = new LinkedHashMap<String, Completed<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Completed<V>> eldest) {
+                return size() > IdempotencyStore.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * 按幂等键执行
+     *
+     * @param key       幂等键
+     * @param action    实际执行的操作
+     * @param cacheable 哪些结果可以缓存，不可缓存的结果（如系统异常）允许客户端重试
+     */
+    public V execute(String key, Supplier<V> action, Predicate<V> cacheable) {
+        V done = getCompleted(key);
+        if (done != null) {
+            return done;
+        }
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inflight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // 可能在 getCompleted 与 putIfAbsent 之间刚完成
+            done = getCompleted(key);
+            if (done == null) {
+                done = action.get();
+                if (done != null && cacheable.test(done)) {
+                    putCompleted(key, done);
+                }
+            }
+            mine.complete(done);
+            return done;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for duplicate request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("timeout waiting for duplicate request", e);
+        }
+    }
+
+    private V getCompleted(String key) {
+        synchronized (completed) {
+            Completed<V> entry = completed.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt < System.currentTimeMillis()) {
+                completed.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    private void putCompleted(String key, V value) {
+        long now = System.currentTimeMillis();
+        synchronized (completed) {
+            completed.put(key, new Completed<>(value, now + ttlMillis));
+            // 顺带清理链表头部已过期的结果
+            Iterator<Completed<V>> it = completed.values().iterator();
+            for (int i = 0; i < 8 && it.hasNext(); i++) {
+                if (it.next().expireAt < now) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (completed) {
+            return completed.size();
+        }
+    }
+
+    private static final class Completed<V> {
+
+        final V value;
+
+        final long expireAt;
+
+        Completed(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,316 @@
+package com.soecode.lyf.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于内存映射文件的预约日志
+ * <p>
+ * 文件头 64 字节：magic、版本、代数 generation、已应用位置 appliedOffset；
+ * 之后是定长 32 字节的记录：bookId、studentId、appointTime、generation、校验和。
+ * <p>
+ * 追加只写内存映射区，由刷盘线程把一段时间内的追加合并成一次 force()，
+ * 调用方等到自己的记录落盘后才返回，即组提交。
+ * 文件写满后等应用线程追平，再把 generation 加一从头复用，旧代的记录在恢复时会被忽略。
+ */
+public class AppointJournal {
+
+    private static final int MAGIC = 0x4C594A31;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+
+    private static final int RECORD_SIZE = 32;
+
+    private static final int GENERATION_POS = 8;
+
+    private static final int APPLIED_POS = 16;
+
+    private final MappedByteBuffer buffer;
+
+    private final long capacity;
+
+    private final long flushMillis;
+
+    private final Object lock = new Object();
+
+    private long generation;
+
+    // 已写入映射区的位置
+    private long writeOffset;
+
+    // 已落盘的位置
+    private long durableOffset;
+
+    // 已写入数据库的位置
+    private long appliedOffset;
+
+    // 启动时恢复出来的记录截止位置
+    private long recoveredOffset;
+
+    // 之前各代累计写入的字节数，base + 位置 在整个运行期间单调递增
+    private long base;
+
+    private volatile boolean running = true;
+
+    // 已接受但还未写入数据库的预约，用于拦截重复提交
+    private final Map<Key, Boolean> pending = new ConcurrentHashMap<>();
+
+    private final Thread flusher;
+
+    public AppointJournal(File file, long capacityBytes, long flushMillis) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("cannot create journal dir " + parent);
+        }
+        this.capacity = HEADER_SIZE + (capacityBytes - HEADER_SIZE) / RECORD_SIZE * RECORD_SIZE;
+        this.flushMillis = flushMillis;
+        // 映射建立后关闭文件句柄不影响映射区
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        recover();
+        this.flusher = new Thread(this::flushLoop, "appoint-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    private void recover() {
+        if (buffer.getInt(0) != MAGIC) {
+            generation = 1;
+            appliedOffset = HEADER_SIZE;
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            writeHeader();
+            buffer.force();
+        } else {
+            generation = buffer.getLong(GENERATION_POS);
+            appliedOffset = buffer.getLong(APPLIED_POS);
+        }
+        long offset = appliedOffset;
+        while (offset + RECORD_SIZE <= capacity && isValid(offset)) {
+            pending.put(new Key(buffer.getLong((int) offset), buffer.getLong((int) offset + 8)), Boolean.TRUE);
+            offset += RECORD_SIZE;
+        }
+        writeOffset = offset;
+        durableOffset = offset;
+        recoveredOffset = offset;
+    }
+
+    private boolean isValid(long offset) {
+        int pos = (int) offset;
+        long bookId = buffer.getLong(pos);
+        long studentId = buffer.getLong(pos + 8);
+        long appointTime = buffer.getLong(pos + 16);
+        int gen = buffer.getInt(pos + 24);
+        int checksum = buffer.getInt(pos + 28);
+        return gen == (int) generation && checksum == checksum(bookId, studentId, appointTime, gen);
+    }
+
+    private static int checksum(long bookId, long studentId, long appointTime, int gen) {
+        long h = 0x9E3779B97F4A7C15L;
+        h = (h ^ bookId) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ studentId) * 0x94D049BB133111EBL;
+        h = (h ^ appointTime) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ gen) * 0x94D049BB133111EBL;
+        int result = (int) (h ^ (h >>> 32));
+        return result == 0 ? 1 : result;
+    }
+
+    private void writeHeader() {
+        buffer.putLong(GENERATION_POS, generation);
+        buffer.putLong(APPLIED_POS, appliedOffset);
+    }
+
+    /**
+     * 登记一条预约，已有相同的未应用预约时返回false
+     */
+    public boolean reserve(long bookId, long studentId) {
+        return pending.putIfAbsent(new Key(bookId, studentId), Boolean.TRUE) == null;
+    }
+
+    /**
+     * 撤销 reserve 的登记，用于追加失败或库中已有该预约时
+     */
+    public void unreserve(long bookId, long studentId) {
+        pending.remove(new Key(bookId, studentId));
+    }
+
+    /**
+     * 追加一条记录，只写入映射区，不等待落盘
+     *
+     * @return 记录的结束位置
+     */
+    public long append(long bookId, long studentId, long appointTime) throws InterruptedException {
+        synchronized (lock) {
+            while (writeOffset + RECORD_SIZE > capacity) {
+                if (appliedOffset == writeOffset && durableOffset == writeOffset) {
+                    rewind();
+                } else {
+                    lock.wait();
+                }
+            }
+            int pos = (int) writeOffset;
+            int gen = (int) generation;
+            buffer.putLong(pos, bookId);
+            buffer.putLong(pos + 8, studentId);
+            buffer.putLong(pos + 16, appointTime);
+            buffer.putInt(pos + 24, gen);
+            buffer.putInt(pos + 28, checksum(bookId, studentId, appointTime, gen));
+            writeOffset += RECORD_SIZE;
+            lock.notifyAll();
+            return base + writeOffset;
+        }
+    }
+
+    /**
+     * 等待 append 返回的位置之前的记录落盘
+     *
+     * @return 超时返回false
+     */
+    public boolean awaitDurable(long position, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            while (base + durableOffset < position) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0 || !running) {
+                    return false;
+                }
+                lock.wait(wait);
+            }
+        }
+        return true;
+    }
+
+    private void rewind() {
+        base += writeOffset - HEADER_SIZE;
+        generation++;
+        writeOffset = HEADER_SIZE;
+        durableOffset = HEADER_SIZE;
+        appliedOffset = HEADER_SIZE;
+        recoveredOffset = HEADER_SIZE;
+        writeHeader();
+        buffer.force();
+    }
+
+    private void flushLoop() {
+        while (running) {
+            long target;
+            try {
+                synchronized (lock) {
+                    while (running && durableOffset == writeOffset) {
+                        lock.wait();
+                    }
+                }
+                // 攒一批再刷盘
+                if (flushMillis > 0) {
+                    Thread.sleep(flushMillis);
+                }
+                synchronized (lock) {
+                    target = writeOffset;
+                }
+                buffer.force();
+                synchronized (lock) {
+                    if (target > durableOffset) {
+                        durableOffset = target;
+                    }
+                    lock.notifyAll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 读取已落盘但未写入数据库的记录，没有时最多等待 waitMillis
+     */
+    public List<JournalEntry> readUnapplied(int max, long waitMillis) throws InterruptedException {
+        List<JournalEntry> entries = new ArrayList<>();
+        synchronized (lock) {
+            if (appliedOffset == durableOffset && waitMillis > 0) {
+                lock.wait(waitMillis);
+            }
+            long offset = appliedOffset;
+            while (offset < durableOffset && entries.size() < max) {
+                int pos = (int) offset;
+                offset += RECORD_SIZE;
+                entries.add(new JournalEntry(offset, buffer.getLong(pos), buffer.getLong(pos + 8),
+                        buffer.getLong(pos + 16), offset <= recoveredOffset));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 标记记录已写入数据库，须在写库之后调用，之后的重复提交由 JournalAppointer 查库拦截
+     */
+    public void markApplied(List<JournalEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            long end = entries.get(entries.size() - 1).getEndOffset();
+            if (end > appliedOffset) {
+                appliedOffset = end;
+                buffer.putLong(APPLIED_POS, appliedOffset);
+            }
+            lock.notifyAll();
+        }
+        for (JournalEntry entry : entries) {
+            pending.remove(new Key(entry.getBookId(), entry.getStudentId()));
+        }
+    }
+
+    public long getBacklog() {
+        synchronized (lock) {
+            return (writeOffset - appliedOffset) / RECORD_SIZE;
+        }
+    }
+
+    public void close() {
+        running = false;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        flusher.interrupt();
+        buffer.force();
+    }
+
+    private static final class Key {
+
+        private final long bookId;
+
+        private final long studentId;
+
+        Key(long bookId, long studentId) {
+            this.bookId = bookId;
+            this.studentId = studentId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return bookId == other.bookId && studentId == other.studentId;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (bookId * 31 + studentId);
+        }
+
+    }
+
+}
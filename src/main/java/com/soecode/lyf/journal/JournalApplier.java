@@ -0,0 +1,121 @@
+package com.soecode.lyf.journal;
+
+import com.soecode.lyf.dao.AppointmentDao;
+import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.event.BookChangeEvents;
+import com.soecode.lyf.stock.StockAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 后台把预约日志批量写入 appointment 表
+ * <p>
+ * 同一本书的记录合并成一条多值 INSERT ignore，重复写入天然幂等。
+ * 本次运行中新追加的记录若被判定为重复预约，归还其占用的库存；
+ * 启动时恢复出的记录可能在崩溃前已经写入过，不做归还，最多少卖不会多卖。
+ */
+public class JournalApplier implements Runnable {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final AppointJournal journal;
+
+    private final AppointmentDao appointmentDao;
+
+    private final StockAllocator stockAllocator;
+
+    private final BookChangeEvents bookChangeEvents;
+
+    private final int batchSize;
+
+    private volatile boolean running = true;
+
+    private Thread thread;
+
+    public JournalApplier(AppointJournal journal, AppointmentDao appointmentDao, StockAllocator stockAllocator,
+                          BookChangeEvents bookChangeEvents, int batchSize) {
+        this.journal = journal;
+        this.appointmentDao = appointmentDao;
+        this.stockAllocator = stockAllocator;
+        this.bookChangeEvents = bookChangeEvents;
+        this.batchSize = batchSize;
+    }
+
+    public void start() {
+        thread = new Thread(this, "appoint-journal-applier");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        long backoff = 100;
+        while (running) {
+            try {
+                List<JournalEntry> entries = journal.readUnapplied(batchSize, 50);
+                if (entries.isEmpty()) {
+                    continue;
+                }
+                apply(entries);
+                journal.markApplied(entries);
+                backoff = 100;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("apply appoint journal failed, retry in " + backoff + " ms", e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, 10000);
+            }
+        }
+    }
+
+    private void apply(List<JournalEntry> entries) {
+        Map<Long, List<JournalEntry>> byBook = new LinkedHashMap<>();
+        for (JournalEntry entry : entries) {
+            byBook.computeIfAbsent(entry.getBookId(), k -> new ArrayList<>()).add(entry);
+        }
+        for (Map.Entry<Long, List<JournalEntry>> group : byBook.entrySet()) {
+            List<Appointment> recovered = new ArrayList<>();
+            List<Appointment> fresh = new ArrayList<>();
+            for (JournalEntry entry : group.getValue()) {
+                Appointment appointment = new Appointment(entry.getBookId(), entry.getStudentId(), new Date(entry.getAppointTime()));
+                (entry.isRecovered() ? recovered : fresh).add(appointment);
+            }
+            // 恢复出的记录先写，忽略的行数与库存无关
+            if (!recovered.isEmpty()) {
+                appointmentDao.insertAppointments(recovered);
+            }
+            if (fresh.isEmpty()) {
+                continue;
+            }
+            // 新追加的记录单独写，被忽略的每一行都是重复预约，归还其库存
+            int duplicated = fresh.size() - appointmentDao.insertAppointments(fresh);
+            for (int i = 0; i < duplicated; i++) {
+                stockAllocator.release(group.getKey());
+            }
+            if (duplicated > 0) {
+                bookChangeEvents.stockChanged(group.getKey(), duplicated);
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+}
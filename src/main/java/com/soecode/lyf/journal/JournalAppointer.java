@@ -0,0 +1,116 @@
+package com.soecode.lyf.journal;
+
+import com.soecode.lyf.dao.AppointmentDao;
+import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.event.BookChangeEvents;
+import com.soecode.lyf.exception.AppointException;
+import com.soecode.lyf.stock.StockAllocator;
+
+import java.util.Date;
+
+/**
+ * 日志模式下的预约入口
+ * <p>
+ * 未开启日志模式时 isEnabled() 为false，预约仍同步写库。
+ */
+public class JournalAppointer {
+
+    private final AppointJournal journal;
+
+    private final JournalApplier applier;
+
+    private final AppointmentDao appointmentDao;
+
+    private final StockAllocator stockAllocator;
+
+    private final BookChangeEvents bookChangeEvents;
+
+    private final long syncTimeoutMillis;
+
+    public JournalAppointer(AppointJournal journal, JournalApplier applier, AppointmentDao appointmentDao,
+                            StockAllocator stockAllocator, BookChangeEvents bookChangeEvents, long syncTimeoutMillis) {
+        this.journal = journal;
+        this.applier = applier;
+        this.appointmentDao = appointmentDao;
+        this.stockAllocator = stockAllocator;
+        this.bookChangeEvents = bookChangeEvents;
+        this.syncTimeoutMillis = syncTimeoutMillis;
+    }
+
+    public static JournalAppointer disabled() {
+        return new JournalAppointer(null, null, null, null, null, 0);
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * 写入预约日志并等待落盘，库存须由调用方事先扣好
+     * <p>
+     * 未写库的重复预约由日志拦截，已写库的查主库拦截，应用线程先写库再移出未写库集合，两者之间没有空档。
+     * 重复预约或记录未能写入时归还库存并发出 +1 的库存事件；记录已写入但等待落盘超时时不归还，
+     * 该记录之后仍会被写库，由调用方按系统异常处理。
+     *
+     * @return 预约记录；已有相同的预约时返回null
+     */
+    public Appointment append(long bookId, long studentId) {
+        if (!journal.reserve(bookId, studentId)) {
+            giveBack(bookId);
+            return null;
+        }
+        boolean exists;
+        try {
+            exists = appointmentDao.countByKey(bookId, studentId) > 0;
+        } catch (RuntimeException e) {
+            journal.unreserve(bookId, studentId);
+            giveBack(bookId);
+            throw e;
+        }
+        if (exists) {
+            journal.unreserve(bookId, studentId);
+            giveBack(bookId);
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        long position;
+        try {
+            position = journal.append(bookId, studentId, now);
+        } catch (InterruptedException e) {
+            journal.unreserve(bookId, studentId);
+            giveBack(bookId);
+            Thread.currentThread().interrupt();
+            throw new AppointException("interrupted while appending journal");
+        }
+        boolean durable;
+        try {
+            durable = journal.awaitDurable(position, syncTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            durable = false;
+        }
+        if (!durable) {
+            throw new AppointException("journal sync timeout");
+        }
+        return new Appointment(bookId, studentId, new Date(now));
+    }
+
+    private void giveBack(long bookId) {
+        stockAllocator.release(bookId);
+        bookChangeEvents.stockChanged(bookId, 1);
+    }
+
+    public long getBacklog() {
+        return journal == null ? 0 : journal.getBacklog();
+    }
+
+    public void close() {
+        if (applier != null) {
+            applier.stop();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.soecode.lyf.journal;
+
+/**
+ * 预约日志中的一条记录
+ */
+public class JournalEntry {
+
+    // 记录在日志文件中的结束位置
+    private final long endOffset;
+
+    private final long bookId;
+
+    private final long studentId;
+
+    private final long appointTime;
+
+    // 是否为启动时恢复出来的记录，恢复记录可能已经写入过数据库
+    private final boolean recovered;
+
+    public JournalEntry(long endOffset, long bookId, long studentId, long appointTime, boolean recovered) {
+        this.endOffset = endOffset;
+        this.bookId = bookId;
+        this.studentId = studentId;
+        this.appointTime = appointTime;
+        this.recovered = recovered;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public long getBookId() {
+        return bookId;
+    }
+
+    public long getStudentId() {
+        return studentId;
+    }
+
+    public long getAppointTime() {
+        return appointTime;
+    }
+
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalEntry [bookId=" + bookId + ", studentId=" + studentId + ", appointTime=" + appointTime
+                + ", endOffset=" + endOffset + ", recovered=" + recovered + "]";
+    }
+
+}
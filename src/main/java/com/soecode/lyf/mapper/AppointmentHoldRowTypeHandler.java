@@ -0,0 +1,47 @@
+package com.soecode.lyf.mapper;
+
+import com.soecode.lyf.entity.AppointmentHold;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * AppointmentHold 行映射器，由 RowMapperGenerator 生成，请勿手工修改
+ * <p>
+ * 按列标签读取：bookId, studentId, holdUntil
+ */
+public class AppointmentHoldRowTypeHandler implements TypeHandler<AppointmentHold> {
+
+    @Override
+    public void setParameter(PreparedStatement ps, int i, AppointmentHold parameter, JdbcType jdbcType) throws SQLException {
+        throw new SQLException("AppointmentHoldRowTypeHandler only maps result rows");
+    }
+
+    @Override
+    public AppointmentHold getResult(ResultSet rs, String columnName) throws SQLException {
+        return map(rs);
+    }
+
+    @Override
+    public AppointmentHold getResult(ResultSet rs, int columnIndex) throws SQLException {
+        return map(rs);
+    }
+
+    @Override
+    public AppointmentHold getResult(CallableStatement cs, int columnIndex) throws SQLException {
+        throw new SQLException("AppointmentHoldRowTypeHandler does not support callable statements");
+    }
+
+    public static AppointmentHold map(ResultSet rs) throws SQLException {
+        AppointmentHold row = new AppointmentHold();
+        row.setBookId(rs.getLong("bookId"));
+        row.setStudentId(rs.getLong("studentId"));
+        row.setHoldUntil(rs.getTimestamp("holdUntil"));
+        return row;
+    }
+
+}
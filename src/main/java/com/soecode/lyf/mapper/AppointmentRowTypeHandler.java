@@ -0,0 +1,47 @@
+package com.soecode.lyf.mapper;
+
+import com.soecode.lyf.entity.Appointment;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Appointment 行映射器，由 RowMapperGenerator 生成，请勿手工修改
+ * <p>
+ * 按列标签读取：bookId, studentId, appointTime
+ */
+public class AppointmentRowTypeHandler implements TypeHandler<Appointment> {
+
+    @Override
+    public void setParameter(PreparedStatement ps, int i, Appointment parameter, JdbcType jdbcType) throws SQLException {
+        throw new SQLException("AppointmentRowTypeHandler only maps result rows");
+    }
+
+    @Override
+    public Appointment getResult(ResultSet rs, String columnName) throws SQLException {
+        return map(rs);
+    }
+
+    @Override
+    public Appointment getResult(ResultSet rs, int columnIndex) throws SQLException {
+        return map(rs);
+    }
+
+    @Override
+    public Appointment getResult(CallableStatement cs, int columnIndex) throws SQLException {
+        throw new SQLException("AppointmentRowTypeHandler does not support callable statements");
+    }
+
+    public static Appointment map(ResultSet rs) throws SQLException {
+        Appointment row = new Appointment();
+        row.setBookId(rs.getLong("bookId"));
+        row.setStudentId(rs.getLong("studentId"));
+        row.setAppointTime(rs.getTimestamp("appointTime"));
+        return row;
+    }
+
+}
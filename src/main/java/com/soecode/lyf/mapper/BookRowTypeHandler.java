@@ -0,0 +1,47 @@
+package com.soecode.lyf.mapper;
+
+import com.soecode.lyf.entity.Book;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Book 行映射器，由 RowMapperGenerator 生成，请勿手工修改
+ * <p>
+ * 按列标签读取：bookId, name, number
+ */
+public class BookRowTypeHandler implements TypeHandler<Book> {
+
+    @Override
+    public void setParameter(PreparedStatement ps, int i, Book parameter, JdbcType jdbcType) throws SQLException {
+        throw new SQLException("BookRowTypeHandler only maps result rows");
+    }
+
+    @Override
+    public Book getResult(ResultSet rs, String columnName) throws SQLException {
+        return map(rs);
+    }
+
+    @Override
+    public Book getResult(ResultSet rs, int columnIndex) throws SQLException {
+        return map(rs);
+    }
+
+    @Override
+    public Book getResult(CallableStatement cs, int columnIndex) throws SQLException {
+        throw new SQLException("BookRowTypeHandler does not support callable statements");
+    }
+
+    public static Book map(ResultSet rs) throws SQLException {
+        Book row = new Book();
+        row.setBookId(rs.getLong("bookId"));
+        row.setName(rs.getString("name"));
+        row.setNumber(rs.getInt("number"));
+        return row;
+    }
+
+}
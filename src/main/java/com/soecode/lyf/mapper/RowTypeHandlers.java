@@ -0,0 +1,27 @@
+package com.soecode.lyf.mapper;
+
+import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.entity.AppointmentHold;
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.entity.WaitlistEntry;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * 注册所有实体行映射器，由 RowMapperGenerator 生成，请勿手工修改
+ * <p>
+ * 结果类型注册了 TypeHandler 后，MyBatis 直接用它构造整行对象，跳过自动映射。
+ */
+public final class RowTypeHandlers {
+
+    private RowTypeHandlers() {
+    }
+
+    public static RowTypeHandlers registerAll(TypeHandlerRegistry registry) {
+        registry.register(Appointment.class, new AppointmentRowTypeHandler());
+        registry.register(AppointmentHold.class, new AppointmentHoldRowTypeHandler());
+        registry.register(Book.class, new BookRowTypeHandler());
+        registry.register(WaitlistEntry.class, new WaitlistEntryRowTypeHandler());
+        return new RowTypeHandlers();
+    }
+
+}
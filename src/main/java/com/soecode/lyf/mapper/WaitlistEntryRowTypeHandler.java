@@ -0,0 +1,47 @@
+package com.soecode.lyf.mapper;
+
+import com.soecode.lyf.entity.WaitlistEntry;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * WaitlistEntry 行映射器，由 RowMapperGenerator 生成，请勿手工修改
+ * <p>
+ * 按列标签读取：bookId, studentId, seq
+ */
+public class WaitlistEntryRowTypeHandler implements TypeHandler<WaitlistEntry> {
+
+    @Override
+    public void setParameter(PreparedStatement ps, int i, WaitlistEntry parameter, JdbcType jdbcType) throws SQLException {
+        throw new SQLException("WaitlistEntryRowTypeHandler only maps result rows");
+    }
+
+    @Override
+    public WaitlistEntry getResult(ResultSet rs, String columnName) throws SQLException {
+        return map(rs);
+    }
+
+    @Override
+    public WaitlistEntry getResult(ResultSet rs, int columnIndex) throws SQLException {
+        return map(rs);
+    }
+
+    @Override
+    public WaitlistEntry getResult(CallableStatement cs, int columnIndex) throws SQLException {
+        throw new SQLException("WaitlistEntryRowTypeHandler does not support callable statements");
+    }
+
+    public static WaitlistEntry map(ResultSet rs) throws SQLException {
+        WaitlistEntry row = new WaitlistEntry();
+        row.setBookId(rs.getLong("bookId"));
+        row.setStudentId(rs.getLong("studentId"));
+        row.setSeq(rs.getLong("seq"));
+        return row;
+    }
+
+}
@@ -0,0 +1,206 @@
+package com.soecode.lyf.mapper.gen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 行映射器代码生成器
+ * <p>
+ * 为 com.soecode.lyf.entity 下的每个实体生成一个 TypeHandler：
+ * 按字段名作为列标签读取 ResultSet，直接调用 setter 赋值，不走 MyBatis 的反射自动映射。
+ * 因此 DAO 中查询该实体的 SELECT 须包含与各字段同名的列（大小写不敏感），列的顺序和多出的列不影响结果；
+ * 缺列时驱动直接抛出 SQLException，不会把别的列静默读进字段。
+ * <p>
+ * 实体有变动后重新执行：
+ * <pre>
+ *   mvn compile exec:java -Dexec.mainClass=com.soecode.lyf.mapper.gen.RowMapperGenerator
+ * </pre>
+ */
+public class RowMapperGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowMapperGenerator.class);
+
+    private static final String ENTITY_PACKAGE = "com.soecode.lyf.entity";
+
+    private static final String TARGET_PACKAGE = "com.soecode.lyf.mapper";
+
+    public static void main(String[] args) throws Exception {
+        File sourceRoot = new File(args.length > 0 ? args[0] : "src/main/java");
+        File targetDir = new File(sourceRoot, TARGET_PACKAGE.replace('.', '/'));
+        if (!targetDir.exists() && !targetDir.mkdirs()) {
+            throw new IOException("cannot create " + targetDir);
+        }
+
+        List<Class<?>> entities = scanEntities();
+        List<String> handlers = new ArrayList<>();
+        for (Class<?> entity : entities) {
+            String handler = entity.getSimpleName() + "RowTypeHandler";
+            write(new File(targetDir, handler + ".java"), generateHandler(entity, handler));
+            handlers.add(handler);
+        }
+        write(new File(targetDir, "RowTypeHandlers.java"), generateRegistry(entities, handlers));
+        logger.info("generated " + handlers + " into " + targetDir);
+    }
+
+    private static List<Class<?>> scanEntities() throws Exception {
+        URL url = RowMapperGenerator.class.getClassLoader().getResource(ENTITY_PACKAGE.replace('.', '/'));
+        if (url == null || !"file".equals(url.getProtocol())) {
+            throw new IllegalStateException("entity classes not found on classpath: " + url);
+        }
+        String[] files = new File(url.toURI()).list();
+        if (files == null) {
+            throw new IllegalStateException("cannot list " + url);
+        }
+        Arrays.sort(files);
+        List<Class<?>> entities = new ArrayList<>();
+        for (String file : files) {
+            if (file.endsWith(".class") && !file.contains("$")) {
+                entities.add(Class.forName(ENTITY_PACKAGE + "." + file.substring(0, file.length() - ".class".length())));
+            }
+        }
+        return entities;
+    }
+
+    private static List<Field> mappedFields(Class<?> entity) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : entity.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                continue;
+            }
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    static String generateHandler(Class<?> entity, String handler) {
+        String type = entity.getSimpleName();
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(TARGET_PACKAGE).append(";\n\n");
+        sb.append("import ").append(entity.getName()).append(";\n");
+        sb.append("import org.apache.ibatis.type.JdbcType;\n");
+        sb.append("import org.apache.ibatis.type.TypeHandler;\n\n");
+        sb.append("import java.sql.CallableStatement;\n");
+        sb.append("import java.sql.PreparedStatement;\n");
+        sb.append("import java.sql.ResultSet;\n");
+        sb.append("import java.sql.SQLException;\n\n");
+        sb.append("/**\n");
+        sb.append(" * ").append(type).append(" 行映射器，由 RowMapperGenerator 生成，请勿手工修改\n");
+        sb.append(" * <p>\n");
+        sb.append(" * 按列标签读取：");
+        List<Field> fields = mappedFields(entity);
+        for (int i = 0; i < fields.size(); i++) {
+            sb.append(i == 0 ? "" : ", ").append(fields.get(i).getName());
+        }
+        sb.append("\n */\n");
+        sb.append("public class ").append(handler).append(" implements TypeHandler<").append(type).append("> {\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public void setParameter(PreparedStatement ps, int i, ").append(type)
+                .append(" parameter, JdbcType jdbcType) throws SQLException {\n");
+        sb.append("        throw new SQLException(\"").append(handler).append(" only maps result rows\");\n");
+        sb.append("    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public ").append(type).append(" getResult(ResultSet rs, String columnName) throws SQLException {\n");
+        sb.append("        return map(rs);\n");
+        sb.append("    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public ").append(type).append(" getResult(ResultSet rs, int columnIndex) throws SQLException {\n");
+        sb.append("        return map(rs);\n");
+        sb.append("    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append("    public ").append(type).append(" getResult(CallableStatement cs, int columnIndex) throws SQLException {\n");
+        sb.append("        throw new SQLException(\"").append(handler).append(" does not support callable statements\");\n");
+        sb.append("    }\n\n");
+
+        sb.append("    public static ").append(type).append(" map(ResultSet rs) throws SQLException {\n");
+        sb.append("        ").append(type).append(" row = new ").append(type).append("();\n");
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            sb.append("        row.set").append(capitalize(field.getName())).append("(")
+                    .append(readColumn(field)).append(");\n");
+        }
+        sb.append("        return row;\n");
+        sb.append("    }\n\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static String readColumn(Field field) {
+        Class<?> type = field.getType();
+        String label = "\"" + field.getName() + "\"";
+        if (type == long.class) {
+            return "rs.getLong(" + label + ")";
+        }
+        if (type == int.class) {
+            return "rs.getInt(" + label + ")";
+        }
+        if (type == String.class) {
+            return "rs.getString(" + label + ")";
+        }
+        if (type == Date.class) {
+            return "rs.getTimestamp(" + label + ")";
+        }
+        if (type == boolean.class) {
+            return "rs.getBoolean(" + label + ")";
+        }
+        if (type == double.class) {
+            return "rs.getDouble(" + label + ")";
+        }
+        throw new IllegalArgumentException("unsupported field type " + type + " of " + field);
+    }
+
+    static String generateRegistry(List<Class<?>> entities, List<String> handlers) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(TARGET_PACKAGE).append(";\n\n");
+        for (Class<?> entity : entities) {
+            sb.append("import ").append(entity.getName()).append(";\n");
+        }
+        sb.append("import org.apache.ibatis.type.TypeHandlerRegistry;\n\n");
+        sb.append("/**\n");
+        sb.append(" * 注册所有实体行映射器，由 RowMapperGenerator 生成，请勿手工修改\n");
+        sb.append(" * <p>\n");
+        sb.append(" * 结果类型注册了 TypeHandler 后，MyBatis 直接用它构造整行对象，跳过自动映射。\n");
+        sb.append(" */\n");
+        sb.append("public final class RowTypeHandlers {\n\n");
+        sb.append("    private RowTypeHandlers() {\n");
+        sb.append("    }\n\n");
+        sb.append("    public static RowTypeHandlers registerAll(TypeHandlerRegistry registry) {\n");
+        for (int i = 0; i < entities.size(); i++) {
+            sb.append("        registry.register(").append(entities.get(i).getSimpleName()).append(".class, new ")
+                    .append(handlers.get(i)).append("());\n");
+        }
+        sb.append("        return new RowTypeHandlers();\n");
+        sb.append("    }\n\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            writer.write(content);
+        }
+    }
+
+}
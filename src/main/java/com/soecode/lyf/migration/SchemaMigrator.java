@@ -0,0 +1,324 @@
+package com.soecode.lyf.migration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * 启动时按版本执行建表迁移
+ * <p>
+ * 迁移脚本放在 classpath 的 location 目录下，按 migrations.list 中的顺序执行；
+ * 已执行的版本及其校验和记在 schema_version 表，脚本被改动时拒绝启动。
+ * 多实例同时启动时，用 schema_version_lock 表中一行的 SELECT ... FOR UPDATE 串行执行。
+ * MySQL 的 DDL 会隐式提交，脚本中途失败时已执行的语句不会回滚，须人工处理后重启。
+ * <p>
+ * 已有表但没有 schema_version 的旧库，不大于 baseline 的脚本视为已执行，只记录不执行；
+ * 未指定 baseline 时，已有 book 和 appointment 两张表的库按 V1 基线，即引入迁移前手工建表的库。
+ */
+public class SchemaMigrator {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final String HISTORY_TABLE = "schema_version";
+
+    private static final String LOCK_TABLE = "schema_version_lock";
+
+    private static final String MANIFEST = "migrations.list";
+
+    // 引入迁移前手工建的表，对应 V1
+    private static final String[] LEGACY_TABLES = {"book", "appointment"};
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private final DataSource dataSource;
+
+    private final String location;
+
+    private final int baselineVersion;
+
+    /**
+     * @param location        classpath 目录，如 db/migration
+     * @param baselineVersion 旧库基线版本，0 表示没有基线
+     */
+    public SchemaMigrator(DataSource dataSource, String location, int baselineVersion) {
+        this.dataSource = dataSource;
+        this.location = location;
+        this.baselineVersion = baselineVersion;
+    }
+
+    /**
+     * @return 本次执行的版本数
+     */
+    public int migrate() throws SQLException, IOException {
+        List<Migration> migrations = loadMigrations();
+        try (Connection lock = dataSource.getConnection();
+             Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(true);
+            createTables(conn);
+            lock.setAutoCommit(false);
+            try {
+                try (Statement stmt = lock.createStatement()) {
+                    stmt.executeQuery("SELECT id FROM " + LOCK_TABLE + " WHERE id = 1 FOR UPDATE").close();
+                }
+                return migrate(conn, migrations);
+            } finally {
+                lock.rollback();
+            }
+        }
+    }
+
+    private int migrate(Connection conn, List<Migration> migrations) throws SQLException, IOException {
+        Map<Integer, Long> applied = queryApplied(conn);
+        int baseline = applied.isEmpty() ? baselineFor(conn) : 0;
+        if (baseline > 0) {
+            for (Migration migration : migrations) {
+                if (migration.version <= baseline) {
+                    record(conn, migration, migration.description + " (baseline)", 0);
+                    applied.put(migration.version, migration.checksum);
+                }
+            }
+            logger.info("schema baselined at version " + baseline);
+        }
+
+        int count = 0;
+        int latest = 0;
+        for (Migration migration : migrations) {
+            latest = migration.version;
+            Long checksum = applied.remove(migration.version);
+            if (checksum != null) {
+                if (checksum != migration.checksum) {
+                    throw new IllegalStateException("migration " + migration.fileName
+                            + " was changed after it was applied, add a new version instead");
+                }
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            for (String sql : readScript(location + "/" + migration.fileName)) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    throw new IllegalStateException("migration " + migration.fileName + " failed at: " + sql.trim(), e);
+                }
+            }
+            int cost = (int) (System.currentTimeMillis() - start);
+            record(conn, migration, migration.description, cost);
+            logger.info("schema migrated to version " + migration.version + " (" + migration.description + "), cost=" + cost + "ms");
+            count++;
+        }
+        if (!applied.isEmpty()) {
+            // 数据库已由更新的代码迁移过，如滚动发布期间旧实例启动
+            logger.warn("database has versions unknown to this build: " + applied.keySet());
+        }
+        logger.info("schema is at version " + latest + ", applied " + count + " migration(s)");
+        return count;
+    }
+
+    /**
+     * 表为空时执行脚本，用于写入示例数据
+     *
+     * @return 是否执行了脚本
+     */
+    public boolean runIfEmpty(String table, String resource) throws SQLException, IOException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(true);
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                if (rs.next() && rs.getLong(1) > 0) {
+                    return false;
+                }
+            }
+            for (String sql : readScript(resource)) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(sql);
+                }
+            }
+            logger.info("loaded " + resource + " into empty table " + table);
+            return true;
+        }
+    }
+
+    private void createTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " ("
+                    + " version INT NOT NULL,"
+                    + " description VARCHAR(200) NOT NULL,"
+                    + " checksum BIGINT NOT NULL,"
+                    + " installedOn TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,"
+                    + " executionMillis INT NOT NULL,"
+                    + " PRIMARY KEY (version))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + LOCK_TABLE + " (id INT NOT NULL, PRIMARY KEY (id))");
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + LOCK_TABLE + " WHERE id = 1")) {
+            if (rs.next() && rs.getLong(1) > 0) {
+                return;
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO " + LOCK_TABLE + " (id) VALUES (1)");
+        } catch (SQLException e) {
+            // 其他实例同时插入了锁行
+            logger.debug("lock row already created: " + e.getMessage());
+        }
+    }
+
+    private Map<Integer, Long> queryApplied(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM " + HISTORY_TABLE)) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    private void record(Connection conn, Migration migration, String description, int executionMillis) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO " + HISTORY_TABLE
+                + " (version, description, checksum, executionMillis) VALUES (?, ?, ?, ?)")) {
+            ps.setInt(1, migration.version);
+            ps.setString(2, description);
+            ps.setLong(3, migration.checksum);
+            ps.setInt(4, executionMillis);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * 没有执行记录时的基线版本，空库为0
+     */
+    private int baselineFor(Connection conn) {
+        if (baselineVersion > 0) {
+            return baselineVersion;
+        }
+        int existing = 0;
+        for (String table : LEGACY_TABLES) {
+            if (tableExists(conn, table)) {
+                existing++;
+            }
+        }
+        if (existing == LEGACY_TABLES.length) {
+            logger.warn("database has legacy tables but no " + HISTORY_TABLE + ", baselining at version 1");
+            return 1;
+        }
+        if (existing > 0) {
+            throw new IllegalStateException("database has some tables but no " + HISTORY_TABLE
+                    + ", set jdbc.migration.baseline to the version it already matches");
+        }
+        return 0;
+    }
+
+    private static boolean tableExists(Connection conn, String table) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeQuery("SELECT 1 FROM " + table + " WHERE 1 = 0").close();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private List<Migration> loadMigrations() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        for (String line : readLines(location + "/" + MANIFEST)) {
+            String fileName = line.trim();
+            if (fileName.isEmpty() || fileName.startsWith("#")) {
+                continue;
+            }
+            Matcher matcher = FILE_NAME.matcher(fileName);
+            if (!matcher.matches()) {
+                throw new IllegalStateException("bad migration file name: " + fileName);
+            }
+            int version = Integer.parseInt(matcher.group(1));
+            if (!migrations.isEmpty() && version <= migrations.get(migrations.size() - 1).version) {
+                throw new IllegalStateException("migration versions must increase: " + fileName);
+            }
+            migrations.add(new Migration(version, matcher.group(2).replace('_', ' '), fileName,
+                    checksum(readLines(location + "/" + fileName))));
+        }
+        return migrations;
+    }
+
+    private static long checksum(List<String> lines) {
+        CRC32 crc = new CRC32();
+        for (String line : lines) {
+            crc.update(line.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 按行尾分号拆分语句，跳过 -- 注释行
+     */
+    public static List<String> readScript(String resource) throws IOException {
+        List<String> statements = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (String line : readLines(resource)) {
+            if (line.trim().startsWith("--")) {
+                continue;
+            }
+            sb.append(line).append('\n');
+            if (line.trim().endsWith(";")) {
+                statements.add(sb.substring(0, sb.lastIndexOf(";")));
+                sb.setLength(0);
+            }
+        }
+        if (sb.toString().trim().length() > 0) {
+            statements.add(sb.toString());
+        }
+        return statements;
+    }
+
+    private static List<String> readLines(String resource) throws IOException {
+        InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("missing classpath:" + resource);
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static final class Migration {
+
+        private final int version;
+
+        private final String description;
+
+        private final String fileName;
+
+        private final long checksum;
+
+        Migration(int version, String description, String fileName, long checksum) {
+            this.version = version;
+            this.description = description;
+            this.fileName = fileName;
+            this.checksum = checksum;
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.soecode.lyf.ratelimit;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 预约接口限流：按学号、按客户端IP各一组令牌桶，任一组超限即拒绝
+ */
+public class AppointRateLimiter {
+
+    private final TokenBucketLimiter studentLimiter;
+
+    private final TokenBucketLimiter ipLimiter;
+
+    // 部署在反向代理之后时取 X-Forwarded-For 的第一个地址
+    private final boolean trustForwardedFor;
+
+    public AppointRateLimiter(TokenBucketLimiter studentLimiter, TokenBucketLimiter ipLimiter, boolean trustForwardedFor) {
+        this.studentLimiter = studentLimiter;
+        this.ipLimiter = ipLimiter;
+        this.trustForwardedFor = trustForwardedFor;
+    }
+
+    public boolean tryAcquire(long studentId, HttpServletRequest request) {
+        return ipLimiter.tryAcquire(clientIp(request)) && studentLimiter.tryAcquire(String.valueOf(studentId));
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isEmpty()) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("student", stats(studentLimiter));
+        stats.put("ip", stats(ipLimiter));
+        return stats;
+    }
+
+    private static Map<String, Object> stats(TokenBucketLimiter limiter) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("allowed", limiter.getAllowed());
+        map.put("limited", limiter.getLimited());
+        map.put("overflow", limiter.getOverflow());
+        map.put("trackedKeys", limiter.getTrackedKeys());
+        return map;
+    }
+
+}
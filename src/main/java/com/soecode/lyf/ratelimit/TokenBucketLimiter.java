@@ -0,0 +1,109 @@
+package com.soecode.lyf.ratelimit;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按键限流的令牌桶
+ * <p>
+ * 每个桶只有一个 AtomicLong，记录"理论上下一个令牌的到达时间"(GCRA 形式的令牌桶)，
+ * 获取令牌即一次 CAS，不加锁也不分配对象。
+ * 桶数量有上限：满了先清掉已回满的桶（与不存在等价），清理每秒最多一次；仍然满时新键共用一个溢出桶并计数。
+ * 键由客户端决定（如学号），放行新键会让伪造大量新键的调用方关掉整个限流，共用一个桶则最多拿到一个键的配额。
+ */
+public class TokenBucketLimiter {
+
+    private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final long intervalNanos;
+
+    private final long burstNanos;
+
+    private final int maxKeys;
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong overflowBucket = new AtomicLong(System.nanoTime());
+
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime() - SWEEP_INTERVAL_NANOS);
+
+    private final LongAdder allowed = new LongAdder();
+
+    private final LongAdder limited = new LongAdder();
+
+    private final LongAdder overflow = new LongAdder();
+
+    /**
+     * @param permitsPerSecond 令牌生成速率
+     * @param burst            桶容量，即允许的突发请求数
+     * @param maxKeys          最多跟踪的键数
+     */
+    public TokenBucketLimiter(double permitsPerSecond, int burst, int maxKeys) {
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstNanos = intervalNanos * Math.max(burst - 1, 0);
+        this.maxKeys = maxKeys;
+    }
+
+    public boolean tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                sweep(now);
+            }
+            if (buckets.size() >= maxKeys) {
+                overflow.increment();
+                bucket = overflowBucket;
+            } else {
+                bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+            }
+        }
+        for (; ; ) {
+            long tat = bucket.get();
+            long base = Math.max(tat, now);
+            if (base - now > burstNanos) {
+                limited.increment();
+                return false;
+            }
+            if (bucket.compareAndSet(tat, base + intervalNanos)) {
+                allowed.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 清理已回满的桶，距上次不足 SWEEP_INTERVAL_NANOS 或别的线程正在清理时直接返回
+     */
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        Iterator<AtomicLong> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().get() <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    public long getAllowed() {
+        return allowed.sum();
+    }
+
+    public long getLimited() {
+        return limited.sum();
+    }
+
+    public long getOverflow() {
+        return overflow.sum();
+    }
+
+    public int getTrackedKeys() {
+        return buckets.size();
+    }
+
+}
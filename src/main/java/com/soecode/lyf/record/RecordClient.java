@@ -0,0 +1,113 @@
+package com.soecode.lyf.record;
+
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.dto.Result;
+import com.soecode.lyf.entity.Book;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 以二进制记录格式调用预约、列表、详情接口的客户端，供自助机、教务系统等集成方使用
+ * <p>
+ * 基于 HttpURLConnection，读完响应体后连接回到 JDK 的 keep-alive 缓存。
+ * 读写缓冲在实例内复用，非线程安全，每个线程用一个实例。
+ */
+public class RecordClient {
+
+    private final String baseUrl;
+
+    private final int timeoutMillis;
+
+    private final RecordWriter request = new RecordWriter(16);
+
+    private byte[] response = new byte[256];
+
+    private int lastResponseBytes;
+
+    /**
+     * @param baseUrl 如 http://127.0.0.1:8080，不带结尾的 /
+     */
+    public RecordClient(String baseUrl, int timeoutMillis) {
+        this.baseUrl = baseUrl;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @param idempotencyKey 超时重试时带同一个键，可为null
+     */
+    @SuppressWarnings("unchecked")
+    public Result<AppointExecution> appoint(long bookId, long studentId, boolean waitlist, String idempotencyKey)
+            throws IOException {
+        HttpURLConnection conn = open("/book/" + bookId + "/appoint");
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setRequestProperty("Content-Type", RecordCodec.CONTENT_TYPE);
+        if (idempotencyKey != null) {
+            conn.setRequestProperty("Idempotency-Key", idempotencyKey);
+        }
+        request.reset();
+        RecordCodec.writeAppointRequest(request, studentId, waitlist);
+        conn.setFixedLengthStreamingMode(request.size());
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(request.buffer(), 0, request.size());
+        }
+        return (Result<AppointExecution>) (Result<?>) read(conn);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Result<Book> detail(long bookId) throws IOException {
+        return (Result<Book>) (Result<?>) read(open("/book/" + bookId + "/data"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public Result<List<Book>> list() throws IOException {
+        return (Result<List<Book>>) (Result<?>) read(open("/book/data"));
+    }
+
+    /**
+     * 最近一次响应体的字节数
+     */
+    public int getLastResponseBytes() {
+        return lastResponseBytes;
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        conn.setConnectTimeout(timeoutMillis);
+        conn.setReadTimeout(timeoutMillis);
+        conn.setRequestProperty("Accept", RecordCodec.CONTENT_TYPE);
+        return conn;
+    }
+
+    private Result<Object> read(HttpURLConnection conn) throws IOException {
+        int status = conn.getResponseCode();
+        int length = 0;
+        try (InputStream in = status >= 400 ? conn.getErrorStream() : conn.getInputStream()) {
+            if (in != null) {
+                int n;
+                while ((n = in.read(response, length, response.length - length)) != -1) {
+                    length += n;
+                    if (length == response.length) {
+                        response = Arrays.copyOf(response, response.length * 2);
+                    }
+                }
+            }
+        }
+        lastResponseBytes = length;
+        if (status != 200) {
+            throw new IOException("unexpected status " + status);
+        }
+        if (!RecordCodec.isRecord(conn.getContentType())) {
+            // 接口不在 fastpath.routes 里时服务端回的是 JSON
+            throw new IOException("server did not return " + RecordCodec.CONTENT_TYPE + ": " + conn.getContentType());
+        }
+        return RecordCodec.readResult(new RecordReader(response, 0, length));
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.soecode.lyf.record;
+
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.dto.Result;
+import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.enums.AppointStateEnum;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 供机器间调用的紧凑二进制格式 application/x-lyf-record，与 JSON 接口一一对应
+ * <p>
+ * 响应首字节低4位为数据类型，最高位为 success；其后按类型：
+ * <pre>
+ *   错误      error 字符串
+ *   预约结果  bookId、state(zigzag)、是否有预约(1字节)，有时再跟 studentId、appointTime 毫秒(zigzag)
+ *   图书      bookId、name 字符串、number(zigzag)
+ *   图书列表  条数，之后逐条为图书
+ * </pre>
+ * 整数均为变长编码，不传 stateInfo，由客户端按 state 查 AppointStateEnum。
+ * 预约请求体为 studentId 加一个标志字节（第0位为 waitlist）。
+ */
+public final class RecordCodec {
+
+    public static final String CONTENT_TYPE = "application/x-lyf-record";
+
+    private static final int SUCCESS = 0x80;
+
+    private static final int TYPE_MASK = 0x0F;
+
+    private static final int ERROR = 0;
+
+    private static final int EXECUTION = 1;
+
+    private static final int BOOK = 2;
+
+    private static final int BOOK_LIST = 3;
+
+    // 没有数据也没有错误信息
+    private static final int EMPTY = 4;
+
+    private static final int FLAG_WAITLIST = 1;
+
+    private RecordCodec() {
+    }
+
+    /**
+     * @param accept 请求的 Accept 头
+     */
+    public static boolean accepts(String accept) {
+        return accept != null && accept.contains(CONTENT_TYPE);
+    }
+
+    /**
+     * @param contentType 请求的 Content-Type 头
+     */
+    public static boolean isRecord(String contentType) {
+        return contentType != null && contentType.startsWith(CONTENT_TYPE);
+    }
+
+    /**
+     * @return 能否按本格式编码，不能时照常输出 JSON
+     */
+    public static boolean supports(Object value) {
+        if (!(value instanceof Result)) {
+            return false;
+        }
+        Object data = ((Result<?>) value).getData();
+        if (data == null || data instanceof AppointExecution || data instanceof Book) {
+            return true;
+        }
+        if (!(data instanceof List)) {
+            return false;
+        }
+        for (Object item : (List<?>) data) {
+            if (!(item instanceof Book)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void writeResult(RecordWriter out, Result<?> result) {
+        int success = result.isSuccess() ? SUCCESS : 0;
+        Object data = result.getData();
+        if (data == null) {
+            if (result.getError() == null) {
+                out.writeByte(EMPTY | success);
+            } else {
+                out.writeByte(ERROR | success);
+                out.writeString(result.getError());
+            }
+        } else if (data instanceof AppointExecution) {
+            out.writeByte(EXECUTION | success);
+            writeExecution(out, (AppointExecution) data);
+        } else if (data instanceof Book) {
+            out.writeByte(BOOK | success);
+            writeBook(out, (Book) data);
+        } else if (data instanceof List) {
+            List<?> books = (List<?>) data;
+            out.writeByte(BOOK_LIST | success);
+            out.writeVarLong(books.size());
+            for (Object book : books) {
+                writeBook(out, (Book) book);
+            }
+        } else {
+            throw new IllegalArgumentException("unsupported type for record: " + data.getClass().getName());
+        }
+    }
+
+    private static void writeExecution(RecordWriter out, AppointExecution execution) {
+        out.writeVarLong(execution.getBookId());
+        out.writeZigZag(execution.getState());
+        Appointment appointment = execution.getAppointment();
+        if (appointment == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        out.writeVarLong(appointment.getStudentId());
+        out.writeZigZag(appointment.getAppointTime() == null ? -1 : appointment.getAppointTime().getTime());
+    }
+
+    private static void writeBook(RecordWriter out, Book book) {
+        out.writeVarLong(book.getBookId());
+        out.writeString(book.getName());
+        out.writeZigZag(book.getNumber());
+    }
+
+    /**
+     * @return data 为 AppointExecution、Book、List&lt;Book&gt; 或null
+     */
+    public static Result<Object> readResult(RecordReader in) {
+        int header = in.readByte();
+        boolean success = (header & SUCCESS) != 0;
+        Result<Object> result = new Result<>();
+        result.setSuccess(success);
+        switch (header & TYPE_MASK) {
+            case ERROR:
+                result.setError(in.readString());
+                break;
+            case EMPTY:
+                break;
+            case EXECUTION:
+                result.setData(readExecution(in));
+                break;
+            case BOOK:
+                result.setData(readBook(in));
+                break;
+            case BOOK_LIST:
+                long count = in.readVarLong();
+                // 每本至少3字节，防止伪造的条数撑爆内存
+                if (count > in.remaining() / 3) {
+                    throw new IllegalArgumentException("bad book count " + count);
+                }
+                List<Book> books = new ArrayList<>((int) count);
+                for (long i = 0; i < count; i++) {
+                    books.add(readBook(in));
+                }
+                result.setData(books);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown record type " + (header & TYPE_MASK));
+        }
+        return result;
+    }
+
+    private static AppointExecution readExecution(RecordReader in) {
+        AppointExecution execution = new AppointExecution();
+        execution.setBookId(in.readVarLong());
+        int state = (int) in.readZigZag();
+        execution.setState(state);
+        AppointStateEnum stateEnum = AppointStateEnum.stateOf(state);
+        execution.setStateInfo(stateEnum == null ? null : stateEnum.getStateInfo());
+        if (in.readByte() != 0) {
+            long studentId = in.readVarLong();
+            long appointTime = in.readZigZag();
+            execution.setAppointment(new Appointment(execution.getBookId(), studentId,
+                    appointTime < 0 ? null : new Date(appointTime)));
+        }
+        return execution;
+    }
+
+    private static Book readBook(RecordReader in) {
+        long bookId = in.readVarLong();
+        String name = in.readString();
+        return new Book(bookId, name, (int) in.readZigZag());
+    }
+
+    public static void writeAppointRequest(RecordWriter out, long studentId, boolean waitlist) {
+        out.writeVarLong(studentId);
+        out.writeByte(waitlist ? FLAG_WAITLIST : 0);
+    }
+
+    public static long readStudentId(RecordReader in) {
+        return in.readVarLong();
+    }
+
+    /**
+     * 标志字节可省略，省略时不排候补
+     */
+    public static boolean readWaitlist(RecordReader in) {
+        return in.remaining() > 0 && (in.readByte() & FLAG_WAITLIST) != 0;
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.soecode.lyf.record;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 读取 RecordWriter 写出的内容，数据不完整或格式不对时抛 IllegalArgumentException
+ */
+public final class RecordReader {
+
+    private final byte[] buffer;
+
+    private final int limit;
+
+    private int position;
+
+    public RecordReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public int remaining() {
+        return limit - position;
+    }
+
+    public int readByte() {
+        if (position >= limit) {
+            throw new IllegalArgumentException("truncated record");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    public long readZigZag() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public String readString() {
+        long prefix = readVarLong();
+        if (prefix == 0) {
+            return null;
+        }
+        long length = prefix - 1;
+        if (length > remaining()) {
+            throw new IllegalArgumentException("truncated record");
+        }
+        String s = new String(buffer, position, (int) length, StandardCharsets.UTF_8);
+        position += (int) length;
+        return s;
+    }
+
+}
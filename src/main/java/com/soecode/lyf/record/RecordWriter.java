@@ -0,0 +1,128 @@
+package com.soecode.lyf.record;
+
+import java.util.Arrays;
+
+/**
+ * 二进制记录的写缓冲：变长整数（LEB128）、zigzag 编码的有符号数和带长度前缀的 UTF-8 字符串
+ * <p>
+ * 非线程安全，reset() 后可反复使用，编码过程除缓冲扩容外不分配对象。
+ */
+public final class RecordWriter {
+
+    private byte[] buffer;
+
+    private int size;
+
+    public RecordWriter(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 内部缓冲，有效内容为 [0, size())
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensure(int more) {
+        if (size + more > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + more));
+        }
+    }
+
+    public void writeByte(int b) {
+        ensure(1);
+        buffer[size++] = (byte) b;
+    }
+
+    /**
+     * 无符号变长整数，每字节低7位为数据，最高位表示后面还有字节
+     */
+    public void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * 有符号数先 zigzag 编码，绝对值小的负数也只占一两个字节
+     */
+    public void writeZigZag(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * 长度前缀为 UTF-8 字节数加1，0 表示null
+     */
+    public void writeString(String s) {
+        if (s == null) {
+            writeVarLong(0);
+            return;
+        }
+        int length = utf8Length(s);
+        writeVarLong(length + 1L);
+        ensure(length);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[size++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[size++] = (byte) (0xC0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buffer[size++] = (byte) (0xF0 | (cp >> 18));
+                buffer[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buffer[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 不成对的代理字符，与 String.getBytes 一样写成 ?
+                buffer[size++] = '?';
+            } else {
+                buffer[size++] = (byte) (0xE0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+}
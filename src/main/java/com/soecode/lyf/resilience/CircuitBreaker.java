@@ -0,0 +1,193 @@
+package com.soecode.lyf.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 熔断器
+ * <p>
+ * 按时间分桶的滑动窗口统计调用数、失败数、慢调用数；窗口内调用数达到 minCalls 后，
+ * 失败率或慢调用率超过阈值即打开，打开期间直接拒绝。openMillis 后进入半开，
+ * 放行 halfOpenCalls 个探测调用，全部成功则关闭，任一失败或慢调用则重新打开。
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int BUCKETS = 10;
+
+    private final long bucketMillis;
+
+    private final int minCalls;
+
+    private final int failureRatePercent;
+
+    private final int slowRatePercent;
+
+    private final long slowCallMillis;
+
+    private final long openMillis;
+
+    private final int halfOpenCalls;
+
+    private final AtomicLongArray epochs = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLongArray calls = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLongArray failures = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLongArray slows = new AtomicLongArray(BUCKETS);
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    private volatile long openedAt;
+
+    private final AtomicInteger probesIssued = new AtomicInteger();
+
+    private final AtomicInteger probesSucceeded = new AtomicInteger();
+
+    private final LongAdder trips = new LongAdder();
+
+    public CircuitBreaker(long windowMillis, int minCalls, int failureRatePercent, int slowRatePercent,
+                          long slowCallMillis, long openMillis, int halfOpenCalls) {
+        this.bucketMillis = Math.max(windowMillis / BUCKETS, 1);
+        this.minCalls = minCalls;
+        this.failureRatePercent = failureRatePercent;
+        this.slowRatePercent = slowRatePercent;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        for (int i = 0; i < BUCKETS; i++) {
+            epochs.set(i, -1);
+        }
+    }
+
+    /**
+     * 是否放行本次调用，放行后须调用 onSuccess / onError / onCancel 之一
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                probesIssued.set(0);
+                probesSucceeded.set(0);
+            }
+        }
+        if (state.get() != State.HALF_OPEN) {
+            return state.get() == State.CLOSED;
+        }
+        if (probesIssued.incrementAndGet() <= halfOpenCalls) {
+            return true;
+        }
+        probesIssued.decrementAndGet();
+        return false;
+    }
+
+    public void onSuccess(long elapsedMillis) {
+        boolean slow = elapsedMillis >= slowCallMillis;
+        if (state.get() == State.HALF_OPEN) {
+            if (slow) {
+                trip(State.HALF_OPEN);
+            } else if (probesSucceeded.incrementAndGet() >= halfOpenCalls && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                clearWindow();
+            }
+            return;
+        }
+        record(false, slow);
+    }
+
+    public void onError(long elapsedMillis) {
+        if (state.get() == State.HALF_OPEN) {
+            trip(State.HALF_OPEN);
+            return;
+        }
+        record(true, elapsedMillis >= slowCallMillis);
+    }
+
+    /**
+     * 放行后调用并未执行（如舱壁已满），归还半开探测名额
+     */
+    public void onCancel() {
+        if (state.get() == State.HALF_OPEN) {
+            probesIssued.decrementAndGet();
+        }
+    }
+
+    private void record(boolean failure, boolean slow) {
+        long epoch = System.currentTimeMillis() / bucketMillis;
+        int i = (int) (epoch % BUCKETS);
+        long seen = epochs.get(i);
+        if (seen != epoch && epochs.compareAndSet(i, seen, epoch)) {
+            // 桶过期，复用前清零；并发下个别计数落到旧值上可以接受
+            calls.set(i, 0);
+            failures.set(i, 0);
+            slows.set(i, 0);
+        }
+        calls.incrementAndGet(i);
+        if (failure) {
+            failures.incrementAndGet(i);
+        }
+        if (slow) {
+            slows.incrementAndGet(i);
+        }
+        if (failure || slow) {
+            evaluate(epoch);
+        }
+    }
+
+    private void evaluate(long currentEpoch) {
+        long total = 0;
+        long failed = 0;
+        long slowed = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (epochs.get(i) > currentEpoch - BUCKETS) {
+                total += calls.get(i);
+                failed += failures.get(i);
+                slowed += slows.get(i);
+            }
+        }
+        if (total < minCalls) {
+            return;
+        }
+        if (failed * 100 >= total * failureRatePercent || slowed * 100 >= total * slowRatePercent) {
+            trip(State.CLOSED);
+        }
+    }
+
+    private void trip(State from) {
+        if (state.compareAndSet(from, State.OPEN)) {
+            openedAt = System.currentTimeMillis();
+            trips.increment();
+        }
+    }
+
+    private void clearWindow() {
+        for (int i = 0; i < BUCKETS; i++) {
+            epochs.set(i, -1);
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.get().name());
+        stats.put("trips", trips.sum());
+        return stats;
+    }
+
+}
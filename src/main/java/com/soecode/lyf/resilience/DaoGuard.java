@@ -0,0 +1,92 @@
+package com.soecode.lyf.resilience;
+
+import com.soecode.lyf.exception.DaoUnavailableException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一组数据库调用的舱壁加熔断
+ * <p>
+ * 舱壁限制该组同时占用的连接数，等待超过 waitMillis 即拒绝，
+ * 各组并发上限之和不超过连接池大小时，调用不会在 c3p0 checkout 上排队。
+ * 拒绝时抛出的 DaoUnavailableException 经 MyBatis 包装后才到调用方，用 DaoUnavailableException.causeOf 识别。
+ */
+public class DaoGuard {
+
+    public interface Call {
+        Object proceed() throws Throwable;
+    }
+
+    private final String name;
+
+    private final Semaphore bulkhead;
+
+    private final int maxConcurrent;
+
+    private final long waitMillis;
+
+    private final CircuitBreaker breaker;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder rejectedOpen = new LongAdder();
+
+    private final LongAdder rejectedFull = new LongAdder();
+
+    public DaoGuard(String name, int maxConcurrent, long waitMillis, CircuitBreaker breaker) {
+        this.name = name;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.waitMillis = waitMillis;
+        this.breaker = breaker;
+    }
+
+    public Object execute(Call call) throws Throwable {
+        if (!breaker.allowRequest()) {
+            rejectedOpen.increment();
+            throw new DaoUnavailableException(name + " circuit open");
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            breaker.onCancel();
+            rejectedFull.increment();
+            throw new DaoUnavailableException(name + " bulkhead full");
+        }
+        calls.increment();
+        long start = System.nanoTime();
+        try {
+            Object result = call.proceed();
+            breaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        } catch (Throwable t) {
+            breaker.onError(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            throw t;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(breaker.stats());
+        stats.put("inFlight", maxConcurrent - bulkhead.availablePermits());
+        stats.put("calls", calls.sum());
+        stats.put("rejectedOpen", rejectedOpen.sum());
+        stats.put("rejectedFull", rejectedFull.sum());
+        return stats;
+    }
+
+}
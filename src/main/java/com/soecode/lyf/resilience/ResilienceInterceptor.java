@@ -0,0 +1,70 @@
+package com.soecode.lyf.resilience;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 数据库调用分组限流熔断
+ * <p>
+ * 图书查询归入 catalog 组，其余（预约读写、扣减库存）归入 appoint 组，两组互不占用对方的连接。
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class ResilienceInterceptor implements Interceptor {
+
+    private final String catalogNamespace;
+
+    private final DaoGuard catalog;
+
+    private final DaoGuard appoint;
+
+    public ResilienceInterceptor(String catalogNamespace, DaoGuard catalog, DaoGuard appoint) {
+        this.catalogNamespace = catalogNamespace + ".";
+        this.catalog = catalog;
+        this.appoint = appoint;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        boolean catalogRead = ms.getSqlCommandType() == SqlCommandType.SELECT && ms.getId().startsWith(catalogNamespace);
+        return (catalogRead ? catalog : appoint).execute(invocation::proceed);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put(catalog.getName(), catalog.stats());
+        stats.put(appoint.getName(), appoint.stats());
+        return stats;
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.soecode.lyf.search;
+
+import com.soecode.lyf.dao.BookDao;
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.stock.StockAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 从 book 表并行加载搜索索引
+ * <p>
+ * 按 bookid 区间切成若干段，多个线程各自分段查询后按ID顺序合并；
+ * 可选定时全量刷新，修正库外改动的书名与库存。
+ * 也可按 ID 顺序分批交给调用方，加载不放在堆上的目录时不必一次把全部图书读进内存。
+ */
+public class BookIndexLoader {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    // 每个线程分到的段数，段多一些可以摊平 ID 分布不均
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final BookDao bookDao;
+
+    private final StockAllocator stockAllocator;
+
+    private final int threads;
+
+    private ScheduledExecutorService refresher;
+
+    public BookIndexLoader(BookDao bookDao, StockAllocator stockAllocator, int threads) {
+        this.bookDao = bookDao;
+        this.stockAllocator = stockAllocator;
+        this.threads = Math.max(threads, 1);
+    }
+
+    public List<Book> loadAll() {
+        Long min = bookDao.minBookId();
+        Long max = bookDao.maxBookId();
+        if (min == null || max == null) {
+            return new ArrayList<>();
+        }
+        int partitions = threads * PARTITIONS_PER_THREAD;
+        long span = Math.max((max - min) / partitions + 1, 1);
+
+        ExecutorService executor = newExecutor();
+        try {
+            List<Future<List<Book>>> futures = new ArrayList<>();
+            for (long from = min; from <= max; from += span) {
+                long fromId = from;
+                long toId = Math.min(from + span, max + 1);
+                futures.add(executor.submit(() -> bookDao.queryByIdRange(fromId, toId)));
+            }
+            List<Book> books = new ArrayList<>();
+            for (Future<List<Book>> future : futures) {
+                books.addAll(future.get());
+            }
+            addHeld(books);
+            return books;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("load book index interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("load book index failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 按 bookid 顺序分批交给 consumer，最多 threads * 2 批在途，先查完的批次等前面的交付后再交付
+     *
+     * @param idsPerBatch 每批覆盖的 bookid 区间长度
+     * @return 交付的图书数
+     */
+    public long forEachBatch(long idsPerBatch, Consumer<List<Book>> consumer) {
+        Long min = bookDao.minBookId();
+        Long max = bookDao.maxBookId();
+        if (min == null || max == null) {
+            return 0;
+        }
+        long span = Math.max(idsPerBatch, 1);
+        ExecutorService executor = newExecutor();
+        try {
+            Deque<Future<List<Book>>> inFlight = new ArrayDeque<>();
+            long next = min;
+            long delivered = 0;
+            while (next <= max || !inFlight.isEmpty()) {
+                while (next <= max && inFlight.size() < threads * 2) {
+                    long fromId = next;
+                    long toId = Math.min(next + span, max + 1);
+                    inFlight.add(executor.submit(() -> bookDao.queryByIdRange(fromId, toId)));
+                    next = toId;
+                }
+                List<Book> books = inFlight.poll().get();
+                addHeld(books);
+                consumer.accept(books);
+                delivered += books.size();
+            }
+            return delivered;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("load books interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("load books failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ExecutorService newExecutor() {
+        AtomicInteger seq = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "book-index-loader-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // 已租到本地但未发放的库存也算可预约
+    private void addHeld(List<Book> books) {
+        for (Book book : books) {
+            book.setNumber(book.getNumber() + stockAllocator.held(book.getBookId()));
+        }
+    }
+
+    public void load(BookSearchIndex index) {
+        long start = System.currentTimeMillis();
+        int books = index.refresh(this::loadAll);
+        logger.info("book index loaded, books=" + books + ", cost=" + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * 定时全量刷新
+     *
+     * @param seconds 刷新间隔，不大于0时不刷新
+     */
+    public void scheduleRefresh(BookSearchIndex index, long seconds) {
+        scheduleRefresh("book-index-refresh", () -> load(index), seconds);
+    }
+
+    /**
+     * 定时执行任意的全量刷新，一个 loader 只调度一个
+     *
+     * @param name    线程名，也用于日志
+     * @param seconds 刷新间隔，不大于0时不刷新
+     */
+    public synchronized void scheduleRefresh(String name, Runnable reload, long seconds) {
+        if (seconds <= 0 || refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                reload.run();
+            } catch (Exception e) {
+                logger.error(name + " failed", e);
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 停止定时刷新，正在执行的一次会被中断
+     */
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+}
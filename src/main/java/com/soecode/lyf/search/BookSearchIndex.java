@@ -0,0 +1,475 @@
+package com.soecode.lyf.search;
+
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.event.BookChangeListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 图书书名的内存倒排索引
+ * <p>
+ * 中日韩文字按单字和相邻二字切分，查询时用二字组求交集；字母数字按单词切分并索引前缀，支持前缀匹配。
+ * 倒排表是按文档序号升序的 int[]，读时无锁，写时复制后整体替换。
+ * 求交集得到的候选再用原文校验一次，排除二字组不相邻造成的误命中。
+ * 库存随预约事件原地更新，查询结果带实时库存。
+ */
+public class BookSearchIndex implements BookChangeListener {
+
+    private static final int MAX_PREFIX = 16;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Object writeLock = new Object();
+
+    private volatile Doc[] docs = new Doc[16];
+
+    private int size;
+
+    private final Map<Long, Doc> byId = new ConcurrentHashMap<>();
+
+    private final Map<String, int[]> postings = new ConcurrentHashMap<>();
+
+    private final AtomicInteger removedDocs = new AtomicInteger();
+
+    // 刷新期间库存有变动的图书
+    private volatile Set<Long> touched;
+
+    /**
+     * 全量刷新：索引为空时批量构建，否则逐本增量更新书名与库存，不在其中的图书标为删除
+     * <p>
+     * 查询期间库存有变动的图书，查出的库存可能早于这次变动，不覆盖，留给下一次刷新修正。
+     *
+     * @param source 查出全部图书，在开始记录变动之后执行
+     * @return 查出的图书数
+     */
+    public synchronized int refresh(Supplier<List<Book>> source) {
+        Set<Long> changed = ConcurrentHashMap.newKeySet();
+        touched = changed;
+        try {
+            List<Book> books = source.get();
+            load(books, changed);
+            return books.size();
+        } finally {
+            touched = null;
+        }
+    }
+
+    private void load(List<Book> books, Set<Long> changed) {
+        synchronized (writeLock) {
+            if (size > 0) {
+                Set<Long> present = new HashSet<>(books.size() * 2);
+                for (Book book : books) {
+                    upsert(book, changed);
+                    present.add(book.getBookId());
+                }
+                for (Long bookId : byId.keySet()) {
+                    if (!present.contains(bookId)) {
+                        remove(bookId);
+                    }
+                }
+                return;
+            }
+            Doc[] built = new Doc[Math.max(16, books.size())];
+            Map<String, IntList> lists = new HashMap<>();
+            for (Book book : books) {
+                if (byId.containsKey(book.getBookId())) {
+                    continue;
+                }
+                Doc doc = new Doc(size, book);
+                built[size++] = doc;
+                byId.put(doc.bookId, doc);
+                for (String token : indexTokens(doc.normalized)) {
+                    lists.computeIfAbsent(token, k -> new IntList()).add(doc.ordinal);
+                }
+            }
+            docs = built;
+            for (Map.Entry<String, IntList> entry : lists.entrySet()) {
+                postings.put(entry.getKey(), entry.getValue().toArray());
+            }
+        }
+    }
+
+    private void upsert(Book book, Set<Long> changed) {
+        synchronized (writeLock) {
+            Doc doc = byId.get(book.getBookId());
+            if (doc == null) {
+                doc = new Doc(size, book);
+                if (size == docs.length) {
+                    docs = Arrays.copyOf(docs, size * 2);
+                }
+                docs[size++] = doc;
+                byId.put(doc.bookId, doc);
+                addPostings(doc.ordinal, indexTokens(doc.normalized));
+                return;
+            }
+            // 与 stockChanged 在同一把锁下判断，变动要么已记进 changed，要么在覆盖之后才加上
+            synchronized (doc) {
+                if (!changed.contains(doc.bookId)) {
+                    doc.number.set(book.getNumber());
+                }
+            }
+            String normalized = normalize(book.getName());
+            if (!normalized.equals(doc.normalized) || doc.removed) {
+                Set<String> oldTokens = doc.removed ? Collections.<String>emptySet() : indexTokens(doc.normalized);
+                Set<String> newTokens = indexTokens(normalized);
+                for (String token : oldTokens) {
+                    if (!newTokens.contains(token)) {
+                        removePosting(token, doc.ordinal);
+                    }
+                }
+                doc.name = book.getName();
+                doc.normalized = normalized;
+                if (doc.removed) {
+                    doc.removed = false;
+                    removedDocs.decrementAndGet();
+                }
+                for (String token : newTokens) {
+                    if (!oldTokens.contains(token)) {
+                        addPosting(token, doc.ordinal);
+                    }
+                }
+            }
+        }
+    }
+
+    private void remove(long bookId) {
+        synchronized (writeLock) {
+            Doc doc = byId.get(bookId);
+            if (doc == null || doc.removed) {
+                return;
+            }
+            doc.removed = true;
+            removedDocs.incrementAndGet();
+            for (String token : indexTokens(doc.normalized)) {
+                removePosting(token, doc.ordinal);
+            }
+        }
+    }
+
+    private void addPostings(int ordinal, Set<String> tokens) {
+        for (String token : tokens) {
+            addPosting(token, ordinal);
+        }
+    }
+
+    private void addPosting(String token, int ordinal) {
+        int[] old = postings.getOrDefault(token, EMPTY);
+        int pos = Arrays.binarySearch(old, ordinal);
+        if (pos >= 0) {
+            return;
+        }
+        pos = -pos - 1;
+        int[] updated = new int[old.length + 1];
+        System.arraycopy(old, 0, updated, 0, pos);
+        updated[pos] = ordinal;
+        System.arraycopy(old, pos, updated, pos + 1, old.length - pos);
+        postings.put(token, updated);
+    }
+
+    private void removePosting(String token, int ordinal) {
+        int[] old = postings.get(token);
+        if (old == null) {
+            return;
+        }
+        int pos = Arrays.binarySearch(old, ordinal);
+        if (pos < 0) {
+            return;
+        }
+        if (old.length == 1) {
+            postings.remove(token);
+            return;
+        }
+        int[] updated = new int[old.length - 1];
+        System.arraycopy(old, 0, updated, 0, pos);
+        System.arraycopy(old, pos + 1, updated, pos, old.length - pos - 1);
+        postings.put(token, updated);
+    }
+
+    /**
+     * 按书名搜索
+     *
+     * @param query 关键字，可混合中文与字母数字，字母数字按前缀匹配
+     * @param limit 最多返回条数
+     * @return 按图书ID升序
+     */
+    public List<Book> search(String query, int limit) {
+        if (query == null) {
+            return Collections.emptyList();
+        }
+        Terms terms = parse(normalize(query));
+        List<String> tokens = terms.queryTokens();
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int[][] lists = new int[tokens.size()][];
+        for (int i = 0; i < lists.length; i++) {
+            int[] list = postings.get(tokens.get(i));
+            if (list == null) {
+                return Collections.emptyList();
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+
+        Doc[] snapshot = docs;
+        List<Book> result = new ArrayList<>(Math.min(limit, lists[0].length));
+        outer:
+        for (int ordinal : lists[0]) {
+            for (int i = 1; i < lists.length; i++) {
+                if (Arrays.binarySearch(lists[i], ordinal) < 0) {
+                    continue outer;
+                }
+            }
+            Doc doc = snapshot[ordinal];
+            if (doc == null || doc.removed || !terms.matches(doc.normalized)) {
+                continue;
+            }
+            result.add(new Book(doc.bookId, doc.name, doc.number.get()));
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按ID取索引中的图书，数据库不可用时作为兜底
+     *
+     * @return 不存在或已删除时返回null
+     */
+    public Book get(long bookId) {
+        Doc doc = byId.get(bookId);
+        if (doc == null || doc.removed) {
+            return null;
+        }
+        return new Book(doc.bookId, doc.name, doc.number.get());
+    }
+
+    /**
+     * @return 未删除的图书数
+     */
+    public int size() {
+        return byId.size() - removedDocs.get();
+    }
+
+    @Override
+    public void stockChanged(long bookId, int delta) {
+        Doc doc = byId.get(bookId);
+        if (doc == null) {
+            Set<Long> refreshing = touched;
+            if (refreshing != null) {
+                refreshing.add(bookId);
+            }
+            return;
+        }
+        synchronized (doc) {
+            Set<Long> refreshing = touched;
+            if (refreshing != null) {
+                refreshing.add(bookId);
+            }
+            doc.number.addAndGet(delta);
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        // 全角转半角、统一大小写
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase();
+    }
+
+    static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    static Set<String> indexTokens(String normalized) {
+        Terms terms = parse(normalized);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String run : terms.cjkRuns) {
+            for (int i = 0; i < run.length(); ) {
+                int cp = run.codePointAt(i);
+                int next = i + Character.charCount(cp);
+                tokens.add(run.substring(i, next));
+                if (next < run.length()) {
+                    int cp2 = run.codePointAt(next);
+                    tokens.add(run.substring(i, next + Character.charCount(cp2)));
+                }
+                i = next;
+            }
+        }
+        for (String word : terms.words) {
+            int max = Math.min(word.length(), MAX_PREFIX);
+            for (int len = 1; len <= max; len++) {
+                tokens.add(word.substring(0, len));
+            }
+        }
+        return tokens;
+    }
+
+    static Terms parse(String normalized) {
+        Terms terms = new Terms();
+        StringBuilder cjk = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < normalized.length(); ) {
+            int cp = normalized.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                terms.flushWord(word);
+                cjk.appendCodePoint(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                terms.flushCjk(cjk);
+                word.appendCodePoint(cp);
+            } else {
+                terms.flushCjk(cjk);
+                terms.flushWord(word);
+            }
+        }
+        terms.flushCjk(cjk);
+        terms.flushWord(word);
+        return terms;
+    }
+
+    /**
+     * 一段文本切分出的中日韩片段与单词
+     */
+    static final class Terms {
+
+        final List<String> cjkRuns = new ArrayList<>();
+
+        final List<String> words = new ArrayList<>();
+
+        void flushCjk(StringBuilder sb) {
+            if (sb.length() > 0) {
+                cjkRuns.add(sb.toString());
+                sb.setLength(0);
+            }
+        }
+
+        void flushWord(StringBuilder sb) {
+            if (sb.length() > 0) {
+                words.add(sb.toString());
+                sb.setLength(0);
+            }
+        }
+
+        List<String> queryTokens() {
+            Set<String> tokens = new LinkedHashSet<>();
+            for (String run : cjkRuns) {
+                if (run.codePointCount(0, run.length()) == 1) {
+                    tokens.add(run);
+                    continue;
+                }
+                for (int i = 0; i < run.length(); ) {
+                    int next = i + Character.charCount(run.codePointAt(i));
+                    if (next >= run.length()) {
+                        break;
+                    }
+                    tokens.add(run.substring(i, next + Character.charCount(run.codePointAt(next))));
+                    i = next;
+                }
+            }
+            for (String word : words) {
+                tokens.add(word.length() > MAX_PREFIX ? word.substring(0, MAX_PREFIX) : word);
+            }
+            return new ArrayList<>(tokens);
+        }
+
+        /**
+         * 校验候选：中文片段须连续出现，单词须是书名中某个单词的前缀
+         */
+        boolean matches(String normalized) {
+            for (String run : cjkRuns) {
+                if (!normalized.contains(run)) {
+                    return false;
+                }
+            }
+            for (String word : words) {
+                if (!containsWordPrefix(normalized, word)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean containsWordPrefix(String text, String word) {
+            int from = 0;
+            while (true) {
+                int pos = text.indexOf(word, from);
+                if (pos < 0) {
+                    return false;
+                }
+                if (pos == 0) {
+                    return true;
+                }
+                int before = text.codePointBefore(pos);
+                if (!Character.isLetterOrDigit(before) || isCjk(before)) {
+                    return true;
+                }
+                from = pos + 1;
+            }
+        }
+
+    }
+
+    private static final class Doc {
+
+        final int ordinal;
+
+        final long bookId;
+
+        volatile String name;
+
+        volatile String normalized;
+
+        volatile boolean removed;
+
+        final AtomicInteger number;
+
+        Doc(int ordinal, Book book) {
+            this.ordinal = ordinal;
+            this.bookId = book.getBookId();
+            this.name = book.getName();
+            this.normalized = normalize(book.getName());
+            this.number = new AtomicInteger(book.getNumber());
+        }
+
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[4];
+
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+    }
+
+}
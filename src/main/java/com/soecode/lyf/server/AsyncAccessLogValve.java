@@ -0,0 +1,159 @@
+package com.soecode.lyf.server;
+
+import org.apache.catalina.AccessLog;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步访问日志
+ * <p>
+ * 请求线程只把格式化好的一行放进有界队列，由单独的线程批量写文件；
+ * 队列满时丢弃并计数，磁盘慢不会拖住 worker 线程。
+ * 格式：remoteAddr [time] "METHOD uri protocol" status bytes costMillis
+ */
+public class AsyncAccessLogValve extends ValveBase implements AccessLog {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final int BATCH = 512;
+
+    private final File file;
+
+    private final BlockingQueue<String> queue;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final ThreadLocal<SimpleDateFormat> dateFormat =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss Z"));
+
+    private volatile boolean requestAttributesEnabled;
+
+    private volatile boolean running;
+
+    private Thread writerThread;
+
+    public AsyncAccessLogValve(File file, int queueSize) {
+        super(true);
+        this.file = file;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        // 真正的记录在请求结束后由容器回调 log()，异步请求也能记到完成时刻
+        getNext().invoke(request, response);
+    }
+
+    @Override
+    public void log(Request request, Response response, long time) {
+        if (!running) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(request.getRemoteAddr())
+                .append(" [").append(dateFormat.get().format(new Date())).append("] \"")
+                .append(request.getMethod()).append(' ').append(request.getRequestURI());
+        if (request.getQueryString() != null) {
+            sb.append('?').append(request.getQueryString());
+        }
+        sb.append(' ').append(request.getProtocol()).append("\" ")
+                .append(response.getStatus()).append(' ')
+                .append(response.getBytesWritten(false)).append(' ')
+                .append(time).append('\n');
+        if (!queue.offer(sb.toString())) {
+            dropped.increment();
+        }
+    }
+
+    public void open() throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+        running = true;
+        writerThread = new Thread(() -> writeLoop(writer), "access-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void writeLoop(Writer writer) {
+        List<String> batch = new ArrayList<>(BATCH);
+        try {
+            while (running || !queue.isEmpty()) {
+                String first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH - 1);
+                for (String line : batch) {
+                    writer.write(line);
+                }
+                batch.clear();
+                // 队列空了才刷盘，繁忙时攒批写
+                if (queue.isEmpty()) {
+                    writer.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("access log write failed, file=" + file, e);
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 写完队列中剩余的日志后关闭
+     */
+    public void close(long timeoutMillis) {
+        running = false;
+        if (writerThread != null) {
+            try {
+                writerThread.join(timeoutMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void setRequestAttributesEnabled(boolean requestAttributesEnabled) {
+        this.requestAttributesEnabled = requestAttributesEnabled;
+    }
+
+    @Override
+    public boolean getRequestAttributesEnabled() {
+        return requestAttributesEnabled;
+    }
+
+}
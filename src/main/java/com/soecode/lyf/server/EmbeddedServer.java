@@ -0,0 +1,187 @@
+package com.soecode.lyf.server;
+
+import com.soecode.lyf.context.AppComponents;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.core.StandardThreadExecutor;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.webresources.DirResourceSet;
+import org.apache.catalina.webresources.StandardRoot;
+import org.apache.coyote.AbstractProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 内嵌 Tomcat 启动器，配置见 server.properties
+ * <p>
+ * 连接器可选 NIO / NIO2，使用独立的 worker 线程池；对 JSON/HTML 响应压缩；访问日志异步写。
+ * 收到 SIGTERM 时先暂停连接器不再接新请求，等 worker 线程上进行中的请求（如预约）执行完，
+ * 或等到 server.shutdown.drainSeconds 超时，再停止应用：ShutdownListener 关闭后台线程、归还库存租约、关闭连接池。
+ * 停机只走这一个 shutdown hook，各组件不自行注册，避免与排空并发执行。
+ */
+public class EmbeddedServer {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final ServerSettings settings;
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private Tomcat tomcat;
+
+    private StandardContext context;
+
+    private Connector connector;
+
+    private StandardThreadExecutor executor;
+
+    private AsyncAccessLogValve accessLog;
+
+    public EmbeddedServer(ServerSettings settings) {
+        this.settings = settings;
+    }
+
+    public void start() throws ServletException, LifecycleException, IOException {
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(new File(settings.getString("server.baseDir", "target/tomcat")).getAbsolutePath());
+
+        executor = new StandardThreadExecutor();
+        executor.setName("http-worker");
+        executor.setNamePrefix("http-worker-");
+        executor.setMaxThreads(settings.getInt("server.maxThreads", 200));
+        executor.setMinSpareThreads(settings.getInt("server.minSpareThreads", 20));
+        executor.setMaxQueueSize(settings.getInt("server.maxQueueSize", Integer.MAX_VALUE));
+        tomcat.getService().addExecutor(executor);
+
+        connector = createConnector();
+        tomcat.getService().addConnector(connector);
+        tomcat.setConnector(connector);
+
+        String webappDir = settings.getString("server.webappDir", "src/main/webapp/");
+        File webInfClasses = new File(settings.getString("server.classesDir", "target/classes"));
+        context = (StandardContext) tomcat.addWebapp("/", new File(webappDir).getAbsolutePath());
+        context.setReloadable(false);
+        // 应用类由启动器的类加载器加载，与启动器共用一份，停机和压测才能经 getComponents() 取到应用内的对象
+        context.setDelegate(true);
+        WebResourceRoot resources = new StandardRoot(context);
+        resources.addPreResources(
+                new DirResourceSet(
+                        resources,
+                        "/WEB-INF/classes",
+                        webInfClasses.getAbsolutePath(),
+                        "/")
+        );
+        context.setResources(resources);
+
+        if (settings.getBoolean("server.accessLog.enabled", true)) {
+            accessLog = new AsyncAccessLogValve(new File(settings.getString("server.accessLog.file", "logs/access.log")),
+                    settings.getInt("server.accessLog.queueSize", 65536));
+            accessLog.open();
+            tomcat.getHost().getPipeline().addValve(accessLog);
+        }
+
+        tomcat.start();
+        logger.info("embedded server started, port=" + connector.getPort());
+    }
+
+    private Connector createConnector() {
+        String protocol = settings.getString("server.protocol", "nio");
+        Connector connector = new Connector("nio2".equalsIgnoreCase(protocol)
+                ? "org.apache.coyote.http11.Http11Nio2Protocol"
+                : "org.apache.coyote.http11.Http11NioProtocol");
+        connector.setPort(settings.getInt("server.port", 8999));
+        connector.setURIEncoding("UTF-8");
+        // 开启时记录任务在 worker 队列中的等待时间，供请求跟踪使用
+        ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(
+                settings.getBoolean("server.queueTiming.enabled", true) ? new QueueTimingExecutor(executor) : executor);
+
+        // worker 全忙时操作系统层面排队的连接数
+        connector.setProperty("acceptCount", settings.getString("server.acceptCount", "100"));
+        connector.setProperty("maxConnections", settings.getString("server.maxConnections", "10000"));
+        connector.setProperty("connectionTimeout", settings.getString("server.connectionTimeoutMillis", "20000"));
+        connector.setProperty("keepAliveTimeout", settings.getString("server.keepAliveTimeoutMillis", "15000"));
+        connector.setProperty("maxKeepAliveRequests", settings.getString("server.maxKeepAliveRequests", "100"));
+
+        if (settings.getBoolean("server.compression.enabled", true)) {
+            connector.setProperty("compression", "on");
+            connector.setProperty("compressionMinSize", settings.getString("server.compression.minSize", "2048"));
+            connector.setProperty("compressableMimeType", settings.getString("server.compression.mimeTypes",
+                    "application/json,text/html,text/plain,text/css,application/javascript"));
+        }
+        return connector;
+    }
+
+    /**
+     * 应用发布的对象，见 AppComponents
+     */
+    public AppComponents getComponents() {
+        return AppComponents.from(context.getServletContext());
+    }
+
+    /**
+     * 正在 worker 线程上执行的请求数
+     */
+    public int getActiveRequests() {
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    public void await() {
+        tomcat.getServer().await();
+    }
+
+    /**
+     * 优雅停机：暂停接收、等待进行中的请求、再停止容器
+     */
+    public void shutdownGracefully() {
+        if (!stopped.compareAndSet(false, true)) {
+            return;
+        }
+        long drainMillis = settings.getInt("server.shutdown.drainSeconds", 30) * 1000L;
+        logger.info("shutting down, draining in-flight requests for up to " + drainMillis + "ms");
+        connector.pause();
+
+        long deadline = System.currentTimeMillis() + drainMillis;
+        while (executor.getActiveCount() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (executor.getActiveCount() > 0) {
+            logger.warn("drain timed out, active requests=" + executor.getActiveCount());
+        }
+
+        // 停止应用时由 ShutdownListener 收尾，与 WAR 部署走同一条路径
+        try {
+            tomcat.stop();
+            tomcat.destroy();
+        } catch (LifecycleException e) {
+            logger.error("stop embedded server failed", e);
+        }
+        if (accessLog != null) {
+            accessLog.close(5000);
+        }
+        logger.info("embedded server stopped");
+    }
+
+    public void registerShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdownGracefully, "graceful-shutdown"));
+    }
+
+    public static void main(String[] args) throws ServletException, LifecycleException, IOException {
+        EmbeddedServer server = new EmbeddedServer(ServerSettings.load());
+        server.start();
+        server.registerShutdownHook();
+        server.await();
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.soecode.lyf.server;
+
+import com.soecode.lyf.trace.Tracer;
+import org.apache.tomcat.util.threads.ResizableExecutor;
+
+/**
+ * 包装 worker 线程池，记下每个任务的提交时刻，任务开始执行时交给 Tracer，
+ * 被采样的请求据此得到在 worker 队列里等待的时间（含请求头解析）。
+ * 其余方法原样转给被包装的线程池，连接器的线程数统计不受影响。
+ */
+public class QueueTimingExecutor implements ResizableExecutor {
+
+    private final ResizableExecutor delegate;
+
+    public QueueTimingExecutor(ResizableExecutor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long submitted = System.nanoTime();
+        delegate.execute(() -> {
+            Tracer.dispatched(submitted);
+            command.run();
+        });
+    }
+
+    @Override
+    public int getPoolSize() {
+        return delegate.getPoolSize();
+    }
+
+    @Override
+    public int getMaxThreads() {
+        return delegate.getMaxThreads();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return delegate.getActiveCount();
+    }
+
+    @Override
+    public boolean resizePool(int corePoolSize, int maximumPoolSize) {
+        return delegate.resizePool(corePoolSize, maximumPoolSize);
+    }
+
+    @Override
+    public boolean resizeQueue(int capacity) {
+        return delegate.resizeQueue(capacity);
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.soecode.lyf.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * 内嵌服务器配置，读取 classpath:server.properties，同名系统属性优先，
+ * 如 -Dserver.port=9000
+ */
+public class ServerSettings {
+
+    private final Properties properties;
+
+    private ServerSettings(Properties properties) {
+        this.properties = properties;
+    }
+
+    public static ServerSettings load() {
+        Properties properties = new Properties();
+        try (InputStream in = ServerSettings.class.getClassLoader().getResourceAsStream("server.properties")) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot read server.properties", e);
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("server.")) {
+                properties.setProperty(name, System.getProperty(name));
+            }
+        }
+        return new ServerSettings(properties);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+}
@@ -30,8 +30,35 @@ public interface BookService {
 	 * 
 	 * @param bookId
 	 * @param studentId
-	 * @return
+	 * @return 库存不足、重复预约等业务结果以状态返回，不抛异常；开启保留时成功状态为 HELD
 	 */
 	AppointExecution appoint(long bookId, long studentId);
 
+	/**
+	 * 确认预约保留
+	 * 
+	 * @param bookId
+	 * @param studentId
+	 * @return 确认成功为 SUCCESS，保留已过期或不存在为 HOLD_EXPIRED
+	 */
+	AppointExecution confirm(long bookId, long studentId);
+
+	/**
+	 * 库存不足时加入候补，有库存归还或补货时按先后自动转为预约
+	 * 
+	 * @param bookId
+	 * @param studentId
+	 * @return WAITLISTED（已在队列中也是），队列已满为 WAITLIST_FULL，未开启候补时为 NO_NUMBER
+	 */
+	AppointExecution joinWaitlist(long bookId, long studentId);
+
+	/**
+	 * 按书名搜索图书
+	 * 
+	 * @param keyword
+	 * @param limit 最多返回条数
+	 * @return 带实时库存
+	 */
+	List<Book> search(String keyword, int limit);
+
 }
@@ -0,0 +1,21 @@
+package com.soecode.lyf.service;
+
+import com.soecode.lyf.dto.AppointmentPage;
+
+/**
+ * 学生相关业务接口
+ */
+public interface StudentService {
+
+	/**
+	 * 分页查询学生的预约记录
+	 * 
+	 * @param studentId
+	 * @param cursor 上一页返回的游标，首页传null
+	 * @param size 每页条数
+	 * @return
+	 * @throws IllegalArgumentException 游标无法解析时
+	 */
+	AppointmentPage listAppointments(long studentId, String cursor, int size);
+
+}
@@ -7,16 +7,24 @@ import com.github.datalking.annotation.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.soecode.lyf.catalog.OffHeapCatalog;
 import com.soecode.lyf.dao.AppointmentDao;
 import com.soecode.lyf.dao.BookDao;
 import com.soecode.lyf.dto.AppointExecution;
 import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.entity.AppointmentHold;
 import com.soecode.lyf.entity.Book;
 import com.soecode.lyf.enums.AppointStateEnum;
+import com.soecode.lyf.event.BookChangeEvents;
 import com.soecode.lyf.exception.AppointException;
-import com.soecode.lyf.exception.NoNumberException;
-import com.soecode.lyf.exception.RepeatAppointException;
+import com.soecode.lyf.exception.DaoUnavailableException;
+import com.soecode.lyf.hold.AppointHoldManager;
+import com.soecode.lyf.journal.JournalAppointer;
+import com.soecode.lyf.search.BookSearchIndex;
 import com.soecode.lyf.service.BookService;
+import com.soecode.lyf.stock.StockAllocator;
+import com.soecode.lyf.trace.Tracer;
+import com.soecode.lyf.waitlist.WaitlistManager;
 
 @Service
 public class BookServiceImpl implements BookService {
@@ -30,15 +38,75 @@ public class BookServiceImpl implements BookService {
 	@Autowired
 	private AppointmentDao appointmentDao;
 
+	@Autowired
+	private StockAllocator stockAllocator;
+
+	@Autowired
+	private JournalAppointer journalAppointer;
+
+	@Autowired
+	private BookChangeEvents bookChangeEvents;
+
+	@Autowired
+	private BookSearchIndex bookSearchIndex;
+
+	@Autowired
+	private OffHeapCatalog offHeapCatalog;
+
+	@Autowired
+	private AppointHoldManager appointHoldManager;
+
+	@Autowired
+	private WaitlistManager waitlistManager;
+
+	// 最近一次成功查到的列表，熔断时返回
+	private volatile List<Book> lastList;
 
 	@Override
 	public Book getById(long bookId) {
-		return bookDao.queryById(bookId);
+		if (offHeapCatalog.isEnabled()) {
+			Book book = offHeapCatalog.get(bookId);
+			if (book != null) {
+				return book;
+			}
+			// 目录里没有的（如其他实例新增、尚未刷新进来）照常查库
+		}
+		try {
+			return bookDao.queryById(bookId);
+		} catch (RuntimeException e) {
+			if (DaoUnavailableException.causeOf(e) == null) {
+				throw e;
+			}
+			// 熔断时从内存索引取
+			Book book = bookSearchIndex.get(bookId);
+			if (book == null) {
+				throw e;
+			}
+			return book;
+		}
 	}
 
 	@Override
 	public List<Book> getList() {
-		return bookDao.queryAll(0, 1000);
+		if (offHeapCatalog.isEnabled()) {
+			return offHeapCatalog.list(0, 1000);
+		}
+		try {
+			List<Book> list = bookDao.queryAll(0, 1000);
+			lastList = list;
+			return list;
+		} catch (RuntimeException e) {
+			List<Book> cached = lastList;
+			if (cached == null || DaoUnavailableException.causeOf(e) == null) {
+				throw e;
+			}
+			return cached;
+		}
+	}
+
+	@Override
+	public List<Book> search(String keyword, int limit) {
+		return bookSearchIndex.search(keyword, limit);
 	}
 
 	@Override
@@ -49,27 +117,126 @@ public class BookServiceImpl implements BookService {
 	 * 3.不是所有的方法都需要事务，如只有一条修改操作，只读操作不需要事务控制
 	 */
 	public AppointExecution appoint(long bookId, long studentId) {
+		long traceStart = Tracer.start();
 		try {
+			// 有人排队时库存只留给候补队头，直接预约按无库存处理，可以再选择加入候补
+			if (waitlistManager.isEnabled() && waitlistManager.hasWaiting(bookId)) {
+				return AppointExecution.failureOf(bookId, AppointStateEnum.NO_NUMBER);
+			}
 			// 减库存
-			int update = bookDao.reduceNumber(bookId);
-			if (update <= 0) {// 库存不足
-				throw new NoNumberException("no number");
+			long acquireStart = Tracer.start();
+			boolean acquired = stockAllocator.acquire(bookId);
+			Tracer.end(acquireStart, Tracer.SERVICE, "StockAllocator.acquire");
+			if (!acquired) {// 库存不足
+				return AppointExecution.failureOf(bookId, AppointStateEnum.NO_NUMBER);
+			}
+			// 扣到即通知，之后归还时再通知 +1，候补队列据此得知有库存退回
+			bookChangeEvents.stockChanged(bookId, -1);
+			if (journalAppointer.isEnabled()) {
+				// 日志模式：落盘即成功，由后台写库；重复预约时已归还库存并通知
+				Appointment appointment = journalAppointer.append(bookId, studentId);
+				if (appointment == null) {// 重复预约
+					return AppointExecution.failureOf(bookId, AppointStateEnum.REPEAT_APPOINT);
+				}
+				return new AppointExecution(bookId, AppointStateEnum.SUCCESS, appointment);
+			} else if (appointHoldManager.isEnabled()) {
+				// 保留模式：限时内未确认则到期归还库存
+				AppointmentHold hold;
+				try {
+					hold = appointHoldManager.hold(bookId, studentId);
+				} catch (RuntimeException e) {
+					giveBackIfRejected(bookId, e);
+					throw e;
+				}
+				if (hold == null) {// 重复预约，归还刚扣的库存
+					giveBack(bookId);
+					return AppointExecution.failureOf(bookId, AppointStateEnum.REPEAT_APPOINT);
+				}
+				Appointment appointment = appointmentDao.queryByKeyWithBook(bookId, studentId);
+				return new AppointExecution(bookId, AppointStateEnum.HELD, appointment);
 			} else {
 				// 执行预约操作
-				int insert = appointmentDao.insertAppointment(bookId, studentId);
-				if (insert <= 0) {// 重复预约
-					throw new RepeatAppointException("repeat appoint");
+				int insert;
+				try {
+					insert = appointmentDao.insertAppointment(bookId, studentId);
+				} catch (RuntimeException e) {
+					giveBackIfRejected(bookId, e);
+					throw e;
+				}
+				if (insert <= 0) {// 重复预约，归还刚扣的库存
+					giveBack(bookId);
+					return AppointExecution.failureOf(bookId, AppointStateEnum.REPEAT_APPOINT);
 				} else {// 预约成功
 					Appointment appointment = appointmentDao.queryByKeyWithBook(bookId, studentId);
 					return new AppointExecution(bookId, AppointStateEnum.SUCCESS, appointment);
 				}
 			}
-		} catch (NoNumberException | RepeatAppointException e1) {
-			throw e1;
 		} catch (Exception e) {
+			if (DaoUnavailableException.causeOf(e) != null) {
+				// 被熔断或舱壁拒绝，快速失败，不打堆栈
+				return AppointExecution.failureOf(bookId, AppointStateEnum.INNER_ERROR);
+			}
 			logger.error(e.getMessage(), e);
 			// 所有编译期异常转换为运行期异常
 			throw new AppointException("appoint inner error:" + e.getMessage());
+		} finally {
+			Tracer.end(traceStart, Tracer.SERVICE, "BookService.appoint");
+		}
+	}
+
+	private void giveBack(long bookId) {
+		stockAllocator.release(bookId);
+		bookChangeEvents.stockChanged(bookId, 1);
+	}
+
+	/**
+	 * 被熔断或舱壁拒绝时写入还没执行，可以归还刚扣的库存；其他异常下写入可能已生效，不归还
+	 */
+	private void giveBackIfRejected(long bookId, RuntimeException e) {
+		if (DaoUnavailableException.causeOf(e) != null) {
+			giveBack(bookId);
+		}
+	}
+
+	@Override
+	public AppointExecution confirm(long bookId, long studentId) {
+		long traceStart = Tracer.start();
+		try {
+			if (!appointHoldManager.isEnabled() || !appointHoldManager.confirm(bookId, studentId)) {
+				return AppointExecution.failureOf(bookId, AppointStateEnum.HOLD_EXPIRED);
+			}
+			Appointment appointment = appointmentDao.queryByKeyWithBook(bookId, studentId);
+			return new AppointExecution(bookId, AppointStateEnum.SUCCESS, appointment);
+		} catch (Exception e) {
+			if (DaoUnavailableException.causeOf(e) != null) {
+				return AppointExecution.failureOf(bookId, AppointStateEnum.INNER_ERROR);
+			}
+			logger.error(e.getMessage(), e);
+			throw new AppointException("confirm inner error:" + e.getMessage());
+		} finally {
+			Tracer.end(traceStart, Tracer.SERVICE, "BookService.confirm");
+		}
+	}
+
+	@Override
+	public AppointExecution joinWaitlist(long bookId, long studentId) {
+		if (!waitlistManager.isEnabled()) {
+			return AppointExecution.failureOf(bookId, AppointStateEnum.NO_NUMBER);
+		}
+		long traceStart = Tracer.start();
+		try {
+			if (waitlistManager.enqueue(bookId, studentId) < 0) {
+				return AppointExecution.failureOf(bookId, AppointStateEnum.WAITLIST_FULL);
+			}
+			return new AppointExecution(bookId, AppointStateEnum.WAITLISTED);
+		} catch (Exception e) {
+			if (DaoUnavailableException.causeOf(e) != null) {
+				return AppointExecution.failureOf(bookId, AppointStateEnum.INNER_ERROR);
+			}
+			logger.error(e.getMessage(), e);
+			throw new AppointException("join waitlist inner error:" + e.getMessage());
+		} finally {
+			Tracer.end(traceStart, Tracer.SERVICE, "BookService.joinWaitlist");
 		}
 	}
 
@@ -0,0 +1,73 @@
+package com.soecode.lyf.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.github.datalking.annotation.Autowired;
+import com.github.datalking.annotation.Service;
+
+import com.soecode.lyf.dao.AppointmentDao;
+import com.soecode.lyf.dao.BookDao;
+import com.soecode.lyf.dto.AppointmentPage;
+import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.service.StudentService;
+
+@Service
+public class StudentServiceImpl implements StudentService {
+
+	@Autowired
+	private AppointmentDao appointmentDao;
+
+	@Autowired
+	private BookDao bookDao;
+
+	@Override
+	public AppointmentPage listAppointments(long studentId, String cursor, int size) {
+		Date beforeTime = null;
+		long beforeBookId = 0;
+		if (cursor != null && !cursor.isEmpty()) {
+			long[] decoded = decodeCursor(cursor);
+			beforeTime = new Date(decoded[0]);
+			beforeBookId = decoded[1];
+		}
+		// 多查一条用来判断是否还有下一页
+		List<Appointment> rows = appointmentDao.queryByStudent(studentId, beforeTime, beforeBookId, size + 1);
+		String nextCursor = null;
+		if (rows.size() > size) {
+			rows = new ArrayList<>(rows.subList(0, size));
+			Appointment last = rows.get(size - 1);
+			nextCursor = encodeCursor(last.getAppointTime().getTime(), last.getBookId());
+		}
+
+		// 本页引用的图书一次 IN 查询取回
+		Set<Long> bookIds = new LinkedHashSet<>();
+		for (Appointment row : rows) {
+			bookIds.add(row.getBookId());
+		}
+		List<Book> books = bookIds.isEmpty() ? Collections.<Book>emptyList() : bookDao.queryByIds(bookIds);
+		return new AppointmentPage(studentId, rows, books, nextCursor);
+	}
+
+	private static String encodeCursor(long appointTime, long bookId) {
+		String raw = appointTime + ":" + bookId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static long[] decodeCursor(String cursor) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+			int colon = raw.indexOf(':');
+			return new long[] { Long.parseLong(raw.substring(0, colon)), Long.parseLong(raw.substring(colon + 1)) };
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("invalid cursor: " + cursor, e);
+		}
+	}
+
+}
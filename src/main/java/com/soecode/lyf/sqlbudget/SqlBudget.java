@@ -0,0 +1,102 @@
+package com.soecode.lyf.sqlbudget;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一个接口的 SQL 预算：最多执行几条语句、取几次连接
+ * <p>
+ * 配置格式为 "方法 路径=语句数/连接数"，多条用分号分隔，路径中的 {变量} 匹配任意一段，如
+ * <pre>
+ *   POST /book/{bookId}/appoint=3/3;GET /book/list=1/1
+ * </pre>
+ */
+public class SqlBudget {
+
+    private final String method;
+
+    private final String pattern;
+
+    private final String[] segments;
+
+    private final int maxStatements;
+
+    private final int maxConnections;
+
+    public SqlBudget(String method, String pattern, int maxStatements, int maxConnections) {
+        this.method = method;
+        this.pattern = pattern;
+        this.segments = split(pattern);
+        this.maxStatements = maxStatements;
+        this.maxConnections = maxConnections;
+    }
+
+    public static List<SqlBudget> parse(String spec) {
+        List<SqlBudget> budgets = new ArrayList<>();
+        if (spec == null) {
+            return budgets;
+        }
+        for (String entry : spec.split(";")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int space = entry.indexOf(' ');
+            int eq = entry.lastIndexOf('=');
+            int slash = entry.lastIndexOf('/');
+            if (space < 0 || eq < space || slash < eq) {
+                throw new IllegalArgumentException("bad sql budget, expect \"METHOD /path=statements/connections\": " + entry);
+            }
+            budgets.add(new SqlBudget(entry.substring(0, space).trim().toUpperCase(),
+                    entry.substring(space + 1, eq).trim(),
+                    Integer.parseInt(entry.substring(eq + 1, slash).trim()),
+                    Integer.parseInt(entry.substring(slash + 1).trim())));
+        }
+        return budgets;
+    }
+
+    private static String[] split(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    public boolean matches(String requestMethod, String path) {
+        if (!method.equals(requestMethod)) {
+            return false;
+        }
+        String[] actual = split(path);
+        if (actual.length != segments.length) {
+            return false;
+        }
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            boolean variable = segment.startsWith("{") && segment.endsWith("}");
+            if (!variable && !segment.equals(actual[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<String> check(SqlScope scope, int repeatThreshold) {
+        return scope.check(maxStatements, maxConnections, repeatThreshold);
+    }
+
+    public String getName() {
+        return method + " " + pattern;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.soecode.lyf.sqlbudget;
+
+import com.soecode.lyf.context.AppComponents;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 按请求统计语句数与取连接次数，结束时对照 sqlbudget.budgets 检查，并找出重复执行的语句
+ * <p>
+ * 预算与开关见 WebConfig 发布的 SqlBudgetMonitor，压测时可用 -Dsqlbudget.enabled=true 单独开启。未开启时直接放行。
+ * 只统计处理请求的线程，异步 Servlet 和后台线程执行的语句不计入。
+ */
+public class SqlBudgetFilter implements Filter {
+
+    private AppComponents components;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        components = AppComponents.from(filterConfig.getServletContext());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        SqlBudgetMonitor monitor = components.get(SqlBudgetMonitor.class);
+        if (monitor == null || !monitor.isEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest req = (HttpServletRequest) request;
+        String path = req.getRequestURI().substring(req.getContextPath().length());
+        SqlBudget budget = monitor.budgetFor(req.getMethod(), path);
+        String name = budget != null ? budget.getName() : req.getMethod() + " " + path;
+
+        SqlScope scope = SqlCounter.open(name);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            scope.close();
+        }
+        // 没有预算的请求只查 N+1
+        List<String> failures = budget != null
+                ? budget.check(scope, monitor.getRepeatThreshold())
+                : scope.check(Integer.MAX_VALUE, Integer.MAX_VALUE, monitor.getRepeatThreshold());
+        if (!failures.isEmpty()) {
+            monitor.violated(name, failures);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.soecode.lyf.sqlbudget;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 运行时的 SQL 预算：声明的预算、N+1 阈值，以及超出预算的记录
+ * <p>
+ * 由 WebConfig 按 sqlbudget.* 配置创建，SqlBudgetFilter 经 AppComponents 取用，记录见 /debug/sql-budget。
+ */
+public class SqlBudgetMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlBudgetMonitor.class);
+
+    // 未命中预算的请求按实际路径记，路径里带ID，限制条数
+    private static final int MAX_VIOLATIONS = 1000;
+
+    private final boolean enabled;
+
+    private final int repeatThreshold;
+
+    private final List<SqlBudget> budgets;
+
+    private final Map<String, Violation> violations = new ConcurrentHashMap<>();
+
+    public SqlBudgetMonitor(boolean enabled, int repeatThreshold, List<SqlBudget> budgets) {
+        this.enabled = enabled;
+        this.repeatThreshold = repeatThreshold;
+        this.budgets = Collections.unmodifiableList(new ArrayList<>(budgets));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getRepeatThreshold() {
+        return repeatThreshold;
+    }
+
+    public List<SqlBudget> getBudgets() {
+        return budgets;
+    }
+
+    /**
+     * @return 没有匹配的预算时返回null
+     */
+    public SqlBudget budgetFor(String method, String path) {
+        for (SqlBudget budget : budgets) {
+            if (budget.matches(method, path)) {
+                return budget;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 记下一次超出预算，同一名字只保留最近一次的说明
+     */
+    public void violated(String name, List<String> failures) {
+        logger.warn("sql budget exceeded, {}: {}", name, failures);
+        Violation violation = violations.get(name);
+        if (violation == null) {
+            if (violations.size() >= MAX_VIOLATIONS) {
+                return;
+            }
+            violation = violations.computeIfAbsent(name, k -> new Violation());
+        }
+        violation.count.incrementAndGet();
+        violation.failures = failures;
+    }
+
+    /**
+     * @return 名字到 "次数: 最近一次的说明"
+     */
+    public Map<String, String> getViolations() {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Violation> entry : violations.entrySet()) {
+            Violation violation = entry.getValue();
+            result.put(entry.getKey(), violation.count.get() + "x: " + String.join("; ", violation.failures));
+        }
+        return result;
+    }
+
+    public void resetViolations() {
+        violations.clear();
+    }
+
+    private static final class Violation {
+
+        private final AtomicLong count = new AtomicLong();
+
+        private volatile List<String> failures = Collections.emptyList();
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.soecode.lyf.sqlbudget;
+
+/**
+ * SQL 预算计数入口
+ * <p>
+ * SqlBudgetFilter 或测试代码 open() 一个 SqlScope 放进当前线程，TraceInterceptor 每执行一条语句、
+ * RoutingDataSource 每取一次连接各计一次。没有打开的 SqlScope 时只多一次 ThreadLocal 读取。
+ * 预算与超出记录见 SqlBudgetMonitor。
+ */
+public final class SqlCounter {
+
+    private static final ThreadLocal<SqlScope> CURRENT = new ThreadLocal<>();
+
+    private SqlCounter() {
+    }
+
+    /**
+     * 开始计数，用完须 close()，一般写在 try-with-resources 里
+     */
+    public static SqlScope open(String name) {
+        SqlScope scope = new SqlScope(name, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    static void closed(SqlScope scope) {
+        if (CURRENT.get() != scope) {
+            return;
+        }
+        if (scope.getParent() == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(scope.getParent());
+        }
+    }
+
+    public static boolean isCounting() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * @param statementId 语句ID，如 BookDao.queryById
+     */
+    public static void statement(String statementId, String sql) {
+        for (SqlScope scope = CURRENT.get(); scope != null; scope = scope.getParent()) {
+            scope.statement(statementId, sql);
+        }
+    }
+
+    public static void checkout() {
+        for (SqlScope scope = CURRENT.get(); scope != null; scope = scope.getParent()) {
+            scope.checkout();
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.soecode.lyf.sqlbudget;
+
+import com.soecode.lyf.exception.SqlBudgetExceededException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次请求或一次服务调用内执行的语句数和取连接次数
+ * <p>
+ * 由 SqlCounter.open() 打开，只在打开它的线程上计数；嵌套打开时语句同时计入外层。
+ * 同一语句ID、同一 SQL 文本执行多次视为 N+1，失败信息里列出对应的 Mapper 方法。
+ */
+public class SqlScope implements AutoCloseable {
+
+    private final String name;
+
+    private final SqlScope parent;
+
+    private int statements;
+
+    private int connections;
+
+    // 语句ID -> 执行次数，按首次执行的顺序
+    private final Map<String, Integer> byStatement = new LinkedHashMap<>();
+
+    // 语句ID + SQL 文本 -> 执行次数
+    private final Map<String, int[]> identical = new HashMap<>();
+
+    SqlScope(String name, SqlScope parent) {
+        this.name = name;
+        this.parent = parent;
+    }
+
+    void statement(String statementId, String sql) {
+        statements++;
+        byStatement.merge(statementId, 1, Integer::sum);
+        identical.computeIfAbsent(statementId + '\n' + sql, k -> new int[1])[0]++;
+    }
+
+    void checkout() {
+        connections++;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    SqlScope getParent() {
+        return parent;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * @return 语句ID（如 BookDao.queryById）到执行次数，按首次执行的顺序
+     */
+    public Map<String, Integer> getStatementCounts() {
+        return byStatement;
+    }
+
+    /**
+     * @return 同一 SQL 执行次数不少于 threshold 的语句ID及其最大重复次数
+     */
+    public Map<String, Integer> repeated(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        for (Map.Entry<String, int[]> entry : identical.entrySet()) {
+            int count = entry.getValue()[0];
+            if (count >= threshold) {
+                String statementId = entry.getKey().substring(0, entry.getKey().indexOf('\n'));
+                repeated.merge(statementId, count, Math::max);
+            }
+        }
+        return repeated;
+    }
+
+    /**
+     * @param repeatThreshold 同一 SQL 执行到这个次数算 N+1，不大于1时不检查
+     * @return 超出的各项说明，未超出时为空
+     */
+    public List<String> check(int maxStatements, int maxConnections, int repeatThreshold) {
+        List<String> failures = new ArrayList<>();
+        if (statements > maxStatements) {
+            failures.add("statements " + statements + " > " + maxStatements + " " + byStatement);
+        }
+        if (connections > maxConnections) {
+            failures.add("connections " + connections + " > " + maxConnections);
+        }
+        if (repeatThreshold > 1) {
+            for (Map.Entry<String, Integer> entry : repeated(repeatThreshold).entrySet()) {
+                failures.add("N+1 " + entry.getKey() + " x" + entry.getValue());
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * 供测试断言，超出预算时抛 SqlBudgetExceededException
+     */
+    public void assertWithin(int maxStatements, int maxConnections, int repeatThreshold) {
+        List<String> failures = check(maxStatements, maxConnections, repeatThreshold);
+        if (!failures.isEmpty()) {
+            throw new SqlBudgetExceededException(name + ": " + String.join("; ", failures));
+        }
+    }
+
+    @Override
+    public void close() {
+        SqlCounter.closed(this);
+    }
+
+}
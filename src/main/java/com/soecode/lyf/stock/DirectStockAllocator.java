@@ -0,0 +1,26 @@
+package com.soecode.lyf.stock;
+
+import com.soecode.lyf.dao.BookDao;
+
+/**
+ * 每次预约都直接在 book 行上扣减库存
+ */
+public class DirectStockAllocator implements StockAllocator {
+
+    private final BookDao bookDao;
+
+    public DirectStockAllocator(BookDao bookDao) {
+        this.bookDao = bookDao;
+    }
+
+    @Override
+    public boolean acquire(long bookId) {
+        return bookDao.reduceNumber(bookId) > 0;
+    }
+
+    @Override
+    public void release(long bookId) {
+        bookDao.increaseNumber(bookId, 1);
+    }
+
+}
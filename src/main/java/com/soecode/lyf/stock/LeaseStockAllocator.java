@@ -0,0 +1,193 @@
+package com.soecode.lyf.stock;
+
+import com.soecode.lyf.dao.BookDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 租约式库存分配
+ * <p>
+ * 多个节点同时抢同一本书时，每个节点用一条 UPDATE 从数据库租一段库存（number - N WHERE number >= N），
+ * 之后在本地用 CAS 逐本发放，不再锁 book 行。库存不足一段时退化为逐本扣减。
+ * 租约到期或应用停止时把没发完的库存还给数据库（close() 由 ShutdownListener 调用，WAR 部署与内嵌启动相同），
+ * 数据库里的 number 始终是各节点未租走的余量，
+ * 因此跨节点总量不会超卖；节点崩溃时未归还的租约只会少卖，不会多卖。
+ */
+public class LeaseStockAllocator implements StockAllocator {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final BookDao bookDao;
+
+    private final int leaseSize;
+
+    private final long leaseMillis;
+
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private final ScheduledExecutorService reaper;
+
+    private volatile boolean closed;
+
+    public LeaseStockAllocator(BookDao bookDao, int leaseSize, long leaseMillis) {
+        this.bookDao = bookDao;
+        this.leaseSize = leaseSize;
+        this.leaseMillis = leaseMillis;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-lease-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(leaseMillis / 2, 100);
+        reaper.scheduleWithFixedDelay(this::returnExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean acquire(long bookId) {
+        if (closed) {
+            // 停机期间仍在处理的预约直接扣 book 行，不再租用
+            return bookDao.reduceNumber(bookId) > 0;
+        }
+        Lease lease = leases.get(bookId);
+        if (lease != null && lease.tryTake()) {
+            return true;
+        }
+        synchronized (lockFor(bookId)) {
+            lease = leases.get(bookId);
+            if (lease != null && lease.tryTake()) {
+                return true;
+            }
+            int granted = leaseFromDb(bookId);
+            if (granted <= 0) {
+                return false;
+            }
+            // 自己先用掉一本，剩余的放入本地租约
+            if (granted > 1 && closed) {
+                bookDao.increaseNumber(bookId, granted - 1);
+            } else if (granted > 1) {
+                Lease fresh = new Lease(granted - 1, System.currentTimeMillis() + leaseMillis);
+                if (lease != null) {
+                    leases.remove(bookId, lease);
+                    giveBack(bookId, lease);
+                }
+                leases.put(bookId, fresh);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void release(long bookId) {
+        Lease lease = leases.get(bookId);
+        if (lease == null) {
+            bookDao.increaseNumber(bookId, 1);
+            return;
+        }
+        lease.remaining.incrementAndGet();
+        // 租约恰好在归还过程中被摘掉，补还刚放回的库存
+        if (leases.get(bookId) != lease) {
+            giveBack(bookId, lease);
+        }
+    }
+
+    @Override
+    public int held(long bookId) {
+        Lease lease = leases.get(bookId);
+        return lease == null ? 0 : Math.max(lease.remaining.get(), 0);
+    }
+
+    private int leaseFromDb(long bookId) {
+        if (leaseSize > 1 && bookDao.leaseNumber(bookId, leaseSize) > 0) {
+            return leaseSize;
+        }
+        return bookDao.reduceNumber(bookId) > 0 ? 1 : 0;
+    }
+
+    private void returnExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Lease> entry : leases.entrySet()) {
+            Lease lease = entry.getValue();
+            if (lease.expireAt > now) {
+                continue;
+            }
+            long bookId = entry.getKey();
+            synchronized (lockFor(bookId)) {
+                if (leases.remove(bookId, lease)) {
+                    giveBack(bookId, lease);
+                }
+            }
+        }
+    }
+
+    private void giveBack(long bookId, Lease lease) {
+        int unused = lease.remaining.getAndSet(0);
+        if (unused <= 0) {
+            return;
+        }
+        try {
+            bookDao.increaseNumber(bookId, unused);
+        } catch (Exception e) {
+            logger.error("return stock lease failed, bookId=" + bookId + ", count=" + unused, e);
+        }
+    }
+
+    /**
+     * 归还所有未发放的租约
+     */
+    public void close() {
+        closed = true;
+        reaper.shutdownNow();
+        for (Map.Entry<Long, Lease> entry : leases.entrySet()) {
+            long bookId = entry.getKey();
+            synchronized (lockFor(bookId)) {
+                if (leases.remove(bookId, entry.getValue())) {
+                    giveBack(bookId, entry.getValue());
+                }
+            }
+        }
+    }
+
+    private Object lockFor(long bookId) {
+        return locks[(int) (bookId ^ (bookId >>> 32)) & (LOCK_STRIPES - 1)];
+    }
+
+    private static class Lease {
+
+        final AtomicInteger remaining;
+
+        final long expireAt;
+
+        Lease(int remaining, long expireAt) {
+            this.remaining = new AtomicInteger(remaining);
+            this.expireAt = expireAt;
+        }
+
+        boolean tryTake() {
+            for (; ; ) {
+                int current = remaining.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - 1)) {
+                    return true;
+                }
+            }
+        }
+
+    }
+
+}
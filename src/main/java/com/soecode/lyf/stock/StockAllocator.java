@@ -0,0 +1,33 @@
+package com.soecode.lyf.stock;
+
+/**
+ * 库存分配策略
+ */
+public interface StockAllocator {
+
+    /**
+     * 扣减一本库存
+     *
+     * @param bookId
+     * @return 库存不足时返回false
+     */
+    boolean acquire(long bookId);
+
+    /**
+     * 归还一本已扣减的库存，如重复预约时
+     *
+     * @param bookId
+     */
+    void release(long bookId);
+
+    /**
+     * 已从 book 行扣下、尚未发放的库存数
+     *
+     * @param bookId
+     * @return
+     */
+    default int held(long bookId) {
+        return 0;
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.soecode.lyf.stream;
+
+import com.soecode.lyf.dao.BookDao;
+import com.soecode.lyf.datasource.DataSourceContextHolder;
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.event.BookChangeListener;
+import com.soecode.lyf.stock.StockAllocator;
+import com.soecode.lyf.waitlist.WaitlistListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 库存变化推送，进程内唯一一份，所有 SSE 连接共用
+ * <p>
+ * 预约成功只把 bookId 记为脏，推送线程每 coalesceMillis 取一次脏集合，
+ * 一次 IN 查询读出最新库存，加上租约模式下本实例持有未卖出的部分，编码成一帧后发给所有连接。
+ * 每个连接有固定长度的发送队列，队列满说明客户端读得太慢，直接断开，不拖累其他连接。
+ * 连接时带 studentId 的，候补转为预约后还会单独收到一帧 promoted 事件。
+ */
+public class StockBroadcaster implements BookChangeListener, WaitlistListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockBroadcaster.class);
+
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    // 断线后浏览器 EventSource 的重连间隔
+    private static final byte[] HELLO = "retry: 3000\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final BookDao bookDao;
+
+    private final StockAllocator stockAllocator;
+
+    private final int clientBuffer;
+
+    private final int maxClients;
+
+    private final long heartbeatMillis;
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private final Set<StockSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final Map<Long, Set<StockSubscriber>> byStudent = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder framesSent = new LongAdder();
+
+    private final LongAdder slowDropped = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile long lastSentAt = System.currentTimeMillis();
+
+    public StockBroadcaster(BookDao bookDao, StockAllocator stockAllocator, long coalesceMillis, int clientBuffer,
+                            int maxClients, long heartbeatMillis) {
+        this.bookDao = bookDao;
+        this.stockAllocator = stockAllocator;
+        this.clientBuffer = clientBuffer;
+        this.maxClients = maxClients;
+        this.heartbeatMillis = heartbeatMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-broadcaster");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, coalesceMillis, coalesceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stockChanged(long bookId, int delta) {
+        if (!subscribers.isEmpty()) {
+            dirty.add(bookId);
+        }
+    }
+
+    /**
+     * 接入一个已 startAsync 的连接
+     *
+     * @param studentId 接收该学号的候补通知，不需要时传0
+     * @return 连接数已满时返回false，调用方负责结束请求
+     */
+    public boolean subscribe(AsyncContext context, long studentId) throws IOException {
+        if (subscribers.size() >= maxClients) {
+            rejected.increment();
+            return false;
+        }
+        StockSubscriber subscriber = new StockSubscriber(this, context, clientBuffer, studentId);
+        subscribers.add(subscriber);
+        if (studentId > 0) {
+            byStudent.computeIfAbsent(studentId, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        subscriber.start();
+        subscriber.send(HELLO);
+        return true;
+    }
+
+    void remove(StockSubscriber subscriber, boolean slow) {
+        if (subscribers.remove(subscriber)) {
+            if (subscriber.getStudentId() > 0) {
+                byStudent.computeIfPresent(subscriber.getStudentId(), (k, set) -> {
+                    set.remove(subscriber);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+            if (slow) {
+                slowDropped.increment();
+            }
+            subscriber.close();
+        }
+    }
+
+    private void flush() {
+        try {
+            if (dirty.isEmpty()) {
+                if (System.currentTimeMillis() - lastSentAt >= heartbeatMillis) {
+                    broadcast(HEARTBEAT);
+                }
+                return;
+            }
+            List<Long> ids = new ArrayList<>();
+            for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+                ids.add(it.next());
+                it.remove();
+            }
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                List<Book> books = queryPrimary(ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size())));
+                if (!books.isEmpty()) {
+                    broadcast(encode(books));
+                }
+            }
+        } catch (Exception e) {
+            logger.error("broadcast stock change failed", e);
+        }
+    }
+
+    private List<Book> queryPrimary(List<Long> ids) {
+        // 刚扣完的库存，从库可能还没同步到
+        DataSourceContextHolder.setForcePrimary(true);
+        List<Book> books;
+        try {
+            books = bookDao.queryByIds(ids);
+        } finally {
+            DataSourceContextHolder.clear();
+        }
+        // 与 BookIndexLoader 一致，租约已从库里扣走但还没卖出的库存仍算可预约
+        for (Book book : books) {
+            book.setNumber(book.getNumber() + stockAllocator.held(book.getBookId()));
+        }
+        return books;
+    }
+
+    private void broadcast(byte[] frame) {
+        lastSentAt = System.currentTimeMillis();
+        framesSent.increment();
+        for (StockSubscriber subscriber : subscribers) {
+            subscriber.send(frame);
+        }
+    }
+
+    /**
+     * event: promoted
+     * data: {"bookId":1000,"state":1,"stateInfo":"预约成功"}
+     */
+    @Override
+    public void promoted(long studentId, AppointExecution execution) {
+        Set<StockSubscriber> targets = byStudent.get(studentId);
+        if (targets == null) {
+            return;
+        }
+        byte[] frame = ("event: promoted\ndata: {\"bookId\":" + execution.getBookId() + ",\"state\":" + execution.getState()
+                + ",\"stateInfo\":\"" + execution.getStateInfo() + "\"}\n\n").getBytes(StandardCharsets.UTF_8);
+        for (StockSubscriber subscriber : targets) {
+            subscriber.send(frame);
+        }
+    }
+
+    /**
+     * event: stock
+     * data: [{"bookId":1000,"number":9},...]
+     */
+    static byte[] encode(List<Book> books) {
+        StringBuilder sb = new StringBuilder(32 + books.size() * 32);
+        sb.append("event: stock\ndata: [");
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"bookId\":").append(book.getBookId()).append(",\"number\":").append(book.getNumber()).append('}');
+        }
+        sb.append("]\n\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("clients", subscribers.size());
+        stats.put("students", byStudent.size());
+        stats.put("framesSent", framesSent.sum());
+        stats.put("slowDropped", slowDropped.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("pendingBooks", dirty.size());
+        return stats;
+    }
+
+    public void close() {
+        scheduler.shutdownNow();
+        for (StockSubscriber subscriber : subscribers) {
+            remove(subscriber, false);
+        }
+    }
+
+}
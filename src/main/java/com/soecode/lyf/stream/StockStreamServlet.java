@@ -0,0 +1,60 @@
+package com.soecode.lyf.stream;
+
+import com.soecode.lyf.context.AppComponents;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * GET /book/stream，库存变化的 server-sent events；带 ?studentId= 时同时推送该学生的候补转预约通知
+ * <p>
+ * 长连接不经过 DispatcherServlet，单独注册为异步 Servlet，见 Initializer
+ */
+public class StockStreamServlet extends HttpServlet {
+
+    private AppComponents components;
+
+    @Override
+    public void init() throws ServletException {
+        components = AppComponents.from(getServletContext());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        // 由 ServiceConfig 发布，容器未启动时为null
+        StockBroadcaster broadcaster = components.get(StockBroadcaster.class);
+        if (broadcaster == null) {
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        resp.setContentType("text/event-stream");
+        resp.setCharacterEncoding("UTF-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        // 经 nginx 代理时关闭响应缓冲
+        resp.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext context = req.startAsync();
+        context.setTimeout(0);
+        if (!broadcaster.subscribe(context, studentId(req))) {
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            context.complete();
+        }
+    }
+
+    private static long studentId(HttpServletRequest req) {
+        String value = req.getParameter("studentId");
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Math.max(Long.parseLong(value), 0);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.soecode.lyf.stream;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 一个 SSE 连接
+ * <p>
+ * 使用 Servlet 3.1 非阻塞输出：只在 isReady() 时写，写不动就留在队列里等 onWritePossible 回调，
+ * 推送线程永远不会阻塞在某个慢客户端上。
+ */
+final class StockSubscriber implements WriteListener, AsyncListener {
+
+    private final StockBroadcaster broadcaster;
+
+    private final AsyncContext context;
+
+    private final ServletOutputStream out;
+
+    private final ArrayBlockingQueue<byte[]> queue;
+
+    // 订阅候补通知的学号，0 表示只收库存推送
+    private final long studentId;
+
+    private volatile boolean closed;
+
+    StockSubscriber(StockBroadcaster broadcaster, AsyncContext context, int capacity, long studentId) throws IOException {
+        this.broadcaster = broadcaster;
+        this.context = context;
+        this.studentId = studentId;
+        this.out = context.getResponse().getOutputStream();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    long getStudentId() {
+        return studentId;
+    }
+
+    void start() {
+        context.addListener(this);
+        out.setWriteListener(this);
+    }
+
+    void send(byte[] frame) {
+        if (closed) {
+            return;
+        }
+        if (!queue.offer(frame)) {
+            broadcaster.remove(this, true);
+            return;
+        }
+        drain();
+    }
+
+    private synchronized void drain() {
+        if (closed) {
+            return;
+        }
+        try {
+            while (out.isReady()) {
+                byte[] frame = queue.poll();
+                if (frame == null) {
+                    out.flush();
+                    return;
+                }
+                out.write(frame);
+            }
+        } catch (IOException | IllegalStateException e) {
+            broadcaster.remove(this, false);
+        }
+    }
+
+    void close() {
+        closed = true;
+        queue.clear();
+        try {
+            context.complete();
+        } catch (IllegalStateException e) {
+            // 连接已由容器结束
+        }
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        broadcaster.remove(this, false);
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        broadcaster.remove(this, false);
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        broadcaster.remove(this, false);
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        broadcaster.remove(this, false);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.soecode.lyf.trace;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次被采样请求的跟踪记录
+ * <p>
+ * 只由处理请求的线程写入，结束后放进 TraceBuffer 不再修改。
+ * 段的起点记为相对请求开始的纳秒偏移，嵌套关系（如语句内的连接池 checkout）由偏移和耗时看出。
+ */
+public final class Trace {
+
+    private final String id;
+
+    private final String name;
+
+    private final long startMillis;
+
+    private final long startNanos;
+
+    private final int maxSpans;
+
+    private final List<Span> spans = new ArrayList<>(16);
+
+    private int droppedSpans;
+
+    private long durationNanos;
+
+    private int status;
+
+    Trace(String id, String name, long startNanos, int maxSpans) {
+        this.id = id;
+        this.name = name;
+        this.startMillis = System.currentTimeMillis() - (System.nanoTime() - startNanos) / 1000000;
+        this.startNanos = startNanos;
+        this.maxSpans = maxSpans;
+    }
+
+    void addSpan(String kind, String name, long spanStartNanos, long endNanos, boolean error) {
+        if (spans.size() >= maxSpans) {
+            droppedSpans++;
+            return;
+        }
+        spans.add(new Span(kind, name, spanStartNanos - startNanos, endNanos - spanStartNanos, error));
+    }
+
+    void finish(long endNanos, int status) {
+        this.durationNanos = endNanos - startNanos;
+        this.status = status;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("traceId", id);
+        map.put("name", name);
+        map.put("start", startMillis);
+        map.put("status", status);
+        map.put("durationMicros", durationNanos / 1000);
+        List<Map<String, Object>> list = new ArrayList<>(spans.size());
+        for (Span span : spans) {
+            list.add(span.toMap());
+        }
+        map.put("spans", list);
+        if (droppedSpans > 0) {
+            map.put("droppedSpans", droppedSpans);
+        }
+        return map;
+    }
+
+    /**
+     * 一段耗时：kind 为 queue/service/sql/checkout，name 为方法名、语句ID或数据源
+     */
+    static final class Span {
+
+        private final String kind;
+
+        private final String name;
+
+        private final long offsetNanos;
+
+        private final long durationNanos;
+
+        private final boolean error;
+
+        Span(String kind, String name, long offsetNanos, long durationNanos, boolean error) {
+            this.kind = kind;
+            this.name = name;
+            this.offsetNanos = offsetNanos;
+            this.durationNanos = durationNanos;
+            this.error = error;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("kind", kind);
+            map.put("name", name);
+            map.put("offsetMicros", offsetNanos / 1000);
+            map.put("durationMicros", durationNanos / 1000);
+            if (error) {
+                map.put("error", true);
+            }
+            return map;
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.soecode.lyf.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 最近完成的跟踪，定长环形缓冲，写满后覆盖最旧的
+ */
+public class TraceBuffer {
+
+    private final AtomicReferenceArray<Trace> slots;
+
+    private final int mask;
+
+    private final AtomicLong written = new AtomicLong();
+
+    /**
+     * @param capacity 向上取到2的幂
+     */
+    public TraceBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void add(Trace trace) {
+        slots.set((int) (written.getAndIncrement() & mask), trace);
+    }
+
+    /**
+     * 从新到旧取最多 limit 条耗时不低于 minNanos 的跟踪
+     */
+    public List<Trace> recent(int limit, long minNanos) {
+        List<Trace> result = new ArrayList<>(Math.min(limit, slots.length()));
+        long end = written.get();
+        long begin = Math.max(end - slots.length(), 0);
+        for (long i = end - 1; i >= begin && result.size() < limit; i--) {
+            Trace trace = slots.get((int) (i & mask));
+            if (trace != null && trace.getDurationNanos() >= minNanos) {
+                result.add(trace);
+            }
+        }
+        return result;
+    }
+
+    public Trace get(String traceId) {
+        for (int i = 0; i < slots.length(); i++) {
+            Trace trace = slots.get(i);
+            if (trace != null && trace.getId().equals(traceId)) {
+                return trace;
+            }
+        }
+        return null;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.soecode.lyf.trace;
+
+import com.soecode.lyf.context.AppComponents;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 在进入 DispatcherServlet 前决定是否跟踪本次请求
+ * <p>
+ * 被采样的请求分配 trace id 并写到响应头 X-Trace-Id，请求结束后整条跟踪进入环形缓冲，见 /debug/traces。
+ * trace.forceHeader 为 true 时，带 X-Trace: 1 请求头的请求总是跟踪，便于单独排查一个慢请求。
+ * 采样由 WebConfig 发布的 TraceSampler 决定，容器启动前不跟踪。
+ */
+public class TraceFilter implements Filter {
+
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    public static final String FORCE_HEADER = "X-Trace";
+
+    private AppComponents components;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        components = AppComponents.from(filterConfig.getServletContext());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse resp = (HttpServletResponse) response;
+
+        TraceSampler sampler = components.get(TraceSampler.class);
+        Trace trace = sampler == null ? null
+                : sampler.begin(req.getMethod() + " " + req.getRequestURI(), "1".equals(req.getHeader(FORCE_HEADER)));
+        if (trace == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        resp.setHeader(TRACE_ID_HEADER, trace.getId());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            sampler.finish(trace, resp.getStatus());
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+}
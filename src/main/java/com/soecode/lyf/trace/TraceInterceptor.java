@@ -0,0 +1,74 @@
+package com.soecode.lyf.trace;
+
+import com.soecode.lyf.sqlbudget.SqlCounter;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.Properties;
+
+/**
+ * 每条 MyBatis 语句记为一段 sql，名字取语句ID（如 BookDao.reduceNumber）
+ * <p>
+ * 最后注册，处于插件链最外层，段内包含舱壁等待和连接池 checkout。
+ * 当前线程在统计 SQL 预算时，每条语句连同 SQL 文本计入 SqlCounter。
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class TraceInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (SqlCounter.isCounting()) {
+            count(invocation.getArgs());
+        }
+        long start = Tracer.start();
+        if (start == 0L) {
+            return invocation.proceed();
+        }
+        String id = ((MappedStatement) invocation.getArgs()[0]).getId();
+        boolean error = true;
+        try {
+            Object result = invocation.proceed();
+            error = false;
+            return result;
+        } finally {
+            Tracer.end(start, Tracer.SQL, shortId(id), error);
+        }
+    }
+
+    private static void count(Object[] args) {
+        MappedStatement ms = (MappedStatement) args[0];
+        BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : ms.getBoundSql(args[1]);
+        SqlCounter.statement(shortId(ms.getId()), boundSql.getSql());
+    }
+
+    // com.soecode.lyf.dao.BookDao.queryById -> BookDao.queryById
+    private static String shortId(String id) {
+        return id.substring(id.lastIndexOf('.', id.lastIndexOf('.') - 1) + 1);
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.soecode.lyf.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按采样率决定是否跟踪一个请求，完成的跟踪放进环形缓冲
+ * <p>
+ * 由 WebConfig 按 trace.* 配置创建，TraceFilter 经 AppComponents 取用，/debug/traces 读其中的缓冲。
+ */
+public class TraceSampler {
+
+    private final double sampleRate;
+
+    private final int maxSpans;
+
+    private final boolean forceHeader;
+
+    private final TraceBuffer buffer;
+
+    private final AtomicLong sampled = new AtomicLong();
+
+    /**
+     * @param forceHeader 是否认 X-Trace: 1 请求头，见 TraceFilter
+     */
+    public TraceSampler(double sampleRate, int bufferSize, int maxSpans, boolean forceHeader) {
+        this.sampleRate = sampleRate;
+        this.maxSpans = maxSpans;
+        this.forceHeader = forceHeader;
+        this.buffer = new TraceBuffer(bufferSize);
+    }
+
+    /**
+     * @param forceRequested 请求带了 X-Trace: 1
+     * @return 未采样时返回null
+     */
+    public Trace begin(String name, boolean forceRequested) {
+        boolean sample = (forceHeader && forceRequested)
+                || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+        Trace trace = Tracer.begin(name, sample, maxSpans);
+        if (trace != null) {
+            sampled.incrementAndGet();
+        }
+        return trace;
+    }
+
+    public void finish(Trace trace, int status) {
+        Tracer.finish(trace, status);
+        buffer.add(trace);
+    }
+
+    public TraceBuffer getBuffer() {
+        return buffer;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public long getSampled() {
+        return sampled.get();
+    }
+
+}
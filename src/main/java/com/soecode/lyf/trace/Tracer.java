@@ -0,0 +1,91 @@
+package com.soecode.lyf.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 请求跟踪入口
+ * <p>
+ * 被采样的请求由 TraceSampler 创建 Trace 放进当前线程，服务层、MyBatis 语句、连接池 checkout 各自调用
+ * start()/end() 记一段耗时。未采样时当前线程没有 Trace，start() 返回0，end() 直接返回，
+ * 每个埋点只多一次 ThreadLocal 读取，不分配对象、不取时钟。
+ */
+public final class Tracer {
+
+    public static final String QUEUE = "queue";
+
+    public static final String SERVICE = "service";
+
+    public static final String SQL = "sql";
+
+    public static final String CHECKOUT = "checkout";
+
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    // worker 线程接到任务时记下的提交时刻，见 QueueTimingExecutor
+    private static final ThreadLocal<long[]> DISPATCHED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private Tracer() {
+    }
+
+    /**
+     * 记下 worker 线程从队列取到任务的时刻，由 worker 线程在执行任务前调用
+     */
+    public static void dispatched(long submittedNanos) {
+        DISPATCHED.get()[0] = submittedNanos;
+    }
+
+    /**
+     * 开始跟踪当前请求，由 TraceSampler 调用
+     *
+     * @param sample 未采样时只清掉 worker 记下的提交时刻
+     * @return 未采样时返回null
+     */
+    static Trace begin(String name, boolean sample, int maxSpans) {
+        long[] dispatched = DISPATCHED.get();
+        long submitted = dispatched[0];
+        dispatched[0] = 0;
+        if (!sample) {
+            return null;
+        }
+        long now = System.nanoTime();
+        // 有提交时刻时从进队列算起，排队耗时记为第一段
+        Trace trace = new Trace(Long.toHexString(ThreadLocalRandom.current().nextLong()), name,
+                submitted != 0 ? submitted : now, maxSpans);
+        if (submitted != 0) {
+            trace.addSpan(QUEUE, "worker", submitted, now, false);
+        }
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    static void finish(Trace trace, int status) {
+        CURRENT.remove();
+        trace.finish(System.nanoTime(), status);
+    }
+
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return 未采样时返回0
+     */
+    public static long start() {
+        return CURRENT.get() == null ? 0L : System.nanoTime();
+    }
+
+    public static void end(long start, String kind, String name) {
+        end(start, kind, name, false);
+    }
+
+    public static void end(long start, String kind, String name, boolean error) {
+        if (start == 0L) {
+            return;
+        }
+        Trace trace = CURRENT.get();
+        if (trace != null) {
+            trace.addSpan(kind, name, start, System.nanoTime(), error);
+        }
+    }
+
+}
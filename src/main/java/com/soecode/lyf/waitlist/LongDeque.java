@@ -0,0 +1,113 @@
+package com.soecode.lyf.waitlist;
+
+import java.util.Arrays;
+
+/**
+ * long 环形双端队列，存学号，每个元素只占8字节，不装箱
+ * <p>
+ * 非线程安全，由调用方加锁。
+ */
+final class LongDeque {
+
+    private long[] elements;
+
+    private int head;
+
+    private int size;
+
+    // 已占位、正在写库尚未入队的个数
+    private int reserved;
+
+    // 已从队头取出、正在转预约的个数
+    private int promoting;
+
+    LongDeque(int initialCapacity) {
+        elements = new long[Math.max(Integer.highestOneBit(Math.max(initialCapacity, 2) - 1) << 1, 2)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int reserved() {
+        return reserved;
+    }
+
+    void reserve() {
+        reserved++;
+    }
+
+    void unreserve() {
+        reserved--;
+    }
+
+    int promoting() {
+        return promoting;
+    }
+
+    void setPromoting(int promoting) {
+        this.promoting = promoting;
+    }
+
+    void addLast(long value) {
+        ensureCapacity();
+        elements[(head + size) & (elements.length - 1)] = value;
+        size++;
+    }
+
+    void addFirst(long value) {
+        ensureCapacity();
+        head = (head - 1) & (elements.length - 1);
+        elements[head] = value;
+        size++;
+    }
+
+    long pollFirst() {
+        if (size == 0) {
+            throw new IllegalStateException("empty");
+        }
+        long value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    /**
+     * 队列大幅缩短后收缩数组，售罄高峰过后归还内存
+     */
+    void trim() {
+        if (elements.length > 64 && size < elements.length / 4) {
+            long[] shrunk = new long[Math.max(Integer.highestOneBit(Math.max(size, 1)) << 1, 64)];
+            copyTo(shrunk);
+            elements = shrunk;
+            head = 0;
+        }
+    }
+
+    private void ensureCapacity() {
+        if (size == elements.length) {
+            long[] grown = new long[elements.length << 1];
+            copyTo(grown);
+            elements = grown;
+            head = 0;
+        }
+    }
+
+    private void copyTo(long[] target) {
+        int first = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, target, 0, first);
+        System.arraycopy(elements, 0, target, first, size - first);
+    }
+
+    @Override
+    public String toString() {
+        long[] values = new long[size];
+        copyTo(values);
+        return Arrays.toString(values);
+    }
+
+}
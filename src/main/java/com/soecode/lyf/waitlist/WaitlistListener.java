@@ -0,0 +1,16 @@
+package com.soecode.lyf.waitlist;
+
+import com.soecode.lyf.dto.AppointExecution;
+
+/**
+ * 候补转为预约时的通知
+ */
+public interface WaitlistListener {
+
+    /**
+     * @param studentId 被转为预约的学生
+     * @param execution 预约结果，SUCCESS 或开启保留时的 HELD
+     */
+    void promoted(long studentId, AppointExecution execution);
+
+}
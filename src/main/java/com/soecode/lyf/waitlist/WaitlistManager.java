@@ -0,0 +1,390 @@
+package com.soecode.lyf.waitlist;
+
+import com.soecode.lyf.dao.AppointmentDao;
+import com.soecode.lyf.dao.BookDao;
+import com.soecode.lyf.dao.WaitlistDao;
+import com.soecode.lyf.datasource.DataSourceContextHolder;
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.entity.WaitlistEntry;
+import com.soecode.lyf.enums.AppointStateEnum;
+import com.soecode.lyf.event.BookChangeEvents;
+import com.soecode.lyf.event.BookChangeListener;
+import com.soecode.lyf.hold.AppointHoldManager;
+import com.soecode.lyf.stock.StockAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 图书候补队列
+ * <p>
+ * 售罄时学生可以排队，之后不必反复刷新重试。每本书一个学号 FIFO，放在内存的 long 环形队列里；
+ * 入队同时写 waitlist 表，重启时按入队顺序恢复。
+ * 库存归还（保留到期、租约归还等）时把该书标记为待处理，转预约线程按批从队头取学生扣库存、写预约，
+ * 成功后删除对应候补并通知；另外定时用一次 IN 查询检查所有有人排队的书，覆盖直接在库里补货的情况。
+ * 有人排队的书不接受直接预约（见 hasWaiting），归还的库存只留给队头，反复刷新的请求插不了队。
+ * 未开启时 isEnabled() 为false。
+ */
+public class WaitlistManager implements BookChangeListener {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final WaitlistDao waitlistDao;
+
+    private final AppointmentDao appointmentDao;
+
+    private final BookDao bookDao;
+
+    private final StockAllocator stockAllocator;
+
+    private final AppointHoldManager appointHoldManager;
+
+    private final BookChangeEvents bookChangeEvents;
+
+    private final int maxPerBook;
+
+    private final int batchSize;
+
+    private final Map<Long, LongDeque> queues = new ConcurrentHashMap<>();
+
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    private final List<WaitlistListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong enqueued = new AtomicLong();
+
+    private final AtomicLong promoted = new AtomicLong();
+
+    private final AtomicLong rejectedFull = new AtomicLong();
+
+    public WaitlistManager(WaitlistDao waitlistDao, AppointmentDao appointmentDao, BookDao bookDao,
+                           StockAllocator stockAllocator, AppointHoldManager appointHoldManager,
+                           BookChangeEvents bookChangeEvents, int maxPerBook, int batchSize) {
+        this.waitlistDao = waitlistDao;
+        this.appointmentDao = appointmentDao;
+        this.bookDao = bookDao;
+        this.stockAllocator = stockAllocator;
+        this.appointHoldManager = appointHoldManager;
+        this.bookChangeEvents = bookChangeEvents;
+        this.maxPerBook = maxPerBook;
+        this.batchSize = batchSize;
+        if (waitlistDao == null) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "waitlist-promoter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static WaitlistManager disabled() {
+        return new WaitlistManager(null, null, null, null, null, null, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return waitlistDao != null;
+    }
+
+    /**
+     * 从 waitlist 表恢复队列，然后开始转预约；恢复后所有书都检查一遍库存
+     *
+     * @param promoteMillis 处理待转预约图书的间隔
+     * @param sweepSeconds  检查全部排队图书库存的间隔
+     * @return 恢复的候补数
+     */
+    public int start(int recoverBatch, long promoteMillis, long sweepSeconds) {
+        long start = System.currentTimeMillis();
+        int count = 0;
+        long afterBookId = 0;
+        long afterSeq = 0;
+        while (true) {
+            List<WaitlistEntry> page = waitlistDao.queryAfter(afterBookId, afterSeq, recoverBatch);
+            for (WaitlistEntry entry : page) {
+                queues.computeIfAbsent(entry.getBookId(), k -> new LongDeque(16)).addLast(entry.getStudentId());
+            }
+            count += page.size();
+            if (page.size() < recoverBatch) {
+                break;
+            }
+            WaitlistEntry last = page.get(page.size() - 1);
+            afterBookId = last.getBookId();
+            afterSeq = last.getSeq();
+        }
+        logger.info("waitlist recovered, students=" + count + ", books=" + queues.size()
+                + ", cost=" + (System.currentTimeMillis() - start) + "ms");
+
+        scheduler.scheduleWithFixedDelay(this::promoteDirty, promoteMillis, promoteMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweep, 0, sweepSeconds, TimeUnit.SECONDS);
+        return count;
+    }
+
+    public void addListener(WaitlistListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 加入候补
+     *
+     * @return 入队后的队列长度，已在队列中返回0，队列已满返回-1
+     */
+    public int enqueue(long bookId, long studentId) {
+        LongDeque queue = reserve(bookId);
+        if (queue == null) {
+            rejectedFull.incrementAndGet();
+            return -1;
+        }
+        boolean inserted = false;
+        int size;
+        try {
+            // 唯一键去重，重复加入不占位置
+            inserted = waitlistDao.insert(bookId, studentId) > 0;
+        } finally {
+            synchronized (queue) {
+                queue.unreserve();
+                if (inserted) {
+                    queue.addLast(studentId);
+                }
+                size = queue.size();
+            }
+        }
+        if (!inserted) {
+            return 0;
+        }
+        enqueued.incrementAndGet();
+        // 入队前后可能刚好有库存归还
+        dirty.add(bookId);
+        return size;
+    }
+
+    /**
+     * 在队列锁内检查长度并占一个位置，写库期间并发的入队也不会超过 maxPerBook
+     *
+     * @return 队列已满返回null
+     */
+    private LongDeque reserve(long bookId) {
+        while (true) {
+            LongDeque queue = queues.computeIfAbsent(bookId, k -> new LongDeque(16));
+            synchronized (queue) {
+                // 空队列可能刚被 sweep 移除，重新取
+                if (queues.get(bookId) != queue) {
+                    continue;
+                }
+                if (queue.size() + queue.reserved() >= maxPerBook) {
+                    return null;
+                }
+                queue.reserve();
+                return queue;
+            }
+        }
+    }
+
+    /**
+     * 该书是否有人在排队，包括正在写库入队和正在转预约的学生
+     */
+    public boolean hasWaiting(long bookId) {
+        LongDeque queue = queues.get(bookId);
+        if (queue == null) {
+            return false;
+        }
+        synchronized (queue) {
+            return queue.size() + queue.reserved() + queue.promoting() > 0;
+        }
+    }
+
+    @Override
+    public void stockChanged(long bookId, int delta) {
+        if (delta > 0 && queues.containsKey(bookId)) {
+            dirty.add(bookId);
+        }
+    }
+
+    private void promoteDirty() {
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            Long bookId = it.next();
+            it.remove();
+            try {
+                promote(bookId);
+            } catch (RuntimeException e) {
+                logger.error("promote waitlist failed, bookId=" + bookId, e);
+            }
+        }
+    }
+
+    /**
+     * 按批从队头取学生转为预约，直到库存不足或队列为空
+     */
+    private void promote(long bookId) {
+        LongDeque queue = queues.get(bookId);
+        if (queue == null) {
+            return;
+        }
+        while (true) {
+            long[] batch;
+            synchronized (queue) {
+                int n = Math.min(batchSize, queue.size());
+                if (n == 0) {
+                    queue.trim();
+                    return;
+                }
+                batch = new long[n];
+                for (int i = 0; i < n; i++) {
+                    batch[i] = queue.pollFirst();
+                }
+                queue.setPromoting(n);
+            }
+            List<Long> done = new ArrayList<>(batch.length);
+            int taken = 0;
+            int next = 0;
+            try {
+                for (; next < batch.length; next++) {
+                    if (!stockAllocator.acquire(bookId)) {
+                        break;
+                    }
+                    AppointExecution execution;
+                    try {
+                        execution = appoint(bookId, batch[next]);
+                    } catch (RuntimeException e) {
+                        // 该学生放回队头，等下一次检查库存时重试
+                        stockAllocator.release(bookId);
+                        throw e;
+                    }
+                    if (execution == null) {
+                        // 已有预约，归还库存，移出候补
+                        stockAllocator.release(bookId);
+                    } else {
+                        taken++;
+                        notifyPromoted(batch[next], execution);
+                    }
+                    done.add(batch[next]);
+                }
+            } finally {
+                // 没轮到的放回队头，保持顺序
+                synchronized (queue) {
+                    for (int i = batch.length - 1; i >= next; i--) {
+                        queue.addFirst(batch[i]);
+                    }
+                    queue.setPromoting(0);
+                }
+                if (!done.isEmpty()) {
+                    waitlistDao.deleteBatch(bookId, done);
+                }
+                if (taken > 0) {
+                    promoted.addAndGet(taken);
+                    bookChangeEvents.stockChanged(bookId, -taken);
+                }
+            }
+            if (next < batch.length) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 已有预约时返回null
+     */
+    private AppointExecution appoint(long bookId, long studentId) {
+        if (appointHoldManager.isEnabled()) {
+            if (appointHoldManager.hold(bookId, studentId) == null) {
+                return null;
+            }
+            return new AppointExecution(bookId, AppointStateEnum.HELD, appointmentDao.queryByKeyWithBook(bookId, studentId));
+        }
+        if (appointmentDao.insertAppointment(bookId, studentId) <= 0) {
+            return null;
+        }
+        return new AppointExecution(bookId, AppointStateEnum.SUCCESS, appointmentDao.queryByKeyWithBook(bookId, studentId));
+    }
+
+    private void notifyPromoted(long studentId, AppointExecution execution) {
+        for (WaitlistListener listener : listeners) {
+            try {
+                listener.promoted(studentId, execution);
+            } catch (RuntimeException e) {
+                logger.warn("waitlist listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * 检查所有有人排队的书，有库存的标记为待处理；空队列一并清理。
+     * 与 promote 同在 waitlist-promoter 线程上执行，不会移除正在转预约的队列
+     */
+    private void sweep() {
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (Map.Entry<Long, LongDeque> entry : queues.entrySet()) {
+                LongDeque queue = entry.getValue();
+                synchronized (queue) {
+                    if (queue.isEmpty() && queue.reserved() == 0) {
+                        queues.remove(entry.getKey(), queue);
+                        continue;
+                    }
+                }
+                ids.add(entry.getKey());
+            }
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                for (Book book : queryPrimary(ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size())))) {
+                    if (book.getNumber() + stockAllocator.held(book.getBookId()) > 0) {
+                        dirty.add(book.getBookId());
+                    }
+                }
+            }
+            promoteDirty();
+        } catch (RuntimeException e) {
+            logger.error("sweep waitlist failed", e);
+        }
+    }
+
+    private List<Book> queryPrimary(List<Long> ids) {
+        DataSourceContextHolder.setForcePrimary(true);
+        try {
+            return bookDao.queryByIds(ids);
+        } finally {
+            DataSourceContextHolder.clear();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long waiting = 0;
+        for (LongDeque queue : queues.values()) {
+            synchronized (queue) {
+                waiting += queue.size();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("books", queues.size());
+        stats.put("waiting", waiting);
+        stats.put("enqueued", enqueued.get());
+        stats.put("promoted", promoted.get());
+        stats.put("rejectedFull", rejectedFull.get());
+        stats.put("pendingBooks", dirty.size());
+        return stats;
+    }
+
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+}
@@ -12,12 +12,14 @@ import com.soecode.lyf.dto.AppointExecution;
 import com.soecode.lyf.dto.Result;
 import com.soecode.lyf.entity.Book;
 import com.soecode.lyf.enums.AppointStateEnum;
-import com.soecode.lyf.exception.NoNumberException;
-import com.soecode.lyf.exception.RepeatAppointException;
+import com.soecode.lyf.hotkey.HotBookTracker;
+import com.soecode.lyf.idempotent.IdempotencyStore;
+import com.soecode.lyf.ratelimit.AppointRateLimiter;
 import com.soecode.lyf.service.BookService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 
 @Controller
@@ -26,9 +28,20 @@ public class BookController {
 
     private Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    private static final int SEARCH_LIMIT = 50;
+
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private IdempotencyStore<Result<AppointExecution>> appointIdempotencyStore;
+
+    @Autowired
+    private AppointRateLimiter appointRateLimiter;
+
+    @Autowired
+    private HotBookTracker hotBookTracker;
+
     @RequestMapping(value = "/list", method = RequestMethod.GET)
     private String list(Model model) {
         List<Book> list = bookService.getList();
@@ -46,6 +59,7 @@ public class BookController {
         if (bookId == null) {
             return "redirect:/book/list";
         }
+        hotBookTracker.recordDetail(bookId);
 
         Book book = bookService.getById(bookId);
 
@@ -57,25 +71,105 @@ public class BookController {
         return "detail";
     }
 
+    // 列表数据，供程序调用；Accept 为 application/x-lyf-record 时经快速路径返回二进制记录
+    @RequestMapping(value = "/data", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    private Result<List<Book>> listData() {
+        return new Result<>(true, bookService.getList());
+    }
+
+    // 详情数据，供程序调用，格式协商同 /data
+    @RequestMapping(value = "/{bookId}/data", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    private Result<Book> detailData(@PathVariable("bookId") Long bookId) {
+        hotBookTracker.recordDetail(bookId);
+        Book book = bookService.getById(bookId);
+        if (book == null) {
+            return new Result<>(false, "图书不存在");
+        }
+        return new Result<>(true, book);
+    }
+
+    @RequestMapping(value = "/search", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    private Result<List<Book>> search(@RequestParam("q") String q) {
+        if (q == null || q.trim().isEmpty()) {
+            return new Result<>(false, "关键字为空");
+        }
+        return new Result<>(true, bookService.search(q, SEARCH_LIMIT));
+    }
+
     // ajax json
     @RequestMapping(value = "/{bookId}/appoint", method = RequestMethod.POST, produces = {"application/json; charset=utf-8"})
     @ResponseBody
-    private Result<AppointExecution> appoint(@PathVariable("bookId") Long bookId, @RequestParam("studentId") Long studentId) {
+    private Result<AppointExecution> appoint(@PathVariable("bookId") Long bookId, @RequestParam("studentId") Long studentId,
+                                             @RequestParam(value = "waitlist", required = false) Boolean waitlist,
+                                             HttpServletRequest request) {
         if (studentId == null || studentId.equals("")) {
             return new Result<>(false, "学号不能为空");
         }
+        // 统计原始请求量，包括随后被限流的
+        hotBookTracker.recordAppoint(bookId);
+        boolean joinWaitlist = Boolean.TRUE.equals(waitlist);
+        // 客户端超时重试时带同一个幂等键，直接返回第一次的结果
+        String idempotencyKey = request.getHeader("Idempotency-Key");
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            return limitedAppoint(bookId, studentId, joinWaitlist, request);
+        }
+        if (idempotencyKey.length() > 128) {
+            return new Result<>(false, "Idempotency-Key过长");
+        }
+        String key = idempotencyKey + ":" + bookId + ":" + studentId;
+        try {
+            // 命中已有结果或等待同键的首个请求时不限流，只有真正执行的请求消耗令牌；被限流的结果不缓存
+            return appointIdempotencyStore.execute(key, () -> limitedAppoint(bookId, studentId, joinWaitlist, request),
+                    result -> result.getData() == null
+                            || (result.getData().getState() != AppointStateEnum.INNER_ERROR.getState()
+                            && result.getData().getState() != AppointStateEnum.RATE_LIMITED.getState()));
+        } catch (RuntimeException e) {
+            logger.warn("idempotent appoint failed: {}", e.getMessage());
+            return AppointExecution.failureOf(bookId, AppointStateEnum.INNER_ERROR).asResult();
+        }
+    }
+
+    // 确认预约保留，仅在开启保留模式时有效
+    @RequestMapping(value = "/{bookId}/confirm", method = RequestMethod.POST, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    private Result<AppointExecution> confirm(@PathVariable("bookId") Long bookId, @RequestParam("studentId") Long studentId) {
+        if (studentId == null) {
+            return new Result<>(false, "学号不能为空");
+        }
+        AppointExecution execution;
+        try {
+            execution = bookService.confirm(bookId, studentId);
+        } catch (Exception e) {
+            execution = AppointExecution.failureOf(bookId, AppointStateEnum.INNER_ERROR);
+        }
+        return execution.asResult();
+    }
+
+    private Result<AppointExecution> limitedAppoint(long bookId, long studentId, boolean waitlist,
+                                                    HttpServletRequest request) {
+        // 限流，被拒绝的请求不进入业务层
+        if (!appointRateLimiter.tryAcquire(studentId, request)) {
+            return AppointExecution.failureOf(bookId, AppointStateEnum.RATE_LIMITED).asResult();
+        }
+        return doAppoint(bookId, studentId, waitlist);
+    }
+
+    private Result<AppointExecution> doAppoint(long bookId, long studentId, boolean waitlist) {
         AppointExecution execution = null;
         try {
             execution = bookService.appoint(bookId, studentId);
-        } catch (NoNumberException e1) {
-            execution = new AppointExecution(bookId, AppointStateEnum.NO_NUMBER);
-        } catch (RepeatAppointException e2) {
-            execution = new AppointExecution(bookId, AppointStateEnum.REPEAT_APPOINT);
+            // 售罄时排进候补，之后不用再反复点
+            if (waitlist && execution.getState() == AppointStateEnum.NO_NUMBER.getState()) {
+                execution = bookService.joinWaitlist(bookId, studentId);
+            }
         } catch (Exception e) {
-            execution = new AppointExecution(bookId, AppointStateEnum.INNER_ERROR);
+            execution = AppointExecution.failureOf(bookId, AppointStateEnum.INNER_ERROR);
         }
 
-        return new Result<>(true, execution);
+        return execution.asResult();
     }
 
 }
@@ -0,0 +1,81 @@
+package com.soecode.lyf.web;
+
+import com.github.datalking.annotation.Autowired;
+import com.github.datalking.annotation.Controller;
+import com.github.datalking.annotation.web.RequestMapping;
+import com.github.datalking.annotation.web.RequestParam;
+import com.github.datalking.annotation.web.ResponseBody;
+import com.github.datalking.web.http.RequestMethod;
+import com.soecode.lyf.sqlbudget.SqlBudget;
+import com.soecode.lyf.sqlbudget.SqlBudgetMonitor;
+import com.soecode.lyf.trace.Trace;
+import com.soecode.lyf.trace.TraceBuffer;
+import com.soecode.lyf.trace.TraceSampler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Controller
+@RequestMapping("/debug")
+public class DebugController {
+
+    private static final int MAX_LIMIT = 500;
+
+    @Autowired
+    private TraceSampler traceSampler;
+
+    @Autowired
+    private SqlBudgetMonitor sqlBudgetMonitor;
+
+    // 最近被采样请求的跟踪，从新到旧；traceId 取单条，minMillis 只看慢请求
+    @RequestMapping(value = "/traces", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    public Map<String, Object> traces(@RequestParam(value = "traceId", required = false) String traceId,
+                                      @RequestParam(value = "minMillis", required = false) Long minMillis,
+                                      @RequestParam(value = "limit", required = false) Integer limit) {
+        TraceBuffer buffer = traceSampler.getBuffer();
+        List<Trace> traces;
+        if (traceId != null && !traceId.isEmpty()) {
+            Trace trace = buffer.get(traceId);
+            traces = new ArrayList<>(1);
+            if (trace != null) {
+                traces.add(trace);
+            }
+        } else {
+            traces = buffer.recent(limit == null ? 50 : Math.max(1, Math.min(limit, MAX_LIMIT)),
+                    minMillis == null ? 0 : minMillis * 1000000L);
+        }
+        List<Map<String, Object>> list = new ArrayList<>(traces.size());
+        for (Trace trace : traces) {
+            list.add(trace.toMap());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sampleRate", traceSampler.getSampleRate());
+        result.put("sampled", traceSampler.getSampled());
+        result.put("capacity", buffer.getCapacity());
+        result.put("traces", list);
+        return result;
+    }
+
+    // 各接口的 SQL 预算与超出记录；reset=true 时返回后清空记录
+    @RequestMapping(value = "/sql-budget", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    public Map<String, Object> sqlBudget(@RequestParam(value = "reset", required = false) Boolean reset) {
+        Map<String, String> budgets = new LinkedHashMap<>();
+        for (SqlBudget budget : sqlBudgetMonitor.getBudgets()) {
+            budgets.put(budget.getName(), budget.getMaxStatements() + "/" + budget.getMaxConnections());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", sqlBudgetMonitor.isEnabled());
+        result.put("repeatThreshold", sqlBudgetMonitor.getRepeatThreshold());
+        result.put("budgets", budgets);
+        result.put("violations", sqlBudgetMonitor.getViolations());
+        if (Boolean.TRUE.equals(reset)) {
+            sqlBudgetMonitor.resetViolations();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.soecode.lyf.web;
+
+import com.github.datalking.annotation.Autowired;
+import com.github.datalking.annotation.Controller;
+import com.github.datalking.annotation.web.RequestMapping;
+import com.github.datalking.annotation.web.ResponseBody;
+import com.github.datalking.web.http.RequestMethod;
+import com.soecode.lyf.catalog.OffHeapCatalog;
+import com.soecode.lyf.hold.AppointHoldManager;
+import com.soecode.lyf.hotkey.HotBookTracker;
+import com.soecode.lyf.ratelimit.AppointRateLimiter;
+import com.soecode.lyf.resilience.ResilienceInterceptor;
+import com.soecode.lyf.stream.StockBroadcaster;
+import com.soecode.lyf.waitlist.WaitlistManager;
+
+import java.util.Map;
+
+@Controller
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    @Autowired
+    private AppointRateLimiter appointRateLimiter;
+
+    @Autowired
+    private StockBroadcaster stockBroadcaster;
+
+    @Autowired
+    private ResilienceInterceptor resilienceInterceptor;
+
+    @Autowired
+    private HotBookTracker hotBookTracker;
+
+    @Autowired
+    private AppointHoldManager appointHoldManager;
+
+    @Autowired
+    private WaitlistManager waitlistManager;
+
+    @Autowired
+    private OffHeapCatalog offHeapCatalog;
+
+    // 限流命中计数
+    @RequestMapping(value = "/rate-limit", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    public Map<String, Object> rateLimit() {
+        return appointRateLimiter.stats();
+    }
+
+    // 库存推送连接数与丢弃计数
+    @RequestMapping(value = "/stream", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    public Map<String, Object> stream() {
+        return stockBroadcaster.stats();
+    }
+
+    // 数据库调用舱壁与熔断状态
+    @RequestMapping(value = "/dao", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    public Map<String, Object> dao() {
+        return resilienceInterceptor.stats();
+    }
+
+    // 预约与详情请求最多的图书，计数按半衰期衰减
+    @RequestMapping(value = "/hot-books", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    public Map<String, Object> hotBooks() {
+        return hotBookTracker.stats();
+    }
+
+    // 预约保留：时间轮中待到期的保留数与确认、释放计数
+    @RequestMapping(value = "/holds", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    public Map<String, Object> holds() {
+        return appointHoldManager.stats();
+    }
+
+    // 候补队列长度与转预约计数
+    @RequestMapping(value = "/waitlist", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    public Map<String, Object> waitlist() {
+        return waitlistManager.stats();
+    }
+
+    // 堆外图书目录的记录数与映射区用量
+    @RequestMapping(value = "/catalog", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    public Map<String, Object> catalog() {
+        return offHeapCatalog.stats();
+    }
+
+}
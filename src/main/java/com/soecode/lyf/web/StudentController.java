@@ -0,0 +1,42 @@
+package com.soecode.lyf.web;
+
+import com.github.datalking.annotation.Autowired;
+import com.github.datalking.annotation.Controller;
+import com.github.datalking.annotation.web.PathVariable;
+import com.github.datalking.annotation.web.RequestMapping;
+import com.github.datalking.annotation.web.RequestParam;
+import com.github.datalking.annotation.web.ResponseBody;
+import com.github.datalking.web.http.RequestMethod;
+import com.soecode.lyf.dto.AppointmentPage;
+import com.soecode.lyf.dto.Result;
+import com.soecode.lyf.service.StudentService;
+
+@Controller
+@RequestMapping("/student")
+public class StudentController {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private StudentService studentService;
+
+    // 预约历史，cursor 取上一页返回的 nextCursor
+    @RequestMapping(value = "/{studentId}/appointments", method = RequestMethod.GET, produces = {"application/json; charset=utf-8"})
+    @ResponseBody
+    private Result<AppointmentPage> appointments(@PathVariable("studentId") Long studentId,
+                                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                                 @RequestParam(value = "size", required = false) Integer size) {
+        if (studentId == null) {
+            return new Result<>(false, "学号不能为空");
+        }
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        try {
+            return new Result<>(true, studentService.listAppointments(studentId, cursor, pageSize));
+        } catch (IllegalArgumentException e) {
+            return new Result<>(false, "游标无效");
+        }
+    }
+
+}
@@ -0,0 +1,16 @@
+-- 图书与预约表，显式指定 utf8mb4，服务器默认字符集为 latin1 时中文书名才不会乱码
+-- book 主键 bookId：queryById/queryByIds/queryByIdRange 按主键查找，queryAll 按 bookId 顺序分页直接沿主键扫描
+CREATE TABLE book (
+  bookId BIGINT NOT NULL AUTO_INCREMENT,
+  name VARCHAR(100) NOT NULL,
+  number INT NOT NULL,
+  PRIMARY KEY (bookId)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- appointment 主键 (bookId, studentId)：insertAppointment 的 INSERT ignore 靠它去重，queryByKeyWithBook 按它查找
+CREATE TABLE appointment (
+  bookId BIGINT NOT NULL,
+  studentId BIGINT NOT NULL,
+  appointTime TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (bookId, studentId)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,2 @@
+-- 学生预约历史按 (studentId, appointTime, bookId) 游标分页，需要此索引保证每页只扫描 O(页大小) 行
+CREATE INDEX idx_student_time_book ON appointment (studentId, appointTime, bookId);
@@ -0,0 +1,7 @@
+-- 预约保留：status 0=已确认（原有记录） 1=保留待确认，holdUntil 为保留截止时间
+ALTER TABLE appointment ADD COLUMN status TINYINT NOT NULL DEFAULT 0;
+
+ALTER TABLE appointment ADD COLUMN holdUntil DATETIME NULL;
+
+-- 启动时按 (holdUntil, bookId, studentId) 游标分页读出全部保留重建时间轮
+CREATE INDEX idx_status_hold ON appointment (status, holdUntil, bookId, studentId);
@@ -0,0 +1,14 @@
+-- 售罄图书的候补队列，按 seq 先后转为预约
+CREATE TABLE waitlist (
+  seq BIGINT NOT NULL AUTO_INCREMENT,
+  bookId BIGINT NOT NULL,
+  studentId BIGINT NOT NULL,
+  createTime TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (seq)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 重复加入靠唯一键去重，deleteBatch 按它删除
+CREATE UNIQUE INDEX uk_book_student ON waitlist (bookId, studentId);
+
+-- 启动时按书、按入队顺序恢复队列
+CREATE INDEX idx_book_seq ON waitlist (bookId, seq);
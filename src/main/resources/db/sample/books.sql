@@ -0,0 +1,6 @@
+-- 示例图书，内嵌数据库 book 表为空时写入
+INSERT INTO book (bookId, name, number) VALUES
+  (1000, 'Java程序设计', 10),
+  (1001, '数据结构', 10),
+  (1002, '设计模式', 10),
+  (1003, '编译原理', 10);
@@ -36,17 +36,33 @@
         　　</style>
     <script type="text/javascript">
 
-        function appointBook(id, studentId) {
+        function appointBook(id, studentId, waitlist) {
             $.ajax({
-                url: "/book/" + id + "/appoint?studentId=" + studentId,
+                url: "/book/" + id + "/appoint?studentId=" + studentId + (waitlist ? "&waitlist=true" : ""),
                 type: "POST",
                 contentType: "application/json;charset=utf-8",
                 success: function (result) {
                     if (result.success == true) {
-                        if (result.data) {
+                        if (result.data && result.data.state == 2) {
+                            // 保留模式：确认后才转为正式预约
+                            if (confirm(result.data.stateInfo + "，现在确认？")) {
+                                confirmBook(id, studentId);
+                            }
+                        } else if (result.data && result.data.state == 0 && window.EventSource) {
+                            // 售罄：排进候补，转为预约时经 /book/stream 通知
+                            if (confirm(result.data.stateInfo + "，加入候补？")) {
+                                appointBook(id, studentId, true);
+                            }
+                        } else if (result.data && result.data.state == 3) {
                             alert(result.data.stateInfo);
+                            watchStudent(studentId);
+                        } else if (result.data) {
+                            alert(result.data.stateInfo);
+                        }
+                        // 库存由 /book/stream 推送更新，不支持 EventSource 的浏览器才整页刷新
+                        if (!window.EventSource) {
+                            location.reload();
                         }
-                        location.reload();
                     }
                 },
                 error: function (msg) {
@@ -55,6 +71,57 @@
             });
         };
 
+        function confirmBook(id, studentId) {
+            $.ajax({
+                url: "/book/" + id + "/confirm?studentId=" + studentId,
+                type: "POST",
+                success: function (result) {
+                    if (result.data) {
+                        alert(result.data.stateInfo);
+                    }
+                },
+                error: function (msg) {
+                    alert('Error!');
+                }
+            });
+        };
+
+        var stockSource = null;
+
+        function openStream(studentId) {
+            if (stockSource) {
+                stockSource.close();
+            }
+            stockSource = new EventSource("/book/stream" + (studentId ? "?studentId=" + studentId : ""));
+            stockSource.addEventListener("stock", function (e) {
+                var changes = JSON.parse(e.data);
+                for (var i = 0; i < changes.length; i++) {
+                    $("#number-" + changes[i].bookId).text(changes[i].number);
+                }
+            });
+            stockSource.addEventListener("promoted", function (e) {
+                var promoted = JSON.parse(e.data);
+                if (promoted.state == 2) {
+                    if (confirm("候补图书 " + promoted.bookId + "：" + promoted.stateInfo + "，现在确认？")) {
+                        confirmBook(promoted.bookId, studentId);
+                    }
+                } else {
+                    alert("候补图书 " + promoted.bookId + "：" + promoted.stateInfo);
+                }
+            });
+        }
+
+        // 改用带学号的连接，同时接收库存与候补通知
+        function watchStudent(studentId) {
+            if (stockSource && stockSource.url.indexOf("studentId=" + studentId) < 0) {
+                openStream(studentId);
+            }
+        }
+
+        if (window.EventSource) {
+            openStream(null);
+        }
+
     </script>
 </head>
 
@@ -75,7 +142,7 @@
             <tr>
                 <td>${book.bookId}</td>
                 <td><a id="detail" target='_blank' href='/book/${book.bookId}/detail'>${book.name}</a></td>
-                <td>${book.number}</td>
+                <td id="number-${book.bookId}">${book.number}</td>
                 <td>
                     <button onclick=appointBook(${book.bookId},6666);>预约</button>
                 </td>
@@ -0,0 +1,103 @@
+package com.soecode.lyf.soak;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 延迟直方图，单位微秒
+ * <p>
+ * 对数分桶，每个2的幂区间再分8格，相对误差约12%；多线程无锁记录，按采样窗口整体取出并清零。
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 8;
+
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long micros) {
+        counts.incrementAndGet(index(Math.max(micros, 0)));
+    }
+
+    /**
+     * 取出当前窗口的计数并清零
+     */
+    public Snapshot drain() {
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.getAndSet(i, 0);
+        }
+        return new Snapshot(snapshot);
+    }
+
+    static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int log = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (log - 3)) & (SUB_BUCKETS - 1));
+        return (log - 2) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * 桶的上界
+     */
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int log = index / SUB_BUCKETS + 2;
+        int sub = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (log - 3)) - 1;
+    }
+
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long total;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long count : counts) {
+                sum += count;
+            }
+            this.total = sum;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * @param quantile 0~1
+         * @return 微秒，无样本时返回0
+         */
+        public long percentile(double quantile) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max((long) Math.ceil(quantile * total), 1);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(counts.length - 1);
+        }
+
+        public long max() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.soecode.lyf.soak;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * 运行时指标采样
+ * <p>
+ * 堆占用取 GC 通知里回收后的堆大小（各堆内存池之和），比随时读取的已用堆更能反映存活对象，
+ * 每次 young GC 后都会更新；GC 停顿同样来自通知。连接池占用从 c3p0 注册的 MBean 读取。
+ */
+public class RuntimeSampler {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final String C3P0_DOMAIN = "com.mchange.v2.c3p0:*";
+
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    private final Set<String> heapPools = new HashSet<>();
+
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    private final NotificationListener listener = this::onGc;
+
+    private final IntSupplier workerActive;
+
+    private final AtomicLong heapAfterGc = new AtomicLong();
+
+    private final AtomicLong gcCount = new AtomicLong();
+
+    private final AtomicLong gcPauseMillis = new AtomicLong();
+
+    private final AtomicLong gcMaxPauseMillis = new AtomicLong();
+
+    public RuntimeSampler(IntSupplier workerActive) {
+        this.workerActive = workerActive;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool.getName());
+            }
+        }
+    }
+
+    public void start() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) gc;
+                emitter.addNotificationListener(listener, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    public void stop() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (Exception e) {
+                logger.warn("remove gc listener failed", e);
+            }
+        }
+        emitters.clear();
+    }
+
+    private void onGc(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> entry : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (heapPools.contains(entry.getKey())) {
+                used += entry.getValue().getUsed();
+            }
+        }
+        heapAfterGc.set(used);
+        long pause = info.getGcInfo().getDuration();
+        gcCount.incrementAndGet();
+        gcPauseMillis.addAndGet(pause);
+        gcMaxPauseMillis.accumulateAndGet(pause, Math::max);
+    }
+
+    /**
+     * 填充运行时指标，GC 计数与停顿为距上次采样的增量
+     */
+    public void sample(SoakSample sample) {
+        sample.heapAfterGcBytes = heapAfterGc.get();
+        sample.heapUsedBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        sample.gcCount = gcCount.getAndSet(0);
+        sample.gcPauseMillis = gcPauseMillis.getAndSet(0);
+        sample.gcMaxPauseMillis = gcMaxPauseMillis.getAndSet(0);
+        sample.threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        sample.workerActive = workerActive.getAsInt();
+        samplePool(sample);
+    }
+
+    private void samplePool(SoakSample sample) {
+        try {
+            // 0.9.1 的名字形如 type=PooledDataSource[token]，新版本为 type=PooledDataSource,identityToken=...
+            for (ObjectName name : mBeanServer.queryNames(new ObjectName(C3P0_DOMAIN), null)) {
+                String type = name.getKeyProperty("type");
+                if (type == null || !type.startsWith("PooledDataSource")) {
+                    continue;
+                }
+                sample.poolBusy += ((Number) mBeanServer.getAttribute(name, "numBusyConnectionsAllUsers")).intValue();
+                sample.poolTotal += ((Number) mBeanServer.getAttribute(name, "numConnectionsAllUsers")).intValue();
+            }
+        } catch (Exception e) {
+            logger.debug("read c3p0 mbean failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.soecode.lyf.soak;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测流量：若干线程按比例混合请求图书列表、详情和预约
+ * <p>
+ * 使用 HttpURLConnection 自带的 keep-alive 连接复用；4xx/5xx 响应和 IO 异常计为错误，
+ * 预约的业务失败（无库存、重复预约、被限流）是正常结果。
+ */
+public class SoakLoad {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private final String baseUrl;
+
+    private final int threads;
+
+    private final int books;
+
+    private final int listPercent;
+
+    private final int detailPercent;
+
+    private final long thinkMillis;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public SoakLoad(String baseUrl, int threads, int books, int listPercent, int detailPercent, long thinkMillis) {
+        this.baseUrl = baseUrl;
+        this.threads = threads;
+        this.books = books;
+        this.listPercent = listPercent;
+        this.detailPercent = detailPercent;
+        this.thinkMillis = thinkMillis;
+    }
+
+    public void start() {
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(this::run, "soak-load-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+    }
+
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread t : workers) {
+            t.join(TIMEOUT_MILLIS * 2L);
+        }
+        workers.clear();
+    }
+
+    /**
+     * 填充距上次采样的请求数、错误数和延迟分位
+     */
+    public void sample(SoakSample sample) {
+        LatencyHistogram.Snapshot snapshot = histogram.drain();
+        sample.requests = requests.getAndSet(0);
+        sample.errors = errors.getAndSet(0);
+        sample.p50Micros = snapshot.percentile(0.50);
+        sample.p99Micros = snapshot.percentile(0.99);
+        sample.maxMicros = snapshot.max();
+    }
+
+    private void run() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            int roll = random.nextInt(100);
+            long bookId = SoakTest.FIRST_BOOK_ID + random.nextInt(books);
+            long start = System.nanoTime();
+            boolean ok;
+            if (roll < listPercent) {
+                ok = call("GET", "/book/list");
+            } else if (roll < listPercent + detailPercent) {
+                ok = call("GET", "/book/" + bookId + "/detail");
+            } else {
+                // 学号随机，重复预约很少，同时让限流器的 key 持续更替
+                long studentId = 1 + random.nextInt(1000000000);
+                ok = call("POST", "/book/" + bookId + "/appoint?studentId=" + studentId);
+            }
+            histogram.record((System.nanoTime() - start) / 1000);
+            requests.incrementAndGet();
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+            if (thinkMillis > 0) {
+                try {
+                    Thread.sleep(thinkMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean call(String method, String path) {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            conn.setRequestMethod(method);
+            conn.setConnectTimeout(TIMEOUT_MILLIS);
+            conn.setReadTimeout(TIMEOUT_MILLIS);
+            conn.setInstanceFollowRedirects(false);
+            int status = conn.getResponseCode();
+            // 读完响应体，连接才能回到 keep-alive 缓存
+            drain(status >= 400 ? conn.getErrorStream() : conn.getInputStream());
+            return status < 400;
+        } catch (IOException e) {
+            logger.debug("{} {} failed: {}", method, path, e.getMessage());
+            if (conn != null) {
+                conn.disconnect();
+            }
+            return false;
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buf = new byte[8192];
+            while (stream.read(buf) != -1) {
+                // discard
+            }
+        }
+    }
+
+}
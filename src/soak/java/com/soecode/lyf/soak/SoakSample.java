@@ -0,0 +1,59 @@
+package com.soecode.lyf.soak;
+
+/**
+ * 一个采样窗口的运行时与延迟指标
+ */
+public class SoakSample {
+
+    static final String CSV_HEADER = "elapsedSeconds,warmup,heapAfterGcBytes,heapUsedBytes,gcCount,gcPauseMillis,"
+            + "gcMaxPauseMillis,threads,poolBusy,poolTotal,workerActive,requests,errors,p50Micros,p99Micros,maxMicros";
+
+    long elapsedSeconds;
+
+    boolean warmup;
+
+    // 窗口内最后一次 GC 后的堆占用，窗口内没有 GC 时沿用上一次的值
+    long heapAfterGcBytes;
+
+    long heapUsedBytes;
+
+    long gcCount;
+
+    long gcPauseMillis;
+
+    long gcMaxPauseMillis;
+
+    int threads;
+
+    int poolBusy;
+
+    int poolTotal;
+
+    int workerActive;
+
+    long requests;
+
+    long errors;
+
+    long p50Micros;
+
+    long p99Micros;
+
+    long maxMicros;
+
+    String toCsv() {
+        return elapsedSeconds + "," + warmup + "," + heapAfterGcBytes + "," + heapUsedBytes + "," + gcCount + ","
+                + gcPauseMillis + "," + gcMaxPauseMillis + "," + threads + "," + poolBusy + "," + poolTotal + ","
+                + workerActive + "," + requests + "," + errors + "," + p50Micros + "," + p99Micros + "," + maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "t=" + elapsedSeconds + "s heapAfterGc=" + (heapAfterGcBytes >> 20) + "MB heapUsed="
+                + (heapUsedBytes >> 20) + "MB gc=" + gcCount + "/" + gcPauseMillis + "ms(max " + gcMaxPauseMillis
+                + "ms) threads=" + threads + " pool=" + poolBusy + "/" + poolTotal + " workers=" + workerActive
+                + " req=" + requests + " err=" + errors + " p50=" + p50Micros + "us p99=" + p99Micros
+                + "us max=" + maxMicros + "us" + (warmup ? " (warmup)" : "");
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.soecode.lyf.soak;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.soecode.lyf.migration.SchemaMigrator;
+import com.soecode.lyf.server.EmbeddedServer;
+import com.soecode.lyf.server.ServerSettings;
+import com.soecode.lyf.sqlbudget.SqlBudgetMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 长时间压测：在进程内启动内嵌 Tomcat，连内嵌 H2（MySQL 兼容模式）数据库，
+ * 持续施加列表/详情/预约混合流量，按固定间隔采样堆、GC、线程、连接池和延迟，写入 CSV，
+ * 结束时检查堆是否持续增长、p99 是否漂移、错误率是否超限，不通过时以状态码1退出。
+ * <p>
+ * 参数均为系统属性，如 -Dsoak.durationMinutes=240 -Dsoak.threads=32，见 README。
+ * 数据库用文件模式，数据不占用堆，不会干扰堆增长判断。
+ */
+public class SoakTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SoakTest.class);
+
+    static final int FIRST_BOOK_ID = 1000;
+
+    public static void main(String[] args) throws Exception {
+        long durationSeconds = (long) (doubleSetting("soak.durationMinutes", 60) * 60);
+        long warmupSeconds = (long) (doubleSetting("soak.warmupMinutes", 5) * 60);
+        int sampleSeconds = intSetting("soak.sampleSeconds", 10);
+        int threads = intSetting("soak.threads", 16);
+        int books = intSetting("soak.books", 1000);
+        int stock = intSetting("soak.stock", 100000);
+        int listPercent = intSetting("soak.listPercent", 20);
+        int detailPercent = intSetting("soak.detailPercent", 50);
+        long thinkMillis = intSetting("soak.thinkMillis", 5);
+        File outDir = new File(setting("soak.outDir", "target/soak"));
+
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("cannot create " + outDir);
+        }
+        prepareDatabase(outDir, books, stock);
+        defaultProperty("server.port", "18999");
+        defaultProperty("server.accessLog.enabled", "false");
+        // 压测流量顺带检查各接口的 SQL 预算，预算见 app.properties 的 sqlbudget.budgets
+        defaultProperty("sqlbudget.enabled", "true");
+
+        EmbeddedServer server = new EmbeddedServer(ServerSettings.load());
+        server.start();
+        RuntimeSampler sampler = new RuntimeSampler(server::getActiveRequests);
+        SoakLoad load = new SoakLoad("http://127.0.0.1:" + System.getProperty("server.port"), threads, books,
+                listPercent, detailPercent, thinkMillis);
+
+        File csv = new File(outDir, "soak-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv");
+        List<SoakSample> steady = new ArrayList<>();
+        Map<String, String> violations = Collections.emptyMap();
+        logger.info("soak started, duration=" + durationSeconds + "s, warmup=" + warmupSeconds + "s, threads="
+                + threads + ", samples -> " + csv);
+        sampler.start();
+        load.start();
+        long begin = System.currentTimeMillis();
+        try (PrintWriter out = new PrintWriter(csv, "UTF-8")) {
+            out.println(SoakSample.CSV_HEADER);
+            long next = begin;
+            while (true) {
+                next += sampleSeconds * 1000L;
+                long sleep = next - System.currentTimeMillis();
+                if (sleep > 0) {
+                    Thread.sleep(sleep);
+                }
+                SoakSample sample = new SoakSample();
+                sample.elapsedSeconds = (System.currentTimeMillis() - begin) / 1000;
+                sample.warmup = sample.elapsedSeconds <= warmupSeconds;
+                sampler.sample(sample);
+                load.sample(sample);
+                out.println(sample.toCsv());
+                out.flush();
+                logger.info(sample.toString());
+                if (!sample.warmup) {
+                    steady.add(sample);
+                }
+                if (sample.elapsedSeconds >= durationSeconds) {
+                    break;
+                }
+            }
+            SqlBudgetMonitor sqlBudget = server.getComponents().get(SqlBudgetMonitor.class);
+            if (sqlBudget != null) {
+                violations = sqlBudget.getViolations();
+            }
+        } finally {
+            load.stop();
+            sampler.stop();
+            server.shutdownGracefully();
+        }
+
+        SoakVerdict verdict = SoakVerdict.judge(steady, doubleSetting("soak.heapGrowthPercent", 20),
+                doubleSetting("soak.p99DriftPercent", 50), doubleSetting("soak.maxErrorPercent", 0.1));
+        verdict.checkSqlBudget(violations);
+        for (String note : verdict.getNotes()) {
+            logger.info(note);
+        }
+        for (String failure : verdict.getFailures()) {
+            logger.error("SOAK FAILED: " + failure);
+        }
+        logger.info(verdict.passed() ? "soak passed" : "soak failed, samples in " + csv);
+        System.exit(verdict.passed() ? 0 : 1);
+    }
+
+    /**
+     * 未指定 -Djdbc.url 时使用全新的 H2 文件库（jdbc.profile=embedded），按正式迁移脚本建表并写入测试图书；
+     * 指定时直接使用已有数据
+     */
+    private static void prepareDatabase(File outDir, int books, int stock) throws Exception {
+        defaultProperty("jdbc.replica.url", "");
+        if (System.getProperty("jdbc.url") != null) {
+            defaultProperty("jdbc.profile", "mysql");
+            return;
+        }
+        File db = new File(outDir, "db");
+        for (File file : outDir.listFiles()) {
+            if (file.getName().startsWith("db.") && !file.delete()) {
+                throw new IOException("cannot delete " + file);
+            }
+        }
+        System.setProperty("jdbc.profile", "embedded");
+        System.setProperty("jdbc.embedded.url", "jdbc:h2:file:" + db.getAbsolutePath()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE");
+        System.setProperty("jdbc.embedded.sampleData", "false");
+        defaultProperty("jdbc.embedded.username", "sa");
+        defaultProperty("jdbc.embedded.password", "");
+
+        ComboPooledDataSource dataSource = new ComboPooledDataSource();
+        dataSource.setDriverClass("org.h2.Driver");
+        dataSource.setJdbcUrl(System.getProperty("jdbc.embedded.url"));
+        dataSource.setUser(System.getProperty("jdbc.embedded.username"));
+        dataSource.setPassword(System.getProperty("jdbc.embedded.password"));
+        try {
+            new SchemaMigrator(dataSource, "db/migration", 0).migrate();
+            try (Connection conn = dataSource.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps = conn.prepareStatement("INSERT INTO book (bookId, name, number) VALUES (?, ?, ?)")) {
+                    for (int i = 0; i < books; i++) {
+                        ps.setLong(1, FIRST_BOOK_ID + i);
+                        ps.setString(2, "Java程序设计 第" + (i + 1) + "卷");
+                        ps.setInt(3, stock);
+                        ps.addBatch();
+                        if (i % 500 == 499) {
+                            ps.executeBatch();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+            }
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    private static void defaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    private static String setting(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private static int intSetting(String key, int defaultValue) {
+        return Integer.parseInt(setting(key, String.valueOf(defaultValue)));
+    }
+
+    private static double doubleSetting(String key, double defaultValue) {
+        return Double.parseDouble(setting(key, String.valueOf(defaultValue)));
+    }
+
+}
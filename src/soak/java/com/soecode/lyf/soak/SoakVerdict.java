@@ -0,0 +1,139 @@
+package com.soecode.lyf.soak;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 根据预热后的采样判定压测是否通过
+ * <p>
+ * 采样按时间均分为四段：
+ * <ul>
+ * <li>堆：每段取 GC 后堆占用的最小值，四段严格递增且末段比首段增长超过阈值时判为持续增长（疑似泄漏）。
+ * 取最小值是为了滤掉老年代回收前的锯齿；</li>
+ * <li>p99：首段与末段各取窗口 p99 的中位数，末段比首段高出超过阈值时判为延迟漂移；</li>
+ * <li>错误率：整段错误请求占比超过阈值。</li>
+ * </ul>
+ */
+public class SoakVerdict {
+
+    // 分段判断至少需要的采样数
+    private static final int MIN_SAMPLES = 8;
+
+    // p99 绝对变化小于 1ms 时不算漂移，避免亚毫秒级延迟的抖动误判
+    private static final long MIN_DRIFT_MICROS = 1000;
+
+    private final List<String> failures = new ArrayList<>();
+
+    private final List<String> notes = new ArrayList<>();
+
+    public static SoakVerdict judge(List<SoakSample> steady, double heapGrowthPercent, double p99DriftPercent,
+                                    double maxErrorPercent) {
+        SoakVerdict verdict = new SoakVerdict();
+        if (steady.size() < MIN_SAMPLES) {
+            verdict.failures.add("too few samples after warmup: " + steady.size() + " < " + MIN_SAMPLES);
+            return verdict;
+        }
+        verdict.checkHeap(steady, heapGrowthPercent);
+        verdict.checkP99(steady, p99DriftPercent);
+        verdict.checkErrors(steady, maxErrorPercent);
+        return verdict;
+    }
+
+    private void checkHeap(List<SoakSample> steady, double heapGrowthPercent) {
+        long[] floors = new long[4];
+        for (int q = 0; q < 4; q++) {
+            long floor = Long.MAX_VALUE;
+            for (SoakSample sample : quarter(steady, q)) {
+                if (sample.heapAfterGcBytes > 0) {
+                    floor = Math.min(floor, sample.heapAfterGcBytes);
+                }
+            }
+            floors[q] = floor == Long.MAX_VALUE ? 0 : floor;
+        }
+        notes.add("heap after GC floor per quarter (MB): " + Arrays.toString(toMb(floors)));
+        if (floors[0] == 0) {
+            notes.add("no GC observed in first quarter, heap check skipped");
+            return;
+        }
+        boolean monotonic = floors[0] < floors[1] && floors[1] < floors[2] && floors[2] < floors[3];
+        double growth = (floors[3] - floors[0]) * 100.0 / floors[0];
+        if (monotonic && growth > heapGrowthPercent) {
+            failures.add(String.format("heap after GC grows monotonically: +%.1f%% > %.1f%%", growth, heapGrowthPercent));
+        }
+    }
+
+    private void checkP99(List<SoakSample> steady, double p99DriftPercent) {
+        long first = medianP99(quarter(steady, 0));
+        long last = medianP99(quarter(steady, 3));
+        notes.add("median p99 first/last quarter (us): " + first + " / " + last);
+        if (first == 0 || last - first < MIN_DRIFT_MICROS) {
+            return;
+        }
+        double drift = (last - first) * 100.0 / first;
+        if (drift > p99DriftPercent) {
+            failures.add(String.format("p99 drifted: %dus -> %dus (+%.1f%% > %.1f%%)", first, last, drift,
+                    p99DriftPercent));
+        }
+    }
+
+    private void checkErrors(List<SoakSample> steady, double maxErrorPercent) {
+        long requests = 0;
+        long errors = 0;
+        for (SoakSample sample : steady) {
+            requests += sample.requests;
+            errors += sample.errors;
+        }
+        double rate = requests == 0 ? 100 : errors * 100.0 / requests;
+        notes.add(String.format("requests=%d errors=%d (%.3f%%)", requests, errors, rate));
+        if (requests == 0 || rate > maxErrorPercent) {
+            failures.add(String.format("error rate %.3f%% > %.3f%%", rate, maxErrorPercent));
+        }
+    }
+
+    private static List<SoakSample> quarter(List<SoakSample> samples, int q) {
+        int from = samples.size() * q / 4;
+        int to = samples.size() * (q + 1) / 4;
+        return samples.subList(from, to);
+    }
+
+    private static long medianP99(List<SoakSample> samples) {
+        long[] values = new long[samples.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = samples.get(i).p99Micros;
+        }
+        Arrays.sort(values);
+        return values.length == 0 ? 0 : values[values.length / 2];
+    }
+
+    private static long[] toMb(long[] bytes) {
+        long[] mb = new long[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            mb[i] = bytes[i] >> 20;
+        }
+        return mb;
+    }
+
+    /**
+     * @param violations SqlCounter 记下的超出预算的接口，含 N+1
+     */
+    public void checkSqlBudget(Map<String, String> violations) {
+        for (Map.Entry<String, String> entry : violations.entrySet()) {
+            failures.add("sql budget exceeded, " + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+
+    public boolean passed() {
+        return failures.isEmpty();
+    }
+
+    public List<String> getFailures() {
+        return failures;
+    }
+
+    public List<String> getNotes() {
+        return notes;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.soecode.lyf.hold;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 每格 5ms、每层4格、3层：第0层覆盖 4 格，第1层 16 格，第2层 64 格，更远的在第2层反复下放
+ */
+public class TimingWheelTest {
+
+    private static final long TICK = 5;
+
+    private final List<Long> expired = Collections.synchronizedList(new ArrayList<>());
+
+    private final Map<Long, Long> expiredAt = new ConcurrentHashMap<>();
+
+    private CountDownLatch latch;
+
+    private TimingWheel<Long> wheel;
+
+    @After
+    public void stop() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    public void expiresInDeadlineOrderAcrossLevels() throws InterruptedException {
+        // 跨第0/1/2层，且正好落在 4、16 的整圈边界上
+        List<Long> ticks = Arrays.asList(40L, 2L, 17L, 4L, 16L, 6L, 33L, 3L, 12L, 63L);
+        long now = newWheel(ticks.size());
+        for (long tick : ticks) {
+            wheel.schedule(now + tick * TICK, now + tick * TICK);
+        }
+        assertEquals(ticks.size(), wheel.size());
+        wheel.start();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        List<Long> sorted = new ArrayList<>(expired);
+        Collections.sort(sorted);
+        assertEquals(sorted, expired);
+        assertNotEarly();
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void deadlineBeyondTopLevelIsNotFiredEarly() throws InterruptedException {
+        long now = newWheel(3);
+        // 超出最高层 63 格，先放在最远一格，下放时按实际到期时间重新计算
+        long far = now + 150 * TICK;
+        long farther = now + 200 * TICK;
+        long near = now + 10 * TICK;
+        wheel.schedule(farther, farther);
+        wheel.schedule(far, far);
+        wheel.schedule(near, near);
+        wheel.start();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(near, far, farther), expired);
+        assertNotEarly();
+    }
+
+    @Test
+    public void alreadyExpiredFiresOnNextTick() throws InterruptedException {
+        long now = newWheel(1);
+        wheel.schedule(now - 1000, now - 1000);
+        wheel.start();
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledWhilePendingNeverFires() throws InterruptedException {
+        long now = newWheel(1);
+        // 尚未被 worker 取走就取消
+        TimingWheel.Timeout<Long> beforeStart = wheel.schedule(now + 20 * TICK, now + 20 * TICK);
+        assertTrue(beforeStart.cancel());
+        assertFalse(beforeStart.cancel());
+        // 已放进第1层的格子后再取消
+        TimingWheel.Timeout<Long> placed = wheel.schedule(now + 10 * TICK, now + 10 * TICK);
+        long control = now + 30 * TICK;
+        TimingWheel.Timeout<Long> fired = wheel.schedule(control, control);
+        wheel.start();
+        Thread.sleep(3 * TICK);
+        assertTrue(placed.cancel());
+        assertEquals(1, wheel.size());
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(control), expired);
+        assertFalse(fired.cancel());
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * @return 当前时间，到期时间以它为基准
+     */
+    private long newWheel(int expected) {
+        latch = new CountDownLatch(expected);
+        wheel = new TimingWheel<>("test", TICK, 4, 3, deadline -> {
+            expiredAt.put(deadline, System.currentTimeMillis());
+            expired.add(deadline);
+            latch.countDown();
+        });
+        return System.currentTimeMillis();
+    }
+
+    private void assertNotEarly() {
+        for (Map.Entry<Long, Long> entry : expiredAt.entrySet()) {
+            assertTrue("expired " + (entry.getKey() - entry.getValue()) + "ms early", entry.getValue() >= entry.getKey());
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.soecode.lyf.record;
+
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.dto.Result;
+import com.soecode.lyf.entity.Appointment;
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.enums.AppointStateEnum;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RecordCodecTest {
+
+    @Test
+    public void executionRoundTrip() {
+        Date appointTime = new Date(1500000000123L);
+        AppointExecution execution = new AppointExecution(1000L, AppointStateEnum.SUCCESS,
+                new Appointment(1000L, 12345678910L, appointTime));
+
+        Result<Object> result = roundTrip(new Result<Object>(true, execution));
+
+        assertTrue(result.isSuccess());
+        AppointExecution read = (AppointExecution) result.getData();
+        assertEquals(1000L, read.getBookId());
+        assertEquals(AppointStateEnum.SUCCESS.getState(), read.getState());
+        assertEquals(AppointStateEnum.SUCCESS.getStateInfo(), read.getStateInfo());
+        assertEquals(12345678910L, read.getAppointment().getStudentId());
+        assertEquals(appointTime, read.getAppointment().getAppointTime());
+    }
+
+    @Test
+    public void negativeStateWithoutAppointmentRoundTrip() {
+        Result<Object> result = roundTrip(new Result<Object>(true,
+                new AppointExecution(1001L, AppointStateEnum.REPEAT_APPOINT)));
+
+        AppointExecution read = (AppointExecution) result.getData();
+        assertEquals(AppointStateEnum.REPEAT_APPOINT.getState(), read.getState());
+        assertNull(read.getAppointment());
+    }
+
+    @Test
+    public void bookListRoundTrip() {
+        List<Book> books = Arrays.asList(new Book(1000L, "Java程序设计", 10), new Book(1001L, null, 0),
+                new Book(Long.MAX_VALUE, "", -1));
+
+        @SuppressWarnings("unchecked")
+        List<Book> read = (List<Book>) roundTrip(new Result<Object>(true, books)).getData();
+
+        assertEquals(3, read.size());
+        assertEquals("Java程序设计", read.get(0).getName());
+        assertEquals(10, read.get(0).getNumber());
+        assertNull(read.get(1).getName());
+        assertEquals(Long.MAX_VALUE, read.get(2).getBookId());
+        assertEquals("", read.get(2).getName());
+        assertEquals(-1, read.get(2).getNumber());
+    }
+
+    @Test
+    public void errorRoundTrip() {
+        Result<Object> result = roundTrip(new Result<Object>(false, "系统异常"));
+
+        assertFalse(result.isSuccess());
+        assertEquals("系统异常", result.getError());
+        assertNull(result.getData());
+    }
+
+    @Test
+    public void appointRequestRoundTrip() {
+        RecordWriter out = new RecordWriter(16);
+        RecordCodec.writeAppointRequest(out, 12345678910L, true);
+        RecordReader in = reader(out.toByteArray());
+
+        assertEquals(12345678910L, RecordCodec.readStudentId(in));
+        assertTrue(RecordCodec.readWaitlist(in));
+        // 标志字节省略时不排候补
+        assertFalse(RecordCodec.readWaitlist(reader(new byte[0])));
+    }
+
+    @Test
+    public void everyTruncationIsRejected() {
+        RecordWriter out = new RecordWriter(64);
+        RecordCodec.writeResult(out, new Result<Object>(true, Arrays.asList(new Book(1000L, "设计模式", 10),
+                new Book(1001L, "编译原理", 3))));
+        byte[] full = out.toByteArray();
+
+        for (int length = 0; length < full.length; length++) {
+            assertRejected(Arrays.copyOf(full, length));
+        }
+    }
+
+    @Test
+    public void forgedInputIsRejected() {
+        // 字符串长度超出剩余字节
+        assertRejected(new byte[]{(byte) (0x80 | 2), 1, (byte) 0xFF, 0x7F, 'a'});
+        // 图书条数远大于剩余字节
+        assertRejected(new byte[]{(byte) (0x80 | 3), (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 1, 1, 0});
+        // 变长整数超过10字节
+        byte[] varint = new byte[12];
+        Arrays.fill(varint, (byte) 0xFF);
+        varint[0] = (byte) (0x80 | 2);
+        assertRejected(varint);
+        // 未知类型
+        assertRejected(new byte[]{(byte) (0x80 | 9)});
+    }
+
+    private static Result<Object> roundTrip(Result<Object> result) {
+        RecordWriter out = new RecordWriter(16);
+        RecordCodec.writeResult(out, result);
+        RecordReader in = reader(out.toByteArray());
+        Result<Object> read = RecordCodec.readResult(in);
+        assertEquals(0, in.remaining());
+        return read;
+    }
+
+    private static RecordReader reader(byte[] bytes) {
+        return new RecordReader(bytes, 0, bytes.length);
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            RecordCodec.readResult(reader(bytes));
+            fail("accepted " + Arrays.toString(bytes));
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+}
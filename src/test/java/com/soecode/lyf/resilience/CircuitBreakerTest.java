@@ -0,0 +1,138 @@
+package com.soecode.lyf.resilience;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final long SLOW_MILLIS = 100;
+
+    @Test
+    public void opensWhenFailureRateReached() {
+        CircuitBreaker breaker = breaker(60000);
+
+        call(breaker, true);
+        call(breaker, true);
+        call(breaker, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        // 第4次调用达到 minCalls，失败率 50%
+        call(breaker, false);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void opensWhenSlowRateReached() {
+        CircuitBreaker breaker = breaker(60000);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onSuccess(i < 2 ? 1 : SLOW_MILLIS);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void staysClosedBelowMinCalls() {
+        CircuitBreaker breaker = breaker(60000);
+
+        call(breaker, false);
+        call(breaker, false);
+        call(breaker, false);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenClosesAfterSuccessfulProbes() {
+        CircuitBreaker breaker = tripped(0);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        // 探测名额用完
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess(1);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(1);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        // 关闭时清空窗口，之前的失败不再计入
+        call(breaker, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenReopensOnFailedProbe() {
+        CircuitBreaker breaker = tripped(0);
+
+        assertTrue(breaker.allowRequest());
+        breaker.onError(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2L, breaker.stats().get("trips"));
+    }
+
+    @Test
+    public void halfOpenReopensOnSlowProbe() {
+        CircuitBreaker breaker = tripped(0);
+
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess(SLOW_MILLIS);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void cancelledProbeReturnsItsSlot() {
+        CircuitBreaker breaker = tripped(0);
+
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        breaker.onCancel();
+
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void openRejectsUntilOpenMillisElapse() throws InterruptedException {
+        CircuitBreaker breaker = tripped(200);
+
+        assertFalse(breaker.allowRequest());
+        Thread.sleep(250);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    // 窗口10秒，至少4次调用，失败率或慢调用率 50% 打开，半开放行2个探测
+    private static CircuitBreaker breaker(long openMillis) {
+        return new CircuitBreaker(10000, 4, 50, 50, SLOW_MILLIS, openMillis, 2);
+    }
+
+    private static CircuitBreaker tripped(long openMillis) {
+        CircuitBreaker breaker = breaker(openMillis);
+        for (int i = 0; i < 4; i++) {
+            call(breaker, false);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static void call(CircuitBreaker breaker, boolean success) {
+        assertTrue(breaker.allowRequest());
+        if (success) {
+            breaker.onSuccess(1);
+        } else {
+            breaker.onError(1);
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.soecode.lyf.service;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.soecode.lyf.catalog.OffHeapCatalog;
+import com.soecode.lyf.dao.AppointmentDao;
+import com.soecode.lyf.dao.BookDao;
+import com.soecode.lyf.datasource.RoutingDataSource;
+import com.soecode.lyf.dto.AppointExecution;
+import com.soecode.lyf.entity.Book;
+import com.soecode.lyf.enums.AppointStateEnum;
+import com.soecode.lyf.event.BookChangeEvents;
+import com.soecode.lyf.exception.SqlBudgetExceededException;
+import com.soecode.lyf.hold.AppointHoldManager;
+import com.soecode.lyf.journal.JournalAppointer;
+import com.soecode.lyf.mapper.RowTypeHandlers;
+import com.soecode.lyf.migration.SchemaMigrator;
+import com.soecode.lyf.search.BookSearchIndex;
+import com.soecode.lyf.service.impl.BookServiceImpl;
+import com.soecode.lyf.sqlbudget.SqlCounter;
+import com.soecode.lyf.sqlbudget.SqlScope;
+import com.soecode.lyf.stock.DirectStockAllocator;
+import com.soecode.lyf.trace.TraceInterceptor;
+import com.soecode.lyf.waitlist.WaitlistManager;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 预约、详情在 H2（MySQL 兼容模式）上执行的语句数和取连接次数
+ * <p>
+ * 按 DaoConfig 的方式组装 MyBatis：每次 Mapper 调用一个会话、取一次连接，TraceInterceptor 计语句，
+ * RoutingDataSource 计连接。预算与 app.properties 中 sqlbudget.budgets 一致，多一条语句即失败。
+ */
+public class BookServiceSqlBudgetTest {
+
+    private static final int REPEAT_THRESHOLD = 3;
+
+    private static ComboPooledDataSource pool;
+
+    private static BookDao bookDao;
+
+    private static BookServiceImpl bookService;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        pool = new ComboPooledDataSource();
+        pool.setDriverClass("org.h2.Driver");
+        pool.setJdbcUrl("jdbc:h2:mem:sqlbudget;MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+        pool.setUser("sa");
+        pool.setPassword("");
+        SchemaMigrator migrator = new SchemaMigrator(pool, "db/migration", 0);
+        migrator.migrate();
+        migrator.runIfEmpty("book", "db/sample/books.sql");
+
+        Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(),
+                new RoutingDataSource(pool, null, true, 0)));
+        RowTypeHandlers.registerAll(configuration.getTypeHandlerRegistry());
+        configuration.addMapper(BookDao.class);
+        configuration.addMapper(AppointmentDao.class);
+        configuration.addInterceptor(new TraceInterceptor());
+        SqlSessionManager sessions = SqlSessionManager.newInstance(new SqlSessionFactoryBuilder().build(configuration));
+
+        bookDao = sessions.getMapper(BookDao.class);
+        bookService = new BookServiceImpl();
+        inject("bookDao", bookDao);
+        inject("appointmentDao", sessions.getMapper(AppointmentDao.class));
+        inject("stockAllocator", new DirectStockAllocator(bookDao));
+        inject("journalAppointer", JournalAppointer.disabled());
+        inject("bookChangeEvents", new BookChangeEvents());
+        inject("bookSearchIndex", new BookSearchIndex());
+        inject("offHeapCatalog", OffHeapCatalog.disabled());
+        inject("appointHoldManager", AppointHoldManager.disabled());
+        inject("waitlistManager", WaitlistManager.disabled());
+    }
+
+    private static void inject(String name, Object value) throws Exception {
+        Field field = BookServiceImpl.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(bookService, value);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void appointWithinBudget() {
+        try (SqlScope scope = SqlCounter.open("appoint")) {
+            AppointExecution execution = bookService.appoint(1000L, 12345678901L);
+            assertEquals(AppointStateEnum.SUCCESS.getState(), execution.getState());
+            // 扣库存、写预约、查预约连同图书
+            scope.assertWithin(3, 3, REPEAT_THRESHOLD);
+            assertEquals(3, scope.getStatements());
+        }
+    }
+
+    @Test
+    public void repeatAppointGivesBackStock() {
+        bookService.appoint(1001L, 12345678902L);
+        try (SqlScope scope = SqlCounter.open("repeat appoint")) {
+            AppointExecution execution = bookService.appoint(1001L, 12345678902L);
+            assertEquals(AppointStateEnum.REPEAT_APPOINT.getState(), execution.getState());
+            // 扣库存、写预约被忽略、归还库存
+            scope.assertWithin(3, 3, REPEAT_THRESHOLD);
+            assertEquals(Arrays.asList("BookDao.reduceNumber", "AppointmentDao.insertAppointment", "BookDao.increaseNumber"),
+                    Arrays.asList(scope.getStatementCounts().keySet().toArray()));
+        }
+    }
+
+    @Test
+    public void soldOutAppointRunsOneStatement() {
+        long studentId = 12345678910L;
+        while (bookService.appoint(1002L, studentId).getState() == AppointStateEnum.SUCCESS.getState()) {
+            studentId++;
+        }
+        try (SqlScope scope = SqlCounter.open("sold out appoint")) {
+            AppointExecution execution = bookService.appoint(1002L, studentId + 1);
+            assertEquals(AppointStateEnum.NO_NUMBER.getState(), execution.getState());
+            scope.assertWithin(1, 1, REPEAT_THRESHOLD);
+        }
+    }
+
+    @Test
+    public void detailWithinBudget() {
+        try (SqlScope scope = SqlCounter.open("detail")) {
+            Book book = bookService.getById(1003L);
+            assertEquals(1003L, book.getBookId());
+            scope.assertWithin(1, 1, REPEAT_THRESHOLD);
+        }
+    }
+
+    @Test
+    public void queryByIdInLoopIsNPlusOne() {
+        try (SqlScope scope = SqlCounter.open("detail loop")) {
+            for (long bookId = 1000L; bookId <= 1003L; bookId++) {
+                bookService.getById(bookId);
+            }
+            try {
+                scope.assertWithin(Integer.MAX_VALUE, Integer.MAX_VALUE, REPEAT_THRESHOLD);
+                fail("expected N+1 on BookDao.queryById");
+            } catch (SqlBudgetExceededException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("N+1 BookDao.queryById x4"));
+            }
+        }
+    }
+
+    @Test
+    public void queryByIdsIsOneStatement() {
+        try (SqlScope scope = SqlCounter.open("detail batch")) {
+            assertEquals(4, bookDao.queryByIds(Arrays.asList(1000L, 1001L, 1002L, 1003L)).size());
+            scope.assertWithin(1, 1, REPEAT_THRESHOLD);
+        }
+    }
+
+}